@@ -1,99 +1,685 @@
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
-
 /**
- * Represents an Abstract Syntax Tree (AST) for a given parse tree.
- * The AST is generated by removing unnecessary terminals and non-terminals from the parse tree.
- * ASTs can be found in test/ast-2/ for parse tress in test/ast-1/.
+ * Represents an Abstract Syntax Tree (AST) of a PascalMaisPresque program.
+ *
+ * Each construct of the language has its own node class, nested in this one: statements ({@link Block Block},
+ * {@link Assign Assign}, {@link If If}, {@link While While}, {@link Print Print}, {@link Read Read}), arithmetic
+ * expressions ({@link BinOp BinOp}, {@link UnaryMinus UnaryMinus}, {@link Var Var}, {@link Const Const}) and conditions
+ * ({@link Compare Compare}, {@link And And}, {@link Or Or}). The tokens which only structure the text (keywords,
+ * parentheses, brackets, separators) are gone, and so are the parentheses of the expressions: the tree is the
+ * grouping. Chains of operators are left-associative binary nodes.
+ *
+ * The kind of a node is given by an enum, for switches, and the passes walk the tree with an
+ * {@link ASTVisitor ASTVisitor}. ASTs are built from the derivation found by the parsers by
+ * {@link ASTBuilder ASTBuilder}.
+ *
+ * Nodes are immutable, so identical expressions can be shared by several parents: an
+ * {@link ExpressionTable ExpressionTable} turns the tree into a DAG where each distinct expression is a single node.
  */
-public class AST extends ParseTree {
-    private Symbol current;
-
-    /**
-     * Constructs an AST object by generating the AST from a given parse tree.
-     * @param parseTree The parse tree to generate the AST from.
-     */
-    public AST(ParseTree parseTree) {
-        super(parseTree.getLabel(), parseTree.getChildren());
-        this.children = generateAST(parseTree);
-    }
-
-    /**
-     * Generates the Abstract Syntax Tree (AST) for a given parse tree.
-     * @param parseTree The parse tree to generate the AST from.
-     * @return The list of parse trees representing the AST.
-     */
-    public List<ParseTree> generateAST(ParseTree parseTree) {
-    List<ParseTree> children = new ArrayList<ParseTree>();
-    for (ParseTree child : parseTree.getChildren()) {
-        if (child.getChildren().isEmpty()) {
-            //Terminals that are unnecessary
-            current = child.getLabel();
-            switch (current.getType()) {
-                //For each terminal, add it to the list of children
-                case EPSILON:
-                    break;
-                case LBRACK:
-                    break;
-                case RBRACK:
-                    break;
-                default:
-                    children.add(child);
-            }
-        } else {
-            //Variables that are unnecessary
-            current = child.getLabel();
-            switch (current.getValue().toString()) {
-                //For each non-terminal, add its children to the list of children
-                case "Instruction":
-                    for (ParseTree grandchild : generateAST(child)) {
-                        if (grandchild.getLabel().isNonTerminal()) {
-                            children.add(grandchild);
-                        }
-                    }
-                    break;
-                case "InstListTail":
-                    for (ParseTree grandchild : generateAST(child)) {
-                        children.add(grandchild);
-                    }
-                    break;
-                case "Comp":
-                    for (ParseTree grandchild : generateAST(child)) {
-                        children.add(grandchild);
-                    }
-                    break;
-                case "ExprArith'":
-                    for (ParseTree grandchild : generateAST(child)) {
-                        children.add(grandchild);
-                    }
-                    break;
-                case "Prod'":
-                    for (ParseTree grandchild : generateAST(child)) {
-                        children.add(grandchild);
-                    }
-                    break;
-                case "IfTail":
-                    for (ParseTree grandchild : generateAST(child)) {
-                        children.add(grandchild);
-                    }
-                    break;
-                case "Cond'":
-                    for (ParseTree grandchild : generateAST(child)) {
-                        children.add(grandchild);
-                    }
-                    break;
-                case "Conj'":
-                    for (ParseTree grandchild : generateAST(child)) {
-                        children.add(grandchild);
-                    }
-                    break;
-                default:
-                    ParseTree parent = new ParseTree(current, generateAST(child));
-                    children.add(parent);
-            }
-        }
-    }
-    return children;
+public abstract class AST {
+    /**
+     * Kinds of nodes, one per node class.
+     */
+    public enum Kind {
+        PROGRAM, BLOCK, ASSIGN, IF, WHILE, PRINT, READ, BIN_OP, UNARY_MINUS, VAR, CONST, COMPARE, AND, OR
+    }
+
+    /**
+     * Arithmetic binary operators.
+     */
+    public enum Operator {
+        ADD, SUB, MUL, DIV
+    }
+
+    /**
+     * Comparison operators.
+     */
+    public enum Comparison {
+        EQUAL, SMALLER
+    }
+
+    /**
+     * The kind of the node.
+     */
+    private final Kind kind;
+
+    /**
+     * Creates a node.
+     *
+     * @param kind the kind of the node.
+     */
+    protected AST(Kind kind) {
+        this.kind = kind;
+    }
+
+    /**
+     * Returns the kind of the node.
+     *
+     * @return the value of attribute {@link kind kind}.
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the children of the node, in the order of the source.
+     *
+     * @return an unmodifiable list of the nodes directly under this one.
+     */
+    public abstract List<AST> getChildren();
+
+    /**
+     * Calls the method of the visitor for the class of the node.
+     *
+     * @param visitor the visitor.
+     * @param <R> the type of the results of the visitor.
+     * @return the result of the visitor on the node.
+     */
+    public abstract <R> R accept(ASTVisitor<R> visitor);
+
+    /**
+     * An instruction.
+     */
+    public abstract static class Statement extends AST {
+        protected Statement(Kind kind) {
+            super(kind);
+        }
+    }
+
+    /**
+     * An arithmetic expression, whose value is an i32.
+     */
+    public abstract static class Expression extends AST {
+        /**
+         * Structural hash of the expression, computed once from those of its children.
+         */
+        private final int hash;
+
+        protected Expression(Kind kind, int hash) {
+            super(kind);
+            this.hash = hash;
+        }
+
+        /**
+         * Returns the structural hash of the expression, the same for all the expressions with the same operators,
+         * variables and constants in the same order.
+         *
+         * @return the value of attribute {@link hash hash}.
+         */
+        public int getHash() {
+            return hash;
+        }
+
+        /**
+         * Combines the hash of a node with the hash of one of its operands or attributes.
+         *
+         * @param hash the hash combined so far.
+         * @param value the hash of the operand or attribute.
+         * @return the combined hash.
+         */
+        protected static int combine(int hash, int value) {
+            return 31 * hash + value;
+        }
+    }
+
+    /**
+     * A condition, whose value is an i1.
+     */
+    public abstract static class Condition extends AST {
+        protected Condition(Kind kind) {
+            super(kind);
+        }
+    }
+
+    /**
+     * The whole program: <code>begin</code> &lt;Code&gt; <code>end</code>.
+     */
+    public static final class Program extends AST {
+        private final Block body;
+
+        public Program(Block body) {
+            super(Kind.PROGRAM);
+            this.body = body;
+        }
+
+        /**
+         * Returns the instructions of the program.
+         *
+         * @return the block of the program, empty if the program has no instruction.
+         */
+        public Block getBody() {
+            return body;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Collections.<AST>singletonList(body);
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitProgram(this);
+        }
+    }
+
+    /**
+     * A list of instructions separated by <code>...</code>, as the code of the program or in <code>begin</code> ...
+     * <code>end</code>.
+     */
+    public static final class Block extends Statement {
+        private final List<Statement> statements;
+
+        public Block(List<Statement> statements) {
+            super(Kind.BLOCK);
+            this.statements = Collections.unmodifiableList(statements);
+        }
+
+        /**
+         * Returns the instructions of the block.
+         *
+         * @return an unmodifiable list of the instructions, in order.
+         */
+        public List<Statement> getStatements() {
+            return statements;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Collections.<AST>unmodifiableList(statements);
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitBlock(this);
+        }
+    }
+
+    /**
+     * An assignment: [VarName] <code>:=</code> &lt;ExprArith&gt;.
+     */
+    public static final class Assign extends Statement {
+        private final Var target;
+        private final Expression value;
+
+        public Assign(Var target, Expression value) {
+            super(Kind.ASSIGN);
+            this.target = target;
+            this.value = value;
+        }
+
+        /**
+         * Returns the assigned variable.
+         *
+         * @return the variable on the left of <code>:=</code>.
+         */
+        public Var getTarget() {
+            return target;
+        }
+
+        /**
+         * Returns the assigned expression.
+         *
+         * @return the expression on the right of <code>:=</code>.
+         */
+        public Expression getValue() {
+            return value;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Arrays.<AST>asList(target, value);
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitAssign(this);
+        }
+    }
+
+    /**
+     * A conditional: <code>if</code> &lt;Cond&gt; <code>then</code> &lt;Instruction&gt; <code>else</code>
+     * &lt;IfTail&gt;.
+     */
+    public static final class If extends Statement {
+        private final Condition condition;
+        private final Statement thenBranch;
+        private final Statement elseBranch;
+
+        public If(Condition condition, Statement thenBranch, Statement elseBranch) {
+            super(Kind.IF);
+            this.condition = condition;
+            this.thenBranch = thenBranch;
+            this.elseBranch = elseBranch;
+        }
+
+        /**
+         * Returns the condition.
+         *
+         * @return the condition between <code>if</code> and <code>then</code>.
+         */
+        public Condition getCondition() {
+            return condition;
+        }
+
+        /**
+         * Returns the instruction executed when the condition holds.
+         *
+         * @return the instruction after <code>then</code>.
+         */
+        public Statement getThenBranch() {
+            return thenBranch;
+        }
+
+        /**
+         * Returns the instruction executed when the condition does not hold.
+         *
+         * @return the instruction after <code>else</code>, null if there is none.
+         */
+        public Statement getElseBranch() {
+            return elseBranch;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return elseBranch == null ? Arrays.<AST>asList(condition, thenBranch) : Arrays.<AST>asList(condition, thenBranch, elseBranch);
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitIf(this);
+        }
+    }
+
+    /**
+     * A loop: <code>while</code> &lt;Cond&gt; <code>do</code> &lt;Instruction&gt;.
+     */
+    public static final class While extends Statement {
+        private final Condition condition;
+        private final Statement body;
+
+        public While(Condition condition, Statement body) {
+            super(Kind.WHILE);
+            this.condition = condition;
+            this.body = body;
+        }
+
+        /**
+         * Returns the condition of the loop.
+         *
+         * @return the condition between <code>while</code> and <code>do</code>.
+         */
+        public Condition getCondition() {
+            return condition;
+        }
+
+        /**
+         * Returns the body of the loop.
+         *
+         * @return the instruction after <code>do</code>.
+         */
+        public Statement getBody() {
+            return body;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Arrays.<AST>asList(condition, body);
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitWhile(this);
+        }
+    }
+
+    /**
+     * An output: <code>print(</code>[VarName]<code>)</code>.
+     */
+    public static final class Print extends Statement {
+        private final Var variable;
+
+        public Print(Var variable) {
+            super(Kind.PRINT);
+            this.variable = variable;
+        }
+
+        /**
+         * Returns the printed variable.
+         *
+         * @return the variable between the parentheses.
+         */
+        public Var getVariable() {
+            return variable;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Collections.<AST>singletonList(variable);
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitPrint(this);
+        }
+    }
+
+    /**
+     * An input: <code>read(</code>[VarName]<code>)</code>.
+     */
+    public static final class Read extends Statement {
+        private final Var variable;
+
+        public Read(Var variable) {
+            super(Kind.READ);
+            this.variable = variable;
+        }
+
+        /**
+         * Returns the read variable.
+         *
+         * @return the variable between the parentheses.
+         */
+        public Var getVariable() {
+            return variable;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Collections.<AST>singletonList(variable);
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitRead(this);
+        }
+    }
+
+    /**
+     * A binary arithmetic operation: <code>+</code>, <code>-</code>, <code>*</code> or <code>/</code>.
+     */
+    public static final class BinOp extends Expression {
+        private final Operator operator;
+        private final Expression left;
+        private final Expression right;
+
+        public BinOp(Operator operator, Expression left, Expression right) {
+            super(Kind.BIN_OP, combine(combine(combine(Kind.BIN_OP.ordinal(), operator.ordinal()), left.getHash()), right.getHash()));
+            this.operator = operator;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * Returns the operator.
+         *
+         * @return the arithmetic operator.
+         */
+        public Operator getOperator() {
+            return operator;
+        }
+
+        /**
+         * Returns the left operand.
+         *
+         * @return the expression on the left of the operator.
+         */
+        public Expression getLeft() {
+            return left;
+        }
+
+        /**
+         * Returns the right operand.
+         *
+         * @return the expression on the right of the operator.
+         */
+        public Expression getRight() {
+            return right;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Arrays.<AST>asList(left, right);
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitBinOp(this);
+        }
+    }
+
+    /**
+     * A negation: <code>-</code>&lt;Atom&gt;.
+     *
+     * A chain of unary minuses directly applied to each other is kept as one negation when its length is odd and
+     * dropped when it is even, as the code generator has always done.
+     */
+    public static final class UnaryMinus extends Expression {
+        private final Expression operand;
+
+        public UnaryMinus(Expression operand) {
+            super(Kind.UNARY_MINUS, combine(Kind.UNARY_MINUS.ordinal(), operand.getHash()));
+            this.operand = operand;
+        }
+
+        /**
+         * Returns the negated expression.
+         *
+         * @return the operand of the minus.
+         */
+        public Expression getOperand() {
+            return operand;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Collections.<AST>singletonList(operand);
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitUnaryMinus(this);
+        }
+    }
+
+    /**
+     * A variable: [VarName].
+     */
+    public static final class Var extends Expression {
+        private final Identifier identifier;
+
+        public Var(Identifier identifier) {
+            super(Kind.VAR, combine(Kind.VAR.ordinal(), identifier.getId()));
+            this.identifier = identifier;
+        }
+
+        /**
+         * Returns the identifier of the variable.
+         *
+         * @return the interned name of the variable.
+         */
+        public Identifier getIdentifier() {
+            return identifier;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitVar(this);
+        }
+    }
+
+    /**
+     * A constant: [Number].
+     */
+    public static final class Const extends Expression {
+        private final int value;
+
+        public Const(int value) {
+            super(Kind.CONST, combine(Kind.CONST.ordinal(), value));
+            this.value = value;
+        }
+
+        /**
+         * Returns the value of the constant.
+         *
+         * @return the integer value.
+         */
+        public int getValue() {
+            return value;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitConst(this);
+        }
+    }
+
+    /**
+     * A comparison of two expressions: &lt;ExprArith&gt; &lt;Comp&gt; &lt;ExprArith&gt;.
+     */
+    public static final class Compare extends Condition {
+        private final Comparison comparison;
+        private final Expression left;
+        private final Expression right;
+
+        public Compare(Comparison comparison, Expression left, Expression right) {
+            super(Kind.COMPARE);
+            this.comparison = comparison;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * Returns the comparison operator.
+         *
+         * @return the comparison.
+         */
+        public Comparison getComparison() {
+            return comparison;
+        }
+
+        /**
+         * Returns the left operand.
+         *
+         * @return the expression on the left of the comparison.
+         */
+        public Expression getLeft() {
+            return left;
+        }
+
+        /**
+         * Returns the right operand.
+         *
+         * @return the expression on the right of the comparison.
+         */
+        public Expression getRight() {
+            return right;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Arrays.<AST>asList(left, right);
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitCompare(this);
+        }
+    }
+
+    /**
+     * A conjunction: &lt;Conj&gt; <code>and</code> &lt;SimpleCond&gt;.
+     */
+    public static final class And extends Condition {
+        private final Condition left;
+        private final Condition right;
+
+        public And(Condition left, Condition right) {
+            super(Kind.AND);
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * Returns the left operand.
+         *
+         * @return the condition on the left of <code>and</code>.
+         */
+        public Condition getLeft() {
+            return left;
+        }
+
+        /**
+         * Returns the right operand.
+         *
+         * @return the condition on the right of <code>and</code>.
+         */
+        public Condition getRight() {
+            return right;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Arrays.<AST>asList(left, right);
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitAnd(this);
+        }
+    }
+
+    /**
+     * A disjunction: &lt;Cond&gt; <code>or</code> &lt;Conj&gt;.
+     */
+    public static final class Or extends Condition {
+        private final Condition left;
+        private final Condition right;
+
+        public Or(Condition left, Condition right) {
+            super(Kind.OR);
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * Returns the left operand.
+         *
+         * @return the condition on the left of <code>or</code>.
+         */
+        public Condition getLeft() {
+            return left;
+        }
+
+        /**
+         * Returns the right operand.
+         *
+         * @return the condition on the right of <code>or</code>.
+         */
+        public Condition getRight() {
+            return right;
+        }
+
+        @Override
+        public List<AST> getChildren() {
+            return Arrays.<AST>asList(left, right);
+        }
+
+        @Override
+        public <R> R accept(ASTVisitor<R> visitor) {
+            return visitor.visitOr(this);
+        }
     }
 }
@@ -0,0 +1,315 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the {@link AST AST} of a program directly from the derivation, without creating its parse tree.
+ *
+ * The builder keeps a single stack of items: AST nodes, and the operators still to be combined. Each non-terminal
+ * being derived remembers where its items start on this stack. When a rule ends, the items of its non-terminal are
+ * replaced by the node they make. The non-terminals which only continue a list (&lt;Instruction&gt;,
+ * &lt;InstListTail&gt;, &lt;ExprArith'&gt;, &lt;Prod'&gt;, &lt;Cond'&gt;, &lt;Conj'&gt;, &lt;Comp&gt; and &lt;IfTail&gt;)
+ * leave their items to their parent, so long lists of instructions or of operands are combined once, in linear time.
+ * Only the tokens which carry information (names, numbers and operators) are kept as items.
+ *
+ * Given an {@link ExpressionTable ExpressionTable}, the builder interns each arithmetic expression as soon as it is
+ * made, so that identical expressions of the program are a single shared node.
+ */
+public class ASTBuilder implements TreeBuilder {
+    /**
+     * Initial capacity of the stacks.
+     */
+    private static final int INITIAL_DEPTH = 64;
+
+    /**
+     * Whether the items of a non-terminal (indexed by ordinal) are left to its parent instead of making a node.
+     */
+    private static final boolean[] SPLICED = new boolean[NonTerminal.values().length];
+
+    static {
+        for (NonTerminal variable : Arrays.asList(
+                NonTerminal.Instruction,
+                NonTerminal.InstListTail,
+                NonTerminal.Comp,
+                NonTerminal.ExprArithPrime,
+                NonTerminal.ProdPrime,
+                NonTerminal.IfTail,
+                NonTerminal.CondPrime,
+                NonTerminal.ConjPrime)) {
+            SPLICED[variable.ordinal()] = true;
+        }
+    }
+
+    /**
+     * A chain of unary minuses applied to an operand, not yet turned into a node.
+     *
+     * The code generator has always cancelled the minuses of <code>- - x</code> by pairs (but not those of
+     * <code>-(-x)</code>), so the minuses of an &lt;Atom&gt; are counted until the atom is used by a &lt;Prod&gt;.
+     */
+    private static class Negation {
+        /** Number of minuses. */
+        int count;
+        /** The negated operand. */
+        AST.Expression operand;
+    }
+
+    /**
+     * Non-terminals whose rule is being derived, the innermost being at index depth-1.
+     */
+    private NonTerminal[] variables = new NonTerminal[INITIAL_DEPTH];
+    /**
+     * Index in {@link #items items} of the first item of the non-terminal with the same index.
+     */
+    private int[] bases = new int[INITIAL_DEPTH];
+    /**
+     * Number of non-terminals being derived.
+     */
+    private int depth = 0;
+    /**
+     * Items not combined yet: AST nodes, Negations and the LexicalUnits of the operators.
+     */
+    private Object[] items = new Object[INITIAL_DEPTH];
+    /**
+     * Number of items.
+     */
+    private int size = 0;
+    /**
+     * The AST, once the start symbol is exited.
+     */
+    private AST.Program program;
+    /**
+     * The table sharing identical expressions, null to build a tree.
+     */
+    private final ExpressionTable expressions;
+
+    /**
+     * Creates a builder of ASTs whose expressions are trees.
+     */
+    public ASTBuilder() {
+        this(null);
+    }
+
+    /**
+     * Creates a builder of ASTs.
+     *
+     * @param expressions the table sharing identical expressions, or null to keep a node per expression of the source.
+     */
+    public ASTBuilder(ExpressionTable expressions) {
+        this.expressions = expressions;
+    }
+
+    @Override
+    public void enter(NonTerminal variable) {
+        if (depth == variables.length) {
+            variables = Arrays.copyOf(variables, 2 * depth);
+            bases = Arrays.copyOf(bases, 2 * depth);
+        }
+        variables[depth] = variable;
+        bases[depth] = size;
+        depth++;
+    }
+
+    @Override
+    public void leaf(Symbol token) {
+        switch (token.getType()) {
+            case VARNAME:
+                push(share(new AST.Var((Identifier) token.getValue())));
+                break;
+            case NUMBER:
+                push(share(new AST.Const((Integer) token.getValue())));
+                break;
+            case PLUS:
+            case MINUS:
+            case TIMES:
+            case DIVIDE:
+            case EQUAL:
+            case SMALLER:
+            case AND:
+            case OR:
+                push(token.getType());
+                break;
+            default:
+                // Keywords, parentheses, brackets and separators only structure the text
+                break;
+        }
+    }
+
+    @Override
+    public void epsilon() {
+        // ε-rules leave no trace in the AST
+    }
+
+    @Override
+    public void exit() {
+        depth--;
+        NonTerminal variable = variables[depth];
+        if (SPLICED[variable.ordinal()]) {
+            return;
+        }
+        int base = bases[depth];
+        Object node = reduce(variable, base);
+        Arrays.fill(items, base, size, null);
+        size = base;
+        if (variable == NonTerminal.Program) {
+            program = (AST.Program) node;
+        } else {
+            push(node);
+        }
+    }
+
+    /**
+     * Returns the AST, once the start symbol is exited.
+     *
+     * @return the root of the AST of the parsed program.
+     */
+    public AST.Program getProgram() {
+        return program;
+    }
+
+    /**
+     * Returns the statements built outside of any rule, when the builder is only given the derivations of some
+     * &lt;Instruction&gt;s, as done by {@link ParallelASTBuilder ParallelASTBuilder}.
+     *
+     * @return the statements of the instructions, in order.
+     */
+    public List<AST.Statement> getStatements() {
+        List<AST.Statement> statements = new ArrayList<AST.Statement>(size);
+        for (int i = 0; i < size; i++) {
+            statements.add((AST.Statement) items[i]);
+        }
+        return statements;
+    }
+
+    /**
+     * Pushes an item.
+     *
+     * @param item the node or operator.
+     */
+    private void push(Object item) {
+        if (size == items.length) {
+            items = Arrays.copyOf(items, 2 * size);
+        }
+        items[size++] = item;
+    }
+
+    /**
+     * Combines the items of a non-terminal whose rule ended.
+     *
+     * @param variable the non-terminal.
+     * @param base the index of its first item.
+     * @return the node of the non-terminal (a Negation for an &lt;Atom&gt; starting with minuses).
+     */
+    private Object reduce(NonTerminal variable, int base) {
+        switch (variable) {
+            case Program:
+                return new AST.Program((AST.Block) items[base]);
+            case Code:
+                return size == base ? new AST.Block(new ArrayList<AST.Statement>()) : items[base];
+            case InstList:
+                List<AST.Statement> statements = new ArrayList<AST.Statement>(size - base);
+                for (int i = base; i < size; i++) {
+                    statements.add((AST.Statement) items[i]);
+                }
+                return new AST.Block(statements);
+            case Assign:
+                return new AST.Assign((AST.Var) items[base], (AST.Expression) items[base + 1]);
+            case ExprArith:
+            case Prod:
+                AST.Expression expression = operand(items[base]);
+                for (int i = base + 1; i < size; i += 2) {
+                    expression = share(new AST.BinOp(operator((LexicalUnit) items[i]), expression, operand(items[i + 1])));
+                }
+                return expression;
+            case Atom:
+                if (items[base] == LexicalUnit.MINUS) {
+                    Object atom = items[base + 1];
+                    Negation negation;
+                    if (atom instanceof Negation) {
+                        negation = (Negation) atom;
+                    } else {
+                        negation = new Negation();
+                        negation.operand = (AST.Expression) atom;
+                    }
+                    negation.count++;
+                    return negation;
+                }
+                return items[base];
+            case If:
+                return new AST.If((AST.Condition) items[base], (AST.Statement) items[base + 1],
+                        size - base > 2 ? (AST.Statement) items[base + 2] : null);
+            case Cond:
+                AST.Condition disjunction = (AST.Condition) items[base];
+                for (int i = base + 2; i < size; i += 2) {
+                    disjunction = new AST.Or(disjunction, (AST.Condition) items[i]);
+                }
+                return disjunction;
+            case Conj:
+                AST.Condition conjunction = (AST.Condition) items[base];
+                for (int i = base + 2; i < size; i += 2) {
+                    conjunction = new AST.And(conjunction, (AST.Condition) items[i]);
+                }
+                return conjunction;
+            case SimpleCond:
+                if (size - base == 1) {
+                    return items[base];
+                }
+                AST.Comparison comparison = items[base + 1] == LexicalUnit.EQUAL ? AST.Comparison.EQUAL : AST.Comparison.SMALLER;
+                return new AST.Compare(comparison, (AST.Expression) items[base], (AST.Expression) items[base + 2]);
+            case While:
+                return new AST.While((AST.Condition) items[base], (AST.Statement) items[base + 1]);
+            case Print:
+                return new AST.Print((AST.Var) items[base]);
+            case Read:
+                return new AST.Read((AST.Var) items[base]);
+            default:
+                throw new IllegalStateException("Unexpected non-terminal " + variable);
+        }
+    }
+
+    /**
+     * Turns an &lt;Atom&gt; or a &lt;Prod&gt; into an operand, applying the pending minuses of an atom.
+     *
+     * @param item the item of the atom or product.
+     * @return the expression.
+     */
+    private AST.Expression operand(Object item) {
+        if (item instanceof Negation) {
+            Negation negation = (Negation) item;
+            return negation.count % 2 == 1 ? share(new AST.UnaryMinus(negation.operand)) : negation.operand;
+        }
+        return (AST.Expression) item;
+    }
+
+    /**
+     * Returns the shared expression identical to a new one, when expressions are shared.
+     *
+     * @param expression the new expression, whose operands are shared.
+     * @param <E> the class of the expression.
+     * @return the shared expression, or the given one if expressions are not shared.
+     */
+    @SuppressWarnings("unchecked")
+    private <E extends AST.Expression> E share(E expression) {
+        return expressions == null ? expression : (E) expressions.intern(expression);
+    }
+
+    /**
+     * Returns the arithmetic operator of a token.
+     *
+     * @param unit the type of the token.
+     * @return the operator.
+     */
+    private static AST.Operator operator(LexicalUnit unit) {
+        switch (unit) {
+            case PLUS:
+                return AST.Operator.ADD;
+            case MINUS:
+                return AST.Operator.SUB;
+            case TIMES:
+                return AST.Operator.MUL;
+            case DIVIDE:
+                return AST.Operator.DIV;
+            default:
+                throw new IllegalStateException("Unexpected operator " + unit);
+        }
+    }
+}
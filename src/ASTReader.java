@@ -0,0 +1,262 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads an {@link AST AST} written by {@link ASTWriter ASTWriter}.
+ *
+ * The file is mapped in memory with {@link FileChannel#map FileChannel.map} (or read into a buffer at once when it
+ * cannot be mapped), and decoded in a single pass: the nodes come in postorder, so each node pops its children from
+ * a stack of nodes. The identifiers are interned in a new {@link IdentifierTable IdentifierTable} in the order of the
+ * table of the file, which gives them back their ids.
+ */
+public class ASTReader {
+    /**
+     * All the kinds of nodes, indexed by ordinal.
+     */
+    private static final AST.Kind[] KINDS = AST.Kind.values();
+    /**
+     * All the arithmetic operators, indexed by ordinal.
+     */
+    private static final AST.Operator[] OPERATORS = AST.Operator.values();
+    /**
+     * All the comparisons, indexed by ordinal.
+     */
+    private static final AST.Comparison[] COMPARISONS = AST.Comparison.values();
+
+    /**
+     * The encoded AST.
+     */
+    private final ByteBuffer bytes;
+    /**
+     * The table sharing identical expressions, null to keep the expressions as they were written.
+     */
+    private final ExpressionTable expressions;
+
+    /**
+     * Creates a reader of an encoded AST.
+     *
+     * @param bytes the encoded AST, from its first byte.
+     * @param expressions the table sharing identical expressions, or null.
+     */
+    private ASTReader(ByteBuffer bytes, ExpressionTable expressions) {
+        this.bytes = bytes;
+        this.expressions = expressions;
+    }
+
+    /**
+     * Checks whether a file starts like a file written by {@link ASTWriter ASTWriter}.
+     *
+     * @param path the path of the file.
+     * @return true iff the file starts with the magic bytes of the format.
+     * @throws IOException if the file cannot be read.
+     */
+    public static boolean isCachedAST(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(ASTWriter.MAGIC.length);
+            while (start.hasRemaining() && channel.read(start) >= 0) {
+                // Reads until the buffer is full or the file ends
+            }
+            return !start.hasRemaining() && start.flip().equals(ByteBuffer.wrap(ASTWriter.MAGIC));
+        }
+    }
+
+    /**
+     * Reads the AST of a program from a file.
+     *
+     * @param path the path of the file.
+     * @param expressions the table in which the expressions are interned, or null to keep them as they were written.
+     * @return the AST of the program.
+     * @throws IOException if the file cannot be read or is not a valid AST of the supported version.
+     */
+    public static AST.Program read(String path, ExpressionTable expressions) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("AST file too large: " + path);
+            }
+            ByteBuffer bytes;
+            try {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } catch (UnsupportedOperationException | IOException e) {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining() && channel.read(bytes) >= 0) {
+                    // Reads the whole file
+                }
+                bytes.flip();
+            }
+            return fromBytes(bytes, expressions);
+        }
+    }
+
+    /**
+     * Decodes the AST of a program.
+     *
+     * @param bytes the encoded AST, from its first byte.
+     * @param expressions the table in which the expressions are interned, or null to keep them as they were written.
+     * @return the AST of the program.
+     * @throws IOException if the bytes are not a valid AST of the supported version.
+     */
+    public static AST.Program fromBytes(ByteBuffer bytes, ExpressionTable expressions) throws IOException {
+        try {
+            return new ASTReader(bytes, expressions).readProgram();
+        } catch (RuntimeException e) {
+            // Truncated buffers, indices out of the tables and nodes of unexpected classes
+            throw new IOException("Corrupted AST file: " + e, e);
+        }
+    }
+
+    /**
+     * Reads the header, the tables and the nodes of a program.
+     *
+     * @return the AST of the program.
+     * @throws IOException if the header is not the one of the supported version.
+     */
+    private AST.Program readProgram() throws IOException {
+        for (byte expected : ASTWriter.MAGIC) {
+            if (!bytes.hasRemaining() || bytes.get() != expected) {
+                throw new IOException("Not an AST file");
+            }
+        }
+        int version = readVarint();
+        if (version != ASTWriter.VERSION) {
+            throw new IOException("Unsupported AST file version " + version + ", expected " + ASTWriter.VERSION);
+        }
+        IdentifierTable table = new IdentifierTable();
+        Identifier[] identifiers = new Identifier[readVarint()];
+        for (int i = 0; i < identifiers.length; i++) {
+            byte[] name = new byte[readVarint()];
+            bytes.get(name);
+            identifiers[i] = table.intern(new String(name, StandardCharsets.UTF_8));
+        }
+        int[] literals = new int[readVarint()];
+        for (int i = 0; i < literals.length; i++) {
+            int zigzag = readVarint();
+            literals[i] = (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        int count = readVarint();
+        // Nodes in the order they were written, for the references
+        AST[] nodes = new AST[count];
+        int written = 0;
+        List<AST> stack = new ArrayList<AST>();
+        for (int i = 0; i < count; i++) {
+            int code = readVarint();
+            if (code == ASTWriter.REFERENCE) {
+                stack.add(nodes[readVarint()]);
+                continue;
+            }
+            AST node;
+            switch (KINDS[code]) {
+                case PROGRAM:
+                    node = new AST.Program((AST.Block) pop(stack));
+                    break;
+                case BLOCK:
+                    int size = readVarint();
+                    List<AST.Statement> statements = new ArrayList<AST.Statement>(size);
+                    for (AST statement : stack.subList(stack.size() - size, stack.size())) {
+                        statements.add((AST.Statement) statement);
+                    }
+                    stack.subList(stack.size() - size, stack.size()).clear();
+                    node = new AST.Block(statements);
+                    break;
+                case ASSIGN:
+                    AST.Expression value = (AST.Expression) pop(stack);
+                    node = new AST.Assign((AST.Var) pop(stack), value);
+                    break;
+                case IF:
+                    AST.Statement elseBranch = readVarint() != 0 ? (AST.Statement) pop(stack) : null;
+                    AST.Statement thenBranch = (AST.Statement) pop(stack);
+                    node = new AST.If((AST.Condition) pop(stack), thenBranch, elseBranch);
+                    break;
+                case WHILE:
+                    AST.Statement body = (AST.Statement) pop(stack);
+                    node = new AST.While((AST.Condition) pop(stack), body);
+                    break;
+                case PRINT:
+                    node = new AST.Print((AST.Var) pop(stack));
+                    break;
+                case READ:
+                    node = new AST.Read((AST.Var) pop(stack));
+                    break;
+                case BIN_OP:
+                    AST.Operator operator = OPERATORS[readVarint()];
+                    AST.Expression right = (AST.Expression) pop(stack);
+                    node = share(new AST.BinOp(operator, (AST.Expression) pop(stack), right));
+                    break;
+                case UNARY_MINUS:
+                    node = share(new AST.UnaryMinus((AST.Expression) pop(stack)));
+                    break;
+                case VAR:
+                    node = share(new AST.Var(identifiers[readVarint()]));
+                    break;
+                case CONST:
+                    node = share(new AST.Const(literals[readVarint()]));
+                    break;
+                case COMPARE:
+                    AST.Comparison comparison = COMPARISONS[readVarint()];
+                    AST.Expression rightComp = (AST.Expression) pop(stack);
+                    node = new AST.Compare(comparison, (AST.Expression) pop(stack), rightComp);
+                    break;
+                case AND:
+                    AST.Condition rightAnd = (AST.Condition) pop(stack);
+                    node = new AST.And((AST.Condition) pop(stack), rightAnd);
+                    break;
+                case OR:
+                    AST.Condition rightOr = (AST.Condition) pop(stack);
+                    node = new AST.Or((AST.Condition) pop(stack), rightOr);
+                    break;
+                default:
+                    throw new IOException("Unexpected node kind " + code);
+            }
+            nodes[written++] = node;
+            stack.add(node);
+        }
+        if (stack.size() != 1 || !(stack.get(0) instanceof AST.Program)) {
+            throw new IOException("Corrupted AST file: " + stack.size() + " nodes left");
+        }
+        return (AST.Program) stack.get(0);
+    }
+
+    /**
+     * Pops the last node of the stack.
+     *
+     * @param stack the nodes whose parent is not read yet.
+     * @return the last node.
+     */
+    private static AST pop(List<AST> stack) {
+        return stack.remove(stack.size() - 1);
+    }
+
+    /**
+     * Returns the shared expression identical to a new one, when expressions are shared.
+     *
+     * @param expression the new expression, whose operands are shared.
+     * @return the shared expression, or the given one if expressions are not shared.
+     */
+    private AST.Expression share(AST.Expression expression) {
+        return expressions == null ? expression : expressions.intern(expression);
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @return the value, as an unsigned integer.
+     * @throws IOException if the varint is longer than five bytes.
+     */
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = bytes.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -0,0 +1,484 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Simplifies the {@link AST AST} of a program with algebraic identities, before the code is generated.
+ *
+ * The expressions made of constants only are computed (<code>2*3+4</code> becomes <code>10</code>), and the
+ * operations whose result is one of their operands or a constant are removed: <code>x+0</code>, <code>0+x</code>,
+ * <code>x-0</code>, <code>x*1</code>, <code>1*x</code>, <code>x/1</code>, <code>x-x</code>, <code>0*x</code>,
+ * <code>x*0</code> and <code>-(-x)</code>. Adding or subtracting a negation becomes a subtraction or an addition.
+ * A comparison of constants is a constant condition, and <code>x = x</code> and <code>x &lt; x</code> become the
+ * constant conditions <code>0 = 0</code> (true) and <code>0 &lt; 0</code> (false). Constant conditions are removed
+ * from conjunctions and disjunctions: <code>true and c</code> is <code>c</code>, <code>false and c</code> is false,
+ * and so on. An <code>if</code> on a constant condition is replaced by the branch it takes (an empty block if there
+ * is none), and a <code>while</code> on a false condition by an empty block.
+ *
+ * An expression is only dropped when computing it cannot fail, that is when it divides by constants other than 0
+ * and -1 only, so that the program still stops on the same division by zero.
+ *
+ * The nodes are simplified in postorder, with an explicit stack, each one after its operands. A rule only returns
+ * an operand already simplified, a constant, or a node which is simplified again at once, so a single pass reaches
+ * the fixpoint in a time linear in the size of the AST. A node shared by several parents is simplified once, and the
+ * nodes created are shared too when an {@link ExpressionTable ExpressionTable} is given.
+ */
+public class ASTSimplifier {
+    /**
+     * The table of the shared expressions, null if the expressions are not shared.
+     */
+    private final ExpressionTable expressions;
+    /**
+     * The simplified version of each node already simplified.
+     */
+    private final Map<AST, AST> simplified = new IdentityHashMap<AST, AST>();
+    /**
+     * Whether computing each simplified expression or condition cannot fail.
+     */
+    private final Map<AST, Boolean> safe = new IdentityHashMap<AST, Boolean>();
+    /**
+     * Number of rules applied.
+     */
+    private int rewrites = 0;
+
+    /**
+     * Creates a simplifier.
+     *
+     * @param expressions the table of the shared expressions of the AST, or null if they are not shared.
+     */
+    public ASTSimplifier(ExpressionTable expressions) {
+        this.expressions = expressions;
+    }
+
+    /**
+     * Simplifies a program.
+     *
+     * @param program the AST of the program, which is not modified.
+     * @return the simplified AST, sharing the nodes which did not change with the original one.
+     */
+    public AST.Program simplify(AST.Program program) {
+        // Nodes still to be simplified, a node whose children are already pushed being preceded by null
+        List<AST> stack = new ArrayList<AST>();
+        stack.add(program);
+        while (!stack.isEmpty()) {
+            AST node = stack.remove(stack.size() - 1);
+            if (node == null) {
+                node = stack.remove(stack.size() - 1);
+                AST result = rebuild(node);
+                simplified.put(node, result);
+                checkSafety(result);
+            } else if (!simplified.containsKey(node)) {
+                stack.add(node);
+                stack.add(null);
+                List<AST> children = node.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.add(children.get(i));
+                }
+            }
+        }
+        return (AST.Program) simplified.get(program);
+    }
+
+    /**
+     * Returns the number of rules applied by the simplifications done so far.
+     *
+     * @return the number of rewritten nodes.
+     */
+    public int getRewrites() {
+        return rewrites;
+    }
+
+    /**
+     * Returns the simplified version of a node.
+     *
+     * @param node a node already simplified.
+     * @param <T> the class of the node.
+     * @return its simplified version.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends AST> T get(T node) {
+        return node == null ? null : (T) simplified.get(node);
+    }
+
+    /**
+     * Simplifies a node whose children are simplified.
+     *
+     * @param node the node.
+     * @return the simplified node, which is the node itself when nothing changed.
+     */
+    private AST rebuild(AST node) {
+        switch (node.getKind()) {
+            case PROGRAM: {
+                AST.Program program = (AST.Program) node;
+                AST.Block body = get(program.getBody());
+                return body == program.getBody() ? program : new AST.Program(body);
+            }
+            case BLOCK: {
+                AST.Block block = (AST.Block) node;
+                List<AST.Statement> statements = new ArrayList<AST.Statement>(block.getStatements().size());
+                boolean changed = false;
+                for (AST.Statement statement : block.getStatements()) {
+                    AST.Statement simple = get(statement);
+                    statements.add(simple);
+                    changed |= simple != statement;
+                }
+                return changed ? new AST.Block(statements) : block;
+            }
+            case ASSIGN: {
+                AST.Assign assign = (AST.Assign) node;
+                AST.Expression value = get(assign.getValue());
+                return value == assign.getValue() ? assign : new AST.Assign(assign.getTarget(), value);
+            }
+            case IF: {
+                AST.If ifNode = (AST.If) node;
+                AST.Condition condition = get(ifNode.getCondition());
+                AST.Statement thenBranch = get(ifNode.getThenBranch());
+                AST.Statement elseBranch = get(ifNode.getElseBranch());
+                // A constant condition cannot fail, only the branch it takes is kept
+                Boolean value = truth(condition);
+                if (value != null) {
+                    rewrites++;
+                    AST.Statement taken = value ? thenBranch : elseBranch;
+                    return taken != null ? taken : new AST.Block(new ArrayList<AST.Statement>());
+                }
+                if (condition == ifNode.getCondition() && thenBranch == ifNode.getThenBranch() && elseBranch == ifNode.getElseBranch()) {
+                    return ifNode;
+                }
+                return new AST.If(condition, thenBranch, elseBranch);
+            }
+            case WHILE: {
+                AST.While whileNode = (AST.While) node;
+                AST.Condition condition = get(whileNode.getCondition());
+                AST.Statement body = get(whileNode.getBody());
+                if (Boolean.FALSE.equals(truth(condition))) {
+                    rewrites++;
+                    return new AST.Block(new ArrayList<AST.Statement>());
+                }
+                if (condition == whileNode.getCondition() && body == whileNode.getBody()) {
+                    return whileNode;
+                }
+                return new AST.While(condition, body);
+            }
+            case BIN_OP: {
+                AST.BinOp binOp = (AST.BinOp) node;
+                return simplifyBinOp(binOp, binOp.getOperator(), get(binOp.getLeft()), get(binOp.getRight()));
+            }
+            case UNARY_MINUS: {
+                AST.UnaryMinus unaryMinus = (AST.UnaryMinus) node;
+                AST.Expression operand = get(unaryMinus.getOperand());
+                if (operand.getKind() == AST.Kind.CONST) {
+                    rewrites++;
+                    return constant(-((AST.Const) operand).getValue());
+                }
+                if (operand.getKind() == AST.Kind.UNARY_MINUS) {
+                    rewrites++;
+                    return ((AST.UnaryMinus) operand).getOperand();
+                }
+                return operand == unaryMinus.getOperand() ? unaryMinus : share(new AST.UnaryMinus(operand));
+            }
+            case COMPARE: {
+                AST.Compare compare = (AST.Compare) node;
+                AST.Expression left = get(compare.getLeft());
+                AST.Expression right = get(compare.getRight());
+                // A comparison of constants is already a constant condition (see truth)
+                if (!(left.getKind() == AST.Kind.CONST && right.getKind() == AST.Kind.CONST) && same(left, right) && isSafe(left)) {
+                    rewrites++;
+                    return condition(compare.getComparison() == AST.Comparison.EQUAL);
+                }
+                if (left == compare.getLeft() && right == compare.getRight()) {
+                    return compare;
+                }
+                return new AST.Compare(compare.getComparison(), left, right);
+            }
+            case AND: {
+                AST.And and = (AST.And) node;
+                AST.Condition left = get(and.getLeft());
+                AST.Condition right = get(and.getRight());
+                AST.Condition result = simplifyJunction(false, left, right);
+                if (result != null) {
+                    return result;
+                }
+                return left == and.getLeft() && right == and.getRight() ? and : new AST.And(left, right);
+            }
+            case OR: {
+                AST.Or or = (AST.Or) node;
+                AST.Condition left = get(or.getLeft());
+                AST.Condition right = get(or.getRight());
+                AST.Condition result = simplifyJunction(true, left, right);
+                if (result != null) {
+                    return result;
+                }
+                return left == or.getLeft() && right == or.getRight() ? or : new AST.Or(left, right);
+            }
+            default:
+                // Variables, constants, and the statements whose only child is a variable
+                return node;
+        }
+    }
+
+    /**
+     * Simplifies a binary operation on simplified operands.
+     *
+     * @param original the original node, returned if nothing changes, or null for a node to create.
+     * @param operator the operator.
+     * @param left the simplified left operand.
+     * @param right the simplified right operand.
+     * @return the simplified operation.
+     */
+    private AST.Expression simplifyBinOp(AST.BinOp original, AST.Operator operator, AST.Expression left, AST.Expression right) {
+        Integer a = left.getKind() == AST.Kind.CONST ? ((AST.Const) left).getValue() : null;
+        Integer b = right.getKind() == AST.Kind.CONST ? ((AST.Const) right).getValue() : null;
+        if (a != null && b != null) {
+            switch (operator) {
+                case ADD:
+                    rewrites++;
+                    return constant(a + b);
+                case SUB:
+                    rewrites++;
+                    return constant(a - b);
+                case MUL:
+                    rewrites++;
+                    return constant(a * b);
+                default:
+                    if (b != 0 && !(a == Integer.MIN_VALUE && b == -1)) {
+                        rewrites++;
+                        return constant(a / b);
+                    }
+                    break;
+            }
+        }
+        switch (operator) {
+            case ADD:
+                if (isConstant(left, 0)) {
+                    rewrites++;
+                    return right;
+                }
+                if (isConstant(right, 0)) {
+                    rewrites++;
+                    return left;
+                }
+                if (right.getKind() == AST.Kind.UNARY_MINUS) {
+                    // x + -y is x - y
+                    rewrites++;
+                    return simplifyBinOp(null, AST.Operator.SUB, left, ((AST.UnaryMinus) right).getOperand());
+                }
+                break;
+            case SUB:
+                if (isConstant(right, 0)) {
+                    rewrites++;
+                    return left;
+                }
+                if (same(left, right) && isSafe(left)) {
+                    rewrites++;
+                    return constant(0);
+                }
+                if (right.getKind() == AST.Kind.UNARY_MINUS) {
+                    // x - -y is x + y
+                    rewrites++;
+                    return simplifyBinOp(null, AST.Operator.ADD, left, ((AST.UnaryMinus) right).getOperand());
+                }
+                break;
+            case MUL:
+                if (isConstant(left, 1)) {
+                    rewrites++;
+                    return right;
+                }
+                if (isConstant(right, 1)) {
+                    rewrites++;
+                    return left;
+                }
+                if ((isConstant(left, 0) && isSafe(right)) || (isConstant(right, 0) && isSafe(left))) {
+                    rewrites++;
+                    return constant(0);
+                }
+                break;
+            default:
+                if (isConstant(right, 1)) {
+                    rewrites++;
+                    return left;
+                }
+                break;
+        }
+        if (original != null && left == original.getLeft() && right == original.getRight()) {
+            return original;
+        }
+        return share(new AST.BinOp(operator, left, right));
+    }
+
+    /**
+     * Simplifies a conjunction or a disjunction of simplified conditions with a constant operand.
+     *
+     * @param disjunction true for an <code>or</code>, false for an <code>and</code>.
+     * @param left the simplified left operand.
+     * @param right the simplified right operand.
+     * @return the simplified condition, or null if no operand is constant.
+     */
+    private AST.Condition simplifyJunction(boolean disjunction, AST.Condition left, AST.Condition right) {
+        Boolean a = truth(left);
+        Boolean b = truth(right);
+        // The neutral operand is dropped, the absorbing one only if the other one cannot fail
+        if (a != null && a != disjunction) {
+            rewrites++;
+            return right;
+        }
+        if (b != null && b != disjunction) {
+            rewrites++;
+            return left;
+        }
+        if ((a != null && isSafe(right)) || (b != null && isSafe(left))) {
+            rewrites++;
+            return a != null ? left : right;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the value of a constant condition.
+     *
+     * @param condition a simplified condition.
+     * @return its value if it compares two constants, null otherwise.
+     */
+    private static Boolean truth(AST.Condition condition) {
+        if (condition.getKind() != AST.Kind.COMPARE) {
+            return null;
+        }
+        AST.Compare compare = (AST.Compare) condition;
+        if (compare.getLeft().getKind() != AST.Kind.CONST || compare.getRight().getKind() != AST.Kind.CONST) {
+            return null;
+        }
+        int a = ((AST.Const) compare.getLeft()).getValue();
+        int b = ((AST.Const) compare.getRight()).getValue();
+        return compare.getComparison() == AST.Comparison.EQUAL ? a == b : a < b;
+    }
+
+    /**
+     * Returns a constant condition.
+     *
+     * @param value the value of the condition.
+     * @return <code>0 = 0</code> if the value is true, <code>0 &lt; 0</code> otherwise.
+     */
+    private AST.Condition condition(boolean value) {
+        AST.Expression zero = constant(0);
+        return new AST.Compare(value ? AST.Comparison.EQUAL : AST.Comparison.SMALLER, zero, zero);
+    }
+
+    /**
+     * Returns a constant expression, shared if the expressions are.
+     *
+     * @param value the value of the constant.
+     * @return the constant node.
+     */
+    private AST.Expression constant(int value) {
+        return share(new AST.Const(value));
+    }
+
+    /**
+     * Returns the shared version of a new expression, whose operands are simplified.
+     *
+     * @param expression the new expression.
+     * @return the expression of the table equal to it, or itself if the expressions are not shared.
+     */
+    private AST.Expression share(AST.Expression expression) {
+        AST.Expression shared = expressions != null ? expressions.intern(expression) : expression;
+        simplified.put(shared, shared);
+        checkSafety(shared);
+        return shared;
+    }
+
+    /**
+     * Checks whether an expression is a given constant.
+     *
+     * @param expression an expression.
+     * @param value the value of the constant.
+     * @return true iff the expression is the constant.
+     */
+    private static boolean isConstant(AST.Expression expression, int value) {
+        return expression.getKind() == AST.Kind.CONST && ((AST.Const) expression).getValue() == value;
+    }
+
+    /**
+     * Checks whether computing a simplified expression or condition cannot fail, that is whether it only divides by
+     * constants other than 0 and -1.
+     *
+     * @param node a simplified expression or condition.
+     * @return true iff its computation cannot stop the program.
+     */
+    private boolean isSafe(AST node) {
+        return safe.getOrDefault(node, Boolean.FALSE);
+    }
+
+    /**
+     * Records whether computing a simplified expression or condition cannot fail, from its operation and its
+     * children, which were checked before.
+     *
+     * @param node a simplified expression or condition, or a statement which is ignored.
+     */
+    private void checkSafety(AST node) {
+        if (node instanceof AST.Statement || node instanceof AST.Program || safe.containsKey(node)) {
+            return;
+        }
+        boolean result = true;
+        if (node.getKind() == AST.Kind.BIN_OP && ((AST.BinOp) node).getOperator() == AST.Operator.DIV) {
+            AST.Expression divisor = ((AST.BinOp) node).getRight();
+            result = divisor.getKind() == AST.Kind.CONST && !isConstant(divisor, 0) && !isConstant(divisor, -1);
+        }
+        for (AST child : node.getChildren()) {
+            result &= isSafe(child);
+        }
+        safe.put(node, result);
+    }
+
+    /**
+     * Checks whether two expressions are equal, as values of the same tree or as shared nodes.
+     *
+     * @param a an expression.
+     * @param b another expression.
+     * @return true iff both expressions have the same structure, operators, variables and constants.
+     */
+    private static boolean same(AST.Expression a, AST.Expression b) {
+        if (a == b) {
+            return true;
+        }
+        // Pairs of nodes still to compare
+        List<AST> pending = new ArrayList<AST>();
+        pending.add(a);
+        pending.add(b);
+        while (!pending.isEmpty()) {
+            AST y = pending.remove(pending.size() - 1);
+            AST x = pending.remove(pending.size() - 1);
+            if (x == y) {
+                continue;
+            }
+            if (x.getKind() != y.getKind() || ((AST.Expression) x).getHash() != ((AST.Expression) y).getHash()) {
+                return false;
+            }
+            switch (x.getKind()) {
+                case VAR:
+                    if (((AST.Var) x).getIdentifier() != ((AST.Var) y).getIdentifier()) {
+                        return false;
+                    }
+                    break;
+                case CONST:
+                    if (((AST.Const) x).getValue() != ((AST.Const) y).getValue()) {
+                        return false;
+                    }
+                    break;
+                case BIN_OP:
+                    if (((AST.BinOp) x).getOperator() != ((AST.BinOp) y).getOperator()) {
+                        return false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            List<AST> xs = x.getChildren();
+            List<AST> ys = y.getChildren();
+            for (int i = 0; i < xs.size(); i++) {
+                pending.add(xs.get(i));
+                pending.add(ys.get(i));
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * A pass over an {@link AST AST}, with one method per class of node.
+ *
+ * A node calls the method of its class from {@link AST#accept(ASTVisitor) accept}; the visitor decides whether and
+ * in which order the children are visited.
+ *
+ * @param <R> the type of the results of the visitor.
+ */
+public interface ASTVisitor<R> {
+    /**
+     * Visits the whole program.
+     *
+     * @param program the node.
+     * @return the result of the visitor.
+     */
+    R visitProgram(AST.Program program);
+
+    /**
+     * Visits a list of instructions.
+     *
+     * @param block the node.
+     * @return the result of the visitor.
+     */
+    R visitBlock(AST.Block block);
+
+    /**
+     * Visits an assignment.
+     *
+     * @param assign the node.
+     * @return the result of the visitor.
+     */
+    R visitAssign(AST.Assign assign);
+
+    /**
+     * Visits a conditional.
+     *
+     * @param ifNode the node.
+     * @return the result of the visitor.
+     */
+    R visitIf(AST.If ifNode);
+
+    /**
+     * Visits a loop.
+     *
+     * @param whileNode the node.
+     * @return the result of the visitor.
+     */
+    R visitWhile(AST.While whileNode);
+
+    /**
+     * Visits an output.
+     *
+     * @param print the node.
+     * @return the result of the visitor.
+     */
+    R visitPrint(AST.Print print);
+
+    /**
+     * Visits an input.
+     *
+     * @param read the node.
+     * @return the result of the visitor.
+     */
+    R visitRead(AST.Read read);
+
+    /**
+     * Visits a binary arithmetic operation.
+     *
+     * @param binOp the node.
+     * @return the result of the visitor.
+     */
+    R visitBinOp(AST.BinOp binOp);
+
+    /**
+     * Visits a negation.
+     *
+     * @param unaryMinus the node.
+     * @return the result of the visitor.
+     */
+    R visitUnaryMinus(AST.UnaryMinus unaryMinus);
+
+    /**
+     * Visits a variable.
+     *
+     * @param var the node.
+     * @return the result of the visitor.
+     */
+    R visitVar(AST.Var var);
+
+    /**
+     * Visits a constant.
+     *
+     * @param constant the node.
+     * @return the result of the visitor.
+     */
+    R visitConst(AST.Const constant);
+
+    /**
+     * Visits a comparison.
+     *
+     * @param compare the node.
+     * @return the result of the visitor.
+     */
+    R visitCompare(AST.Compare compare);
+
+    /**
+     * Visits a conjunction.
+     *
+     * @param and the node.
+     * @return the result of the visitor.
+     */
+    R visitAnd(AST.And and);
+
+    /**
+     * Visits a disjunction.
+     *
+     * @param or the node.
+     * @return the result of the visitor.
+     */
+    R visitOr(AST.Or or);
+}
@@ -0,0 +1,237 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the {@link AST AST} of a program in a compact binary format, so that it can be compiled again without
+ * scanning and parsing its source (see {@link ASTReader ASTReader}).
+ *
+ * All the numbers are unsigned LEB128 varints (seven bits per byte, the high bit set on all bytes but the last), the
+ * constants being zigzag-encoded first so that small negative values stay short. A file is made of:
+ * <ol>
+ * <li>the {@link #MAGIC magic} bytes <code>PMPA</code> and the {@link #VERSION version} of the format;</li>
+ * <li>the identifier table: the number of names, then each name as its length and its UTF-8 bytes, in the order of
+ * the ids of the identifiers;</li>
+ * <li>the literal pool: the number of distinct constants, then their values;</li>
+ * <li>the number of nodes, then the nodes in postorder. Each node is the ordinal of its {@link AST.Kind kind} followed
+ * by its attribute, if any: the number of statements of a block, 1 if a conditional has an else branch and 0
+ * otherwise, the ordinal of the operator of a binary operation or of a comparison, the index of the identifier of a
+ * variable, the index of the value of a constant. An inner node already written (when the AST shares expressions)
+ * is written again as the code {@link #REFERENCE REFERENCE} followed by the index of the node among the nodes written
+ * before, references excluded. Variables and constants are short enough to be written again in full.</li>
+ * </ol>
+ * The children of a node come right before it, so a reader rebuilds the tree with a stack and no recursion.
+ */
+public class ASTWriter {
+    /**
+     * The first bytes of a file written by this class.
+     */
+    public static final byte[] MAGIC = {'P', 'M', 'P', 'A'};
+    /**
+     * The version of the format, increased whenever it changes.
+     */
+    public static final int VERSION = 1;
+    /**
+     * Code of a reference to a node already written, following the codes of the kinds.
+     */
+    public static final int REFERENCE = AST.Kind.values().length;
+
+    /**
+     * Initial capacity of the buffer.
+     */
+    private static final int INITIAL_CAPACITY = 4096;
+
+    /**
+     * The bytes written so far.
+     */
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    /**
+     * Number of bytes written.
+     */
+    private int size = 0;
+
+    /**
+     * Writes the AST of a program in a file.
+     *
+     * @param program the AST to write.
+     * @param path the path of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(AST.Program program, String path) throws IOException {
+        Files.write(Paths.get(path), toBytes(program));
+    }
+
+    /**
+     * Encodes the AST of a program.
+     *
+     * @param program the AST to encode.
+     * @return the bytes of the encoded AST.
+     */
+    public static byte[] toBytes(AST.Program program) {
+        ASTWriter writer = new ASTWriter();
+        writer.writeProgram(program);
+        return Arrays.copyOf(writer.bytes, writer.size);
+    }
+
+    /**
+     * Writes the header, the tables and the nodes of a program.
+     *
+     * @param program the AST to write.
+     */
+    private void writeProgram(AST.Program program) {
+        // Distinct nodes in postorder, identifiers and constants are collected first to number them
+        List<AST> nodes = postorder(program);
+        List<Identifier> identifiers = new ArrayList<Identifier>();
+        Map<Identifier, Integer> identifierIndices = new IdentityHashMap<Identifier, Integer>();
+        List<Integer> literals = new ArrayList<Integer>();
+        Map<Integer, Integer> literalIndices = new HashMap<Integer, Integer>();
+        for (AST node : nodes) {
+            if (node.getKind() == AST.Kind.VAR) {
+                Identifier identifier = ((AST.Var) node).getIdentifier();
+                if (!identifierIndices.containsKey(identifier)) {
+                    identifierIndices.put(identifier, identifierIndices.size());
+                    identifiers.add(identifier);
+                }
+            } else if (node.getKind() == AST.Kind.CONST) {
+                int value = ((AST.Const) node).getValue();
+                if (!literalIndices.containsKey(value)) {
+                    literalIndices.put(value, literals.size());
+                    literals.add(value);
+                }
+            }
+        }
+        // The identifiers keep the order of their ids, so that they get the same ids when they are read
+        identifiers.sort(Comparator.comparingInt(Identifier::getId));
+        for (int i = 0; i < identifiers.size(); i++) {
+            identifierIndices.put(identifiers.get(i), i);
+        }
+
+        writeBytes(MAGIC);
+        writeVarint(VERSION);
+        writeVarint(identifiers.size());
+        for (Identifier identifier : identifiers) {
+            byte[] name = identifier.getName().getBytes(StandardCharsets.UTF_8);
+            writeVarint(name.length);
+            writeBytes(name);
+        }
+        writeVarint(literals.size());
+        for (int value : literals) {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+        writeVarint(nodes.size());
+        Map<AST, Integer> written = new IdentityHashMap<AST, Integer>();
+        int count = 0;
+        for (AST node : nodes) {
+            Integer index = written.get(node);
+            if (index != null) {
+                writeVarint(REFERENCE);
+                writeVarint(index);
+                continue;
+            }
+            if (!node.getChildren().isEmpty()) {
+                written.put(node, count);
+            }
+            count++;
+            writeVarint(node.getKind().ordinal());
+            switch (node.getKind()) {
+                case BLOCK:
+                    writeVarint(((AST.Block) node).getStatements().size());
+                    break;
+                case IF:
+                    writeVarint(((AST.If) node).getElseBranch() != null ? 1 : 0);
+                    break;
+                case BIN_OP:
+                    writeVarint(((AST.BinOp) node).getOperator().ordinal());
+                    break;
+                case COMPARE:
+                    writeVarint(((AST.Compare) node).getComparison().ordinal());
+                    break;
+                case VAR:
+                    writeVarint(identifierIndices.get(((AST.Var) node).getIdentifier()));
+                    break;
+                case CONST:
+                    writeVarint(literalIndices.get(((AST.Const) node).getValue()));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Lists the nodes of an AST in postorder, a shared inner node being listed each time it is met but its subtree
+     * only the first time.
+     *
+     * @param root the root of the AST.
+     * @return the nodes to write, in order.
+     */
+    private static List<AST> postorder(AST root) {
+        List<AST> nodes = new ArrayList<AST>();
+        Map<AST, Boolean> listed = new IdentityHashMap<AST, Boolean>();
+        // Nodes still to be listed, a node whose children are already pushed being preceded by null
+        List<AST> stack = new ArrayList<AST>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            AST node = stack.remove(stack.size() - 1);
+            if (node == null) {
+                node = stack.remove(stack.size() - 1);
+                listed.put(node, Boolean.TRUE);
+                nodes.add(node);
+            } else if (listed.containsKey(node) && !node.getChildren().isEmpty()) {
+                nodes.add(node);
+            } else {
+                stack.add(node);
+                stack.add(null);
+                List<AST> children = node.getChildren();
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.add(children.get(i));
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Appends bytes to the buffer.
+     *
+     * @param values the bytes to append.
+     */
+    private void writeBytes(byte[] values) {
+        ensureCapacity(values.length);
+        System.arraycopy(values, 0, bytes, size, values.length);
+        size += values.length;
+    }
+
+    /**
+     * Appends an unsigned varint to the buffer.
+     *
+     * @param value the value, read as an unsigned integer.
+     */
+    private void writeVarint(int value) {
+        ensureCapacity(5);
+        while ((value & ~0x7F) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    /**
+     * Grows the buffer so that it can hold more bytes.
+     *
+     * @param extra the number of bytes about to be appended.
+     */
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, size + extra));
+        }
+    }
+}
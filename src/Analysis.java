@@ -0,0 +1,26 @@
+/**
+ * An analysis of an {@link IR.Function IR.Function}, whose result is cached by a {@link PassManager PassManager} until
+ * a {@link Pass pass} changes the function without preserving it.
+ *
+ * An analysis is identified by its instance, usually a constant of the class of its result (like
+ * {@link Dominators#ANALYSIS Dominators.ANALYSIS}).
+ *
+ * @param <T> the type of the result of the analysis.
+ */
+public interface Analysis<T> {
+    /**
+     * Returns the name of the analysis, as shown in the report of the pass manager.
+     *
+     * @return a short lowercase name.
+     */
+    String getName();
+
+    /**
+     * Computes the analysis of a function.
+     *
+     * @param function a function whose edges are up to date.
+     * @param manager the pass manager, to get the other analyses the result depends on.
+     * @return the result of the analysis.
+     */
+    T compute(IR.Function function, PassManager manager);
+}
@@ -0,0 +1,363 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Removes the code of an {@link IR.Function IR.Function} which can never run or whose result is never used.
+ *
+ * <ol>
+ * <li>A conditional branch on a constant, or on a comparison of constants, (or to the same block twice) becomes an
+ * unconditional branch, the phis of the target it can no longer take forgetting the edge. The comparison, no longer
+ * used, is removed with the other unused instructions.</li>
+ * <li>The blocks which cannot be reached from the entry are removed, with the arms of the conditionals and the
+ * bodies of the loops on constant conditions.</li>
+ * <li>A block whose only predecessor always branches to it is merged into this predecessor, so that the chains of
+ * blocks left by the previous steps become a single block.</li>
+ * <li>The phis merging a single value are replaced by the value.</li>
+ * <li>The instructions without side effect whose result is never used are removed, with a worklist, so that the
+ * operands they were the only users of are removed in turn. This removes the computations of the values assigned
+ * and never read once the variables are in registers.</li>
+ * </ol>
+ * Removing the unused instructions never makes a phi trivial, so each step runs once. Reading an integer, printing
+ * it, and dividing by a value which may be 0 or -1 are side effects, and are kept.
+ */
+public class DeadCodeElimination implements Pass {
+    /**
+     * Whether the last run changed the control-flow graph.
+     */
+    private boolean controlFlowChanged;
+
+    @Override
+    public String getName() {
+        return "dce";
+    }
+
+    /**
+     * Removes the dead code of a function.
+     *
+     * @param function a function whose edges are up to date.
+     * @param manager the pass manager.
+     * @return true iff something was removed.
+     */
+    @Override
+    public boolean run(IR.Function function, PassManager manager) {
+        controlFlowChanged = foldBranches(function);
+        controlFlowChanged |= removeUnreachableBlocks(function);
+        controlFlowChanged |= mergeBlocks(function);
+        boolean changed = removeTrivialPhis(function);
+        changed |= removeUnusedInstructions(function);
+        return changed || controlFlowChanged;
+    }
+
+    /**
+     * The dominator tree and the loops are only kept when no branch and no block was removed.
+     */
+    @Override
+    public boolean preserves(Analysis<?> analysis) {
+        return (analysis == Dominators.ANALYSIS || analysis == Loops.ANALYSIS) && !controlFlowChanged;
+    }
+
+    /**
+     * Replaces the conditional branches which can only take one target by unconditional branches.
+     *
+     * @param function the function.
+     * @return true iff a branch was replaced.
+     */
+    private static boolean foldBranches(IR.Function function) {
+        boolean changed = false;
+        for (IR.Block block : function.getBlocks()) {
+            IR.Instruction terminator = block.getTerminator();
+            if (terminator == null || terminator.getOpcode() != IR.Opcode.COND_BR) {
+                continue;
+            }
+            IR.Block ifTrue = terminator.getBlocks().get(0);
+            IR.Block ifFalse = terminator.getBlocks().get(1);
+            IR.Constant condition = constantCondition(terminator.getOperand(0));
+            IR.Block target;
+            if (ifTrue == ifFalse) {
+                target = ifTrue;
+            } else if (condition != null) {
+                target = condition.getValue() != 0 ? ifTrue : ifFalse;
+                (target == ifTrue ? ifFalse : ifTrue).forgetPredecessor(block);
+            } else {
+                continue;
+            }
+            IR.Instruction branch = IR.Instruction.branch(target);
+            branch.setIndentation(terminator.getIndentation());
+            block.remove(terminator);
+            block.add(branch);
+            changed = true;
+        }
+        if (changed) {
+            function.updateEdges();
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the value of the condition of a branch when it does not depend on the execution.
+     *
+     * @param condition the condition of a conditional branch.
+     * @return the condition if it is a constant, its value if it compares (or combines) two constants, null otherwise.
+     */
+    private static IR.Constant constantCondition(IR.Value condition) {
+        if (condition instanceof IR.Constant) {
+            return (IR.Constant) condition;
+        }
+        if (!(condition instanceof IR.Instruction)) {
+            return null;
+        }
+        IR.Instruction instruction = (IR.Instruction) condition;
+        switch (instruction.getOpcode()) {
+            case ICMP_EQ:
+            case ICMP_SLT:
+            case AND:
+            case OR:
+                break;
+            default:
+                return null;
+        }
+        if (!(instruction.getOperand(0) instanceof IR.Constant) || !(instruction.getOperand(1) instanceof IR.Constant)) {
+            return null;
+        }
+        return SCCP.fold(instruction.getOpcode(), (IR.Constant) instruction.getOperand(0), (IR.Constant) instruction.getOperand(1));
+    }
+
+    /**
+     * Removes the blocks which cannot be reached from the entry.
+     *
+     * @param function the function.
+     * @return true iff a block was removed.
+     */
+    private static boolean removeUnreachableBlocks(IR.Function function) {
+        Set<IR.Block> reachable = Collections.newSetFromMap(new IdentityHashMap<IR.Block, Boolean>());
+        reachable.addAll(Dominators.reversePostorder(function.getEntry()));
+        if (reachable.size() == function.getBlocks().size()) {
+            return false;
+        }
+        for (IR.Block block : function.getBlocks()) {
+            if (!reachable.contains(block)) {
+                for (IR.Block successor : block.getSuccessors()) {
+                    successor.forgetPredecessor(block);
+                }
+            }
+        }
+        function.removeIf(block -> !reachable.contains(block));
+        function.updateEdges();
+        return true;
+    }
+
+    /**
+     * Merges each block into its only predecessor, when this predecessor always branches to it.
+     *
+     * The blocks are visited in reverse postorder, so a chain of blocks is merged into its first block. The phis of a
+     * merged block, having a single incoming value, are replaced by this value, and the phis of its successors then
+     * come from the block it was merged into. The instructions moved are indented as the branch they replace.
+     *
+     * @param function a function whose blocks can all be reached from the entry.
+     * @return true iff a block was merged.
+     */
+    private static boolean mergeBlocks(IR.Function function) {
+        Map<IR.Block, IR.Block> mergedInto = new IdentityHashMap<IR.Block, IR.Block>();
+        Map<IR.Instruction, IR.Value> replacements = new IdentityHashMap<IR.Instruction, IR.Value>();
+        for (IR.Block block : Dominators.reversePostorder(function.getEntry())) {
+            if (block == function.getEntry() || block.getPredecessors().size() != 1) {
+                continue;
+            }
+            IR.Block predecessor = block.getPredecessors().get(0);
+            IR.Block target = mergedInto.getOrDefault(predecessor, predecessor);
+            IR.Instruction terminator = target.getTerminator();
+            if (terminator.getOpcode() != IR.Opcode.BR) {
+                continue;
+            }
+            target.remove(terminator);
+            List<IR.Instruction> instructions = new ArrayList<IR.Instruction>(block.getInstructions());
+            block.removeIf(instruction -> true);
+            for (IR.Instruction instruction : instructions) {
+                if (instruction.getOpcode() == IR.Opcode.PHI) {
+                    replacements.put(instruction, instruction.getOperand(0));
+                } else {
+                    instruction.setIndentation(terminator.getIndentation());
+                    target.add(instruction);
+                }
+            }
+            for (IR.Block successor : block.getSuccessors()) {
+                for (IR.Instruction instruction : successor.getInstructions()) {
+                    if (instruction.getOpcode() != IR.Opcode.PHI) {
+                        break;
+                    }
+                    for (int i = 0; i < instruction.getBlocks().size(); i++) {
+                        if (instruction.getBlocks().get(i) == block) {
+                            instruction.setBlock(i, target);
+                        }
+                    }
+                }
+            }
+            mergedInto.put(block, target);
+        }
+        if (mergedInto.isEmpty()) {
+            return false;
+        }
+        function.removeIf(mergedInto::containsKey);
+        if (!replacements.isEmpty()) {
+            for (IR.Block block : function.getBlocks()) {
+                for (IR.Instruction instruction : block.getInstructions()) {
+                    for (int i = 0; i < instruction.getOperands().size(); i++) {
+                        instruction.setOperand(i, resolve(replacements, instruction.getOperand(i)));
+                    }
+                }
+            }
+        }
+        function.updateEdges();
+        return true;
+    }
+
+    /**
+     * Replaces the phis whose incoming values are all the same value (or the phi itself) by this value.
+     *
+     * @param function the function.
+     * @return true iff a phi was replaced.
+     */
+    private static boolean removeTrivialPhis(IR.Function function) {
+        Map<IR.Instruction, IR.Value> replacements = new IdentityHashMap<IR.Instruction, IR.Value>();
+        boolean found = true;
+        while (found) {
+            found = false;
+            for (IR.Block block : function.getBlocks()) {
+                for (IR.Instruction instruction : block.getInstructions()) {
+                    if (instruction.getOpcode() != IR.Opcode.PHI) {
+                        break;
+                    }
+                    if (replacements.containsKey(instruction)) {
+                        continue;
+                    }
+                    IR.Value unique = null;
+                    boolean trivial = true;
+                    for (IR.Value operand : instruction.getOperands()) {
+                        IR.Value value = resolve(replacements, operand);
+                        if (value == instruction || value.equals(unique)) {
+                            continue;
+                        }
+                        if (unique != null) {
+                            trivial = false;
+                            break;
+                        }
+                        unique = value;
+                    }
+                    if (trivial && unique != null) {
+                        replacements.put(instruction, unique);
+                        found = true;
+                    }
+                }
+            }
+        }
+        if (replacements.isEmpty()) {
+            return false;
+        }
+        for (IR.Block block : function.getBlocks()) {
+            block.removeIf(replacements::containsKey);
+            for (IR.Instruction instruction : block.getInstructions()) {
+                for (int i = 0; i < instruction.getOperands().size(); i++) {
+                    instruction.setOperand(i, resolve(replacements, instruction.getOperand(i)));
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Follows the replacements of the phis.
+     *
+     * @param replacements the value replacing each trivial phi.
+     * @param value a value.
+     * @return the value replacing it in the end, or the value itself.
+     */
+    private static IR.Value resolve(Map<IR.Instruction, IR.Value> replacements, IR.Value value) {
+        IR.Value replacement = replacements.get(value);
+        while (replacement != null) {
+            value = replacement;
+            replacement = replacements.get(value);
+        }
+        return value;
+    }
+
+    /**
+     * Removes the instructions without side effect whose result is not used, and then those only used by them.
+     *
+     * @param function the function.
+     * @return true iff an instruction was removed.
+     */
+    private static boolean removeUnusedInstructions(IR.Function function) {
+        Map<IR.Instruction, Integer> uses = new IdentityHashMap<IR.Instruction, Integer>();
+        for (IR.Block block : function.getBlocks()) {
+            for (IR.Instruction instruction : block.getInstructions()) {
+                for (IR.Value operand : instruction.getOperands()) {
+                    if (operand instanceof IR.Instruction) {
+                        uses.merge((IR.Instruction) operand, 1, Integer::sum);
+                    }
+                }
+            }
+        }
+        Deque<IR.Instruction> worklist = new ArrayDeque<IR.Instruction>();
+        for (IR.Block block : function.getBlocks()) {
+            for (IR.Instruction instruction : block.getInstructions()) {
+                if (!uses.containsKey(instruction) && !instruction.hasSideEffects()) {
+                    worklist.add(instruction);
+                }
+            }
+        }
+        Set<IR.Instruction> dead = Collections.newSetFromMap(new IdentityHashMap<IR.Instruction, Boolean>());
+        while (!worklist.isEmpty()) {
+            IR.Instruction instruction = worklist.poll();
+            if (!dead.add(instruction)) {
+                continue;
+            }
+            for (IR.Value operand : instruction.getOperands()) {
+                if (operand instanceof IR.Instruction && operand != instruction) {
+                    IR.Instruction user = (IR.Instruction) operand;
+                    int count = uses.merge(user, -1, Integer::sum);
+                    if (count == 0 && !user.hasSideEffects()) {
+                        worklist.add(user);
+                    }
+                }
+            }
+        }
+        // Phis only used by themselves, in loops, are removed too
+        for (IR.Block block : function.getBlocks()) {
+            for (IR.Instruction instruction : block.getInstructions()) {
+                if (instruction.getOpcode() == IR.Opcode.PHI && !dead.contains(instruction)
+                        && uses.getOrDefault(instruction, 0) == selfUses(instruction)) {
+                    dead.add(instruction);
+                }
+            }
+        }
+        if (dead.isEmpty()) {
+            return false;
+        }
+        for (IR.Block block : function.getBlocks()) {
+            block.removeIf(dead::contains);
+        }
+        return true;
+    }
+
+    /**
+     * Counts the incoming values of a phi which are the phi itself.
+     *
+     * @param phi a phi.
+     * @return the number of its operands which are itself.
+     */
+    private static int selfUses(IR.Instruction phi) {
+        int count = 0;
+        for (IR.Value operand : phi.getOperands()) {
+            if (operand == phi) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,452 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A scanner for pure ASCII sources whose automaton is written directly as code instead of the transition tables of
+ * the {@link LexicalAnalyzer LexicalAnalyzer} generated by JFlex.
+ *
+ * Each token starts with a switch on its first byte; keywords are then recognised by comparing the rest of the word
+ * (which is scanned as a [VarName] first, so that the longest match rule holds), and numbers, names and comments are
+ * consumed by tight loops. The rules, the tokens, their positions, the warnings and the errors are exactly those of
+ * LexicalAnalyzer.flex. The scanner reads the mapped bytes of a {@link MappedSource MappedSource} in place, without
+ * copying them, and appends its tokens to a {@link TokenBuffer TokenBuffer}.
+ */
+public class DirectLexer {
+    /**
+     * View of the input as little-endian longs, to test eight characters at a time (the first character being the
+     * lowest byte).
+     */
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * A long whose bytes are all 1.
+     */
+    private static final long ONES = 0x0101010101010101L;
+
+    /**
+     * A long whose bytes all have only their high bit set.
+     */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * Eight spaces.
+     */
+    private static final long SPACES = ' ' * ONES;
+
+    /**
+     * The characters of the source, one byte each: a view of the mapped file, which is not copied.
+     */
+    private final ByteBuffer input;
+
+    /**
+     * The number of characters of the source.
+     */
+    private final int length;
+
+    /**
+     * Index of the line starts of the source.
+     */
+    private final LineIndex lines;
+
+    /**
+     * Table interning the variable names met by the scanner.
+     */
+    private final IdentifierTable identifiers = new IdentifierTable();
+
+    /**
+     * Offset from which no line terminator is left in the source, so that a <code>**</code> can no longer start a
+     * comment (avoids searching the end of the file again for each <code>**</code>).
+     */
+    private int lastLine = Integer.MAX_VALUE;
+
+    /**
+     * Creates a scanner for a mapped source.
+     *
+     * @param source the mapped source, which is pure ASCII.
+     */
+    public DirectLexer(MappedSource source) {
+        this.input = source.bytes();
+        this.length = source.length();
+        this.lines = new LineIndex(source);
+    }
+
+    /**
+     * Scans the whole source.
+     *
+     * @return a buffer containing all the tokens of the source, the last one being EOS, or the tokens before the
+     *         first lexing error followed by this error.
+     */
+    public TokenBuffer tokenize() {
+        TokenBuffer tokens = new TokenBuffer(identifiers, lines);
+        try {
+            scan(tokens);
+        } catch (PatternSyntaxException e) {
+            tokens.fail(e);
+        }
+        return tokens;
+    }
+
+    /**
+     * Scans the whole source into a buffer.
+     *
+     * @param tokens the buffer receiving the tokens, the last one being EOS.
+     * @throws PatternSyntaxException on the first lexing error of the source.
+     */
+    private void scan(TokenBuffer tokens) {
+        ByteBuffer in = input;
+        int end = length;
+        int i = 0;
+        while (i < end) {
+            int start = i;
+            switch (in.get(i)) {
+                // Separators
+                case ' ':
+                case '\t':
+                case '\f':
+                case '\n':
+                case '\r':
+                    i = skipSeparators(i + 1);
+                    break;
+                // Comments
+                case '\'':
+                    if (i + 1 < end && in.get(i + 1) == '\'') {
+                        i = skipLongComment(i + 2);
+                        break;
+                    }
+                    throw unmatched(start);
+                case '*':
+                    if (i + 1 < end && in.get(i + 1) == '*') {
+                        int next = skipShortComment(i + 2);
+                        if (next >= 0) {
+                            i = next;
+                            break;
+                        }
+                    }
+                    tokens.add(LexicalUnit.TIMES, start, 0);
+                    i++;
+                    break;
+                // Punctuation and operators
+                case '.':
+                    if (i + 2 < end && in.get(i + 1) == '.' && in.get(i + 2) == '.') {
+                        tokens.add(LexicalUnit.DOTS, start, 0);
+                        i += 3;
+                        break;
+                    }
+                    throw unmatched(start);
+                case ':':
+                    if (i + 1 < end && in.get(i + 1) == '=') {
+                        tokens.add(LexicalUnit.ASSIGN, start, 0);
+                        i += 2;
+                        break;
+                    }
+                    throw unmatched(start);
+                case '(':
+                    tokens.add(LexicalUnit.LPAREN, start, 0);
+                    i++;
+                    break;
+                case ')':
+                    tokens.add(LexicalUnit.RPAREN, start, 0);
+                    i++;
+                    break;
+                case '{':
+                    tokens.add(LexicalUnit.LBRACK, start, 0);
+                    i++;
+                    break;
+                case '}':
+                    tokens.add(LexicalUnit.RBRACK, start, 0);
+                    i++;
+                    break;
+                case '+':
+                    tokens.add(LexicalUnit.PLUS, start, 0);
+                    i++;
+                    break;
+                case '-':
+                    tokens.add(LexicalUnit.MINUS, start, 0);
+                    i++;
+                    break;
+                case '/':
+                    tokens.add(LexicalUnit.DIVIDE, start, 0);
+                    i++;
+                    break;
+                case '=':
+                    tokens.add(LexicalUnit.EQUAL, start, 0);
+                    i++;
+                    break;
+                case '<':
+                    tokens.add(LexicalUnit.SMALLER, start, 0);
+                    i++;
+                    break;
+                // Numbers
+                case '0': case '1': case '2': case '3': case '4':
+                case '5': case '6': case '7': case '8': case '9':
+                    i = number(tokens, start);
+                    break;
+                // Keywords and variable names
+                case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g':
+                case 'h': case 'i': case 'j': case 'k': case 'l': case 'm': case 'n':
+                case 'o': case 'p': case 'q': case 'r': case 's': case 't': case 'u':
+                case 'v': case 'w': case 'x': case 'y': case 'z':
+                    i = word(tokens, start);
+                    break;
+                default:
+                    throw unmatched(start);
+            }
+        }
+        tokens.add(LexicalUnit.EOS, end, 0);
+    }
+
+    /**
+     * Skips a <code>'' ... ''</code> comment.
+     *
+     * @param from the offset just after the opening quotes.
+     * @return the offset just after the closing quotes.
+     * @throws PatternSyntaxException if the comment is not closed before the end of the source.
+     */
+    private int skipLongComment(int from) {
+        ByteBuffer in = input;
+        for (int i = find('\'', '\'', from); i + 1 < length; i = find('\'', '\'', i + 1)) {
+            if (in.get(i + 1) == '\'') {
+                return i + 2;
+            }
+        }
+        throw new PatternSyntaxException("A comment is never closed.", "", lines.line(length));
+    }
+
+    /**
+     * Skips the rest of a <code>**</code> comment, up to and including its line terminator.
+     *
+     * @param from the offset just after the two stars.
+     * @return the offset after the line terminator, or -1 if there is none (the stars are then two [Times] tokens).
+     */
+    private int skipShortComment(int from) {
+        ByteBuffer in = input;
+        if (from < lastLine) {
+            int i = find('\n', '\r', from);
+            if (i < length) {
+                // \n\r and \r\n are a single line terminator for the rule
+                if (i + 1 < length && (in.get(i + 1) == '\n' || in.get(i + 1) == '\r') && in.get(i + 1) != in.get(i)) {
+                    i++;
+                }
+                return i + 1;
+            }
+            lastLine = from;
+        }
+        return -1;
+    }
+
+    /**
+     * Skips a run of separators (which produce no token), eight characters at a time while they are spaces, as in
+     * the indentation of a program.
+     *
+     * @param from the offset of the first character which may be a separator.
+     * @return the offset of the first character which is not a separator.
+     */
+    private int skipSeparators(int from) {
+        ByteBuffer in = input;
+        int i = from;
+        while (true) {
+            while (i + Long.BYTES <= length && (long) LONGS.get(in, i) == SPACES) {
+                i += Long.BYTES;
+            }
+            if (i < length && isSeparator(in.get(i))) {
+                i++;
+            } else {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Finds the next occurrence of either of two characters, testing eight characters at a time.
+     *
+     * A byte of x ^ c*ONES is zero iff the corresponding character is c; (y - ONES) & ~y & HIGH_BITS flags the zero
+     * bytes of y, the lowest flag being always exact.
+     *
+     * @param a the first character to find.
+     * @param b the second character to find (equal to a to find only one character).
+     * @param from the offset from which to search.
+     * @return the offset of the first a or b from this offset, the length of the input if there is none.
+     */
+    private int find(char a, char b, int from) {
+        ByteBuffer in = input;
+        long pa = a * ONES;
+        long pb = b * ONES;
+        int i = from;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            long word = (long) LONGS.get(in, i);
+            long ya = word ^ pa;
+            long yb = word ^ pb;
+            long found = ((ya - ONES) & ~ya | (yb - ONES) & ~yb) & HIGH_BITS;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        while (i < length && in.get(i) != a && in.get(i) != b) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Scans a [Number] token, warning about leading zeros like the table-driven scanner.
+     *
+     * @param tokens the buffer receiving the token.
+     * @param start the offset of the first digit.
+     * @return the offset after the last digit.
+     * @throws PatternSyntaxException if the literal does not fit in a (signed 32 bits) int.
+     */
+    private int number(TokenBuffer tokens, int start) {
+        ByteBuffer in = input;
+        int i = start + 1;
+        while (i < length && isDigit(in.get(i))) {
+            i++;
+        }
+        if (in.get(start) == '0' && i - start > 1) {
+            System.err.println("Warning! Numbers with leading zeros are deprecated: " + text(start, i));
+        }
+        int value = 0;
+        for (int j = start; j < i; j++) {
+            int digit = in.get(j) - '0';
+            if (value > (Integer.MAX_VALUE - digit) / 10) {
+                throw new PatternSyntaxException(String.format("Number greater than %d at line %d and column %d", Integer.MAX_VALUE, lines.line(start)+1, lines.column(start)), text(start, i), -1); // No index in the literal: the position is in the description
+            }
+            value = 10*value + digit;
+        }
+        tokens.add(LexicalUnit.NUMBER, start, value);
+        return i;
+    }
+
+    /**
+     * Scans a word starting with a lowercase letter: a keyword if it is exactly one, a [VarName] otherwise.
+     *
+     * @param tokens the buffer receiving the token.
+     * @param start the offset of the first letter.
+     * @return the offset after the last character of the word.
+     */
+    private int word(TokenBuffer tokens, int start) {
+        ByteBuffer in = input;
+        int i = start + 1;
+        while (i < length && isAlphaNumeric(in.get(i))) {
+            i++;
+        }
+        LexicalUnit keyword = keyword(start, i - start);
+        if (keyword != null) {
+            tokens.add(keyword, start, 0);
+        } else {
+            tokens.add(LexicalUnit.VARNAME, start, identifiers.intern(in, start, i - start).getId());
+        }
+        return i;
+    }
+
+    /**
+     * Recognises a keyword from its first letter and length.
+     *
+     * @param start the offset of the word.
+     * @param length the number of characters of the word.
+     * @return the LexicalUnit of the keyword, null if the word is not a keyword.
+     */
+    private LexicalUnit keyword(int start, int length) {
+        switch (input.get(start)) {
+            case 'a':
+                return is("and", start, length) ? LexicalUnit.AND : null;
+            case 'b':
+                return is("begin", start, length) ? LexicalUnit.BEG : null;
+            case 'd':
+                return is("do", start, length) ? LexicalUnit.DO : null;
+            case 'e':
+                if (length == 3) {
+                    return is("end", start, length) ? LexicalUnit.END : null;
+                }
+                return is("else", start, length) ? LexicalUnit.ELSE : null;
+            case 'i':
+                return is("if", start, length) ? LexicalUnit.IF : null;
+            case 'o':
+                return is("or", start, length) ? LexicalUnit.OR : null;
+            case 'p':
+                return is("print", start, length) ? LexicalUnit.PRINT : null;
+            case 'r':
+                return is("read", start, length) ? LexicalUnit.READ : null;
+            case 't':
+                return is("then", start, length) ? LexicalUnit.THEN : null;
+            case 'w':
+                return is("while", start, length) ? LexicalUnit.WHILE : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Compares a word of the source with a keyword.
+     *
+     * @param keyword the keyword.
+     * @param start the offset of the word.
+     * @param length the number of characters of the word.
+     * @return true iff the word is the keyword.
+     */
+    private boolean is(String keyword, int start, int length) {
+        if (keyword.length() != length) {
+            return false;
+        }
+        for (int i = 1; i < length; i++) {
+            if (input.get(start + i) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Builds the error of a character that starts no token.
+     *
+     * @param offset the offset of the character.
+     * @return the exception to be thrown, as the table-driven scanner reports it.
+     */
+    private PatternSyntaxException unmatched(int offset) {
+        return new PatternSyntaxException("Unmatched token, out of symbols", text(offset, offset + 1), lines.line(offset));
+    }
+
+    /**
+     * Returns a part of the source.
+     *
+     * @param start the offset of the first character.
+     * @param end the offset after the last character.
+     * @return the characters between start and end.
+     */
+    private String text(int start, int end) {
+        return StandardCharsets.US_ASCII.decode(input.slice(start, end - start)).toString();
+    }
+
+    /**
+     * Tells whether a character is matched by {Separator}.
+     *
+     * @param c the ASCII character.
+     * @return true iff c is a space, a tabulation, a form feed or a line terminator.
+     */
+    private static boolean isSeparator(byte c) {
+        return c == ' ' || c == '\t' || c == '\f' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * Tells whether a character is a digit.
+     *
+     * @param c the ASCII character.
+     * @return true iff c is in [0-9].
+     */
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Tells whether a character can continue a variable name.
+     *
+     * @param c the ASCII character.
+     * @return true iff c is in [a-zA-Z0-9].
+     */
+    private static boolean isAlphaNumeric(byte c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+}
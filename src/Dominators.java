@@ -0,0 +1,264 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The dominator tree of an {@link IR.Function IR.Function}: a block dominates another one when every path from the
+ * entry to the other block goes through it.
+ *
+ * The immediate dominators are computed with the iterative algorithm of Cooper, Harvey and Kennedy on the blocks in
+ * reverse postorder. The tree is then numbered in preorder, so that a dominance query compares two intervals instead
+ * of walking up the tree. Blocks unreachable from the entry are not in the tree. The dominance frontiers, where the
+ * paths from a block meet paths avoiding it, are computed when first asked for.
+ *
+ * The predecessors and successors of the blocks must be {@link IR.Function#updateEdges() up to date}, and the
+ * dominators are computed again whenever the control-flow graph changes.
+ */
+public class Dominators {
+    /**
+     * The analysis computing the dominator tree of a function.
+     */
+    public static final Analysis<Dominators> ANALYSIS = new Analysis<Dominators>() {
+        @Override
+        public String getName() {
+            return "dominators";
+        }
+
+        @Override
+        public Dominators compute(IR.Function function, PassManager manager) {
+            return new Dominators(function);
+        }
+    };
+
+    /**
+     * The reachable blocks in reverse postorder, the entry first.
+     */
+    private final List<IR.Block> order;
+    /**
+     * Index of each reachable block in {@link #order order}.
+     */
+    private final Map<IR.Block, Integer> indices = new IdentityHashMap<IR.Block, Integer>();
+    /**
+     * Index of the immediate dominator of the block with the same index, itself for the entry.
+     */
+    private final int[] immediateDominators;
+    /**
+     * Children of the block with the same index in the dominator tree.
+     */
+    private final List<List<IR.Block>> children;
+    /**
+     * Preorder number of the block with the same index in the dominator tree.
+     */
+    private final int[] entering;
+    /**
+     * Largest preorder number of the subtree of the block with the same index in the dominator tree.
+     */
+    private final int[] leaving;
+    /**
+     * Dominance frontier of the block with the same index, null until computed.
+     */
+    private List<List<IR.Block>> frontiers;
+
+    /**
+     * Computes the dominator tree of a function.
+     *
+     * @param function a function whose edges are up to date.
+     */
+    public Dominators(IR.Function function) {
+        order = reversePostorder(function.getEntry());
+        for (int i = 0; i < order.size(); i++) {
+            indices.put(order.get(i), i);
+        }
+        int size = order.size();
+        immediateDominators = new int[size];
+        Arrays.fill(immediateDominators, -1);
+        immediateDominators[0] = 0;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 1; i < size; i++) {
+                int dominator = -1;
+                for (IR.Block predecessor : order.get(i).getPredecessors()) {
+                    Integer p = indices.get(predecessor);
+                    if (p == null || immediateDominators[p] == -1) {
+                        continue; // Unreachable, or not processed yet
+                    }
+                    dominator = dominator == -1 ? p : intersect(p, dominator);
+                }
+                if (immediateDominators[i] != dominator) {
+                    immediateDominators[i] = dominator;
+                    changed = true;
+                }
+            }
+        }
+        children = new ArrayList<List<IR.Block>>(size);
+        for (int i = 0; i < size; i++) {
+            children.add(new ArrayList<IR.Block>());
+        }
+        for (int i = 1; i < size; i++) {
+            children.get(immediateDominators[i]).add(order.get(i));
+        }
+        // Preorder numbering of the tree, with an explicit stack
+        entering = new int[size];
+        leaving = new int[size];
+        int[] stack = new int[size];
+        int[] next = new int[size];
+        int top = 0;
+        int counter = 0;
+        if (size > 0) {
+            stack[top++] = 0;
+            entering[0] = counter++;
+        }
+        while (top > 0) {
+            int block = stack[top - 1];
+            if (next[block] < children.get(block).size()) {
+                int child = indices.get(children.get(block).get(next[block]++));
+                entering[child] = counter++;
+                stack[top++] = child;
+            } else {
+                leaving[block] = counter - 1;
+                top--;
+            }
+        }
+    }
+
+    /**
+     * Lists the blocks reachable from the entry in reverse postorder.
+     *
+     * @param entry the entry block.
+     * @return the reachable blocks, each one before its successors except along back edges.
+     */
+    public static List<IR.Block> reversePostorder(IR.Block entry) {
+        List<IR.Block> postorder = new ArrayList<IR.Block>();
+        Map<IR.Block, Integer> visited = new IdentityHashMap<IR.Block, Integer>();
+        // Blocks being visited, with the index of their next successor to visit
+        List<IR.Block> stack = new ArrayList<IR.Block>();
+        stack.add(entry);
+        visited.put(entry, 0);
+        while (!stack.isEmpty()) {
+            IR.Block block = stack.get(stack.size() - 1);
+            int next = visited.get(block);
+            if (next < block.getSuccessors().size()) {
+                visited.put(block, next + 1);
+                IR.Block successor = block.getSuccessors().get(next);
+                if (!visited.containsKey(successor)) {
+                    visited.put(successor, 0);
+                    stack.add(successor);
+                }
+            } else {
+                postorder.add(block);
+                stack.remove(stack.size() - 1);
+            }
+        }
+        Collections.reverse(postorder);
+        return postorder;
+    }
+
+    /**
+     * Finds the nearest common dominator of two blocks whose dominators are known.
+     *
+     * @param a the index of a block.
+     * @param b the index of another block.
+     * @return the index of their nearest common dominator.
+     */
+    private int intersect(int a, int b) {
+        while (a != b) {
+            while (a > b) {
+                a = immediateDominators[a];
+            }
+            while (b > a) {
+                b = immediateDominators[b];
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Returns the blocks reachable from the entry in reverse postorder.
+     *
+     * @return an unmodifiable list of the blocks, the entry first.
+     */
+    public List<IR.Block> getReversePostorder() {
+        return Collections.unmodifiableList(order);
+    }
+
+    /**
+     * Checks whether a block can be reached from the entry.
+     *
+     * @param block a block of the function.
+     * @return true iff the block is in the dominator tree.
+     */
+    public boolean isReachable(IR.Block block) {
+        return indices.containsKey(block);
+    }
+
+    /**
+     * Returns the immediate dominator of a block.
+     *
+     * @param block a reachable block.
+     * @return its parent in the dominator tree, null for the entry.
+     */
+    public IR.Block getImmediateDominator(IR.Block block) {
+        int index = indices.get(block);
+        return index == 0 ? null : order.get(immediateDominators[index]);
+    }
+
+    /**
+     * Returns the blocks immediately dominated by a block.
+     *
+     * @param block a reachable block.
+     * @return an unmodifiable list of its children in the dominator tree.
+     */
+    public List<IR.Block> getChildren(IR.Block block) {
+        return Collections.unmodifiableList(children.get(indices.get(block)));
+    }
+
+    /**
+     * Checks whether a block dominates another one. A block dominates itself.
+     *
+     * @param dominator a reachable block.
+     * @param block another reachable block.
+     * @return true iff every path from the entry to block goes through dominator.
+     */
+    public boolean dominates(IR.Block dominator, IR.Block block) {
+        int a = indices.get(dominator);
+        int b = indices.get(block);
+        return entering[a] <= entering[b] && entering[b] <= leaving[a];
+    }
+
+    /**
+     * Returns the dominance frontier of a block: the blocks with a predecessor dominated by the block, but which are
+     * not strictly dominated by it.
+     *
+     * @param block a reachable block.
+     * @return an unmodifiable list of the blocks of its frontier.
+     */
+    public List<IR.Block> getFrontier(IR.Block block) {
+        if (frontiers == null) {
+            frontiers = new ArrayList<List<IR.Block>>(order.size());
+            for (int i = 0; i < order.size(); i++) {
+                frontiers.add(new ArrayList<IR.Block>());
+            }
+            for (int i = 0; i < order.size(); i++) {
+                IR.Block join = order.get(i);
+                if (join.getPredecessors().size() < 2) {
+                    continue;
+                }
+                for (IR.Block predecessor : join.getPredecessors()) {
+                    Integer runner = indices.get(predecessor);
+                    while (runner != null && runner != immediateDominators[i]) {
+                        List<IR.Block> frontier = frontiers.get(runner);
+                        if (frontier.isEmpty() || frontier.get(frontier.size() - 1) != join) {
+                            frontier.add(join);
+                        }
+                        runner = runner == 0 ? null : immediateDominators[runner];
+                    }
+                }
+            }
+        }
+        return Collections.unmodifiableList(frontiers.get(indices.get(block)));
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Table hash-consing the arithmetic expressions of a program, so that identical expressions are a single
+ * {@link AST.Expression AST.Expression} shared by all their parents.
+ *
+ * Expressions are interned bottom-up: when an expression is interned, its operands already are, so two expressions are
+ * identical iff they have the same kind and attributes and the very same operands. Looking an expression up then
+ * only compares one node, and uses the structural hash memoized in the node (open addressing with linear probing).
+ */
+public class ExpressionTable {
+    /**
+     * Initial number of slots of the hash table (a power of two).
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    /**
+     * Hash table of the expressions, null for an empty slot.
+     */
+    private AST.Expression[] slots = new AST.Expression[INITIAL_CAPACITY];
+
+    /**
+     * Number of distinct expressions in the table.
+     */
+    private int size = 0;
+
+    /**
+     * Returns the shared expression identical to the given one, adding it to the table if it is new.
+     *
+     * @param expression an expression whose operands are already interned.
+     * @return the unique expression of the table identical to the given one.
+     */
+    public AST.Expression intern(AST.Expression expression) {
+        int mask = slots.length - 1;
+        for (int slot = mix(expression.getHash()) & mask; ; slot = (slot + 1) & mask) {
+            AST.Expression shared = slots[slot];
+            if (shared == null) {
+                add(slot, expression);
+                return expression;
+            }
+            if (shared.getHash() == expression.getHash() && sameNode(shared, expression)) {
+                return shared;
+            }
+        }
+    }
+
+    /**
+     * Spreads the bits of a hash so that hashes differing in their high bits use distant slots.
+     *
+     * @param hash the structural hash of an expression.
+     * @return the mixed hash.
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Compares two expressions whose operands are interned.
+     *
+     * @param a the first expression.
+     * @param b the second expression.
+     * @return true iff both have the same kind and attributes, and the same operands.
+     */
+    private static boolean sameNode(AST.Expression a, AST.Expression b) {
+        if (a.getKind() != b.getKind()) {
+            return false;
+        }
+        switch (a.getKind()) {
+            case BIN_OP:
+                AST.BinOp binOpA = (AST.BinOp) a;
+                AST.BinOp binOpB = (AST.BinOp) b;
+                return binOpA.getOperator() == binOpB.getOperator()
+                        && binOpA.getLeft() == binOpB.getLeft() && binOpA.getRight() == binOpB.getRight();
+            case UNARY_MINUS:
+                return ((AST.UnaryMinus) a).getOperand() == ((AST.UnaryMinus) b).getOperand();
+            case VAR:
+                return ((AST.Var) a).getIdentifier() == ((AST.Var) b).getIdentifier();
+            case CONST:
+                return ((AST.Const) a).getValue() == ((AST.Const) b).getValue();
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Adds a new expression in the given free slot, growing the table when it becomes half full.
+     *
+     * @param slot the free slot where the expression belongs.
+     * @param expression the new expression.
+     */
+    private void add(int slot, AST.Expression expression) {
+        slots[slot] = expression;
+        size++;
+        if (2 * size > slots.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * Doubles the number of slots of the hash table.
+     */
+    private void rehash() {
+        AST.Expression[] oldSlots = slots;
+        slots = new AST.Expression[2 * oldSlots.length];
+        int mask = slots.length - 1;
+        for (AST.Expression expression : oldSlots) {
+            if (expression != null) {
+                int slot = mix(expression.getHash()) & mask;
+                while (slots[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = expression;
+            }
+        }
+    }
+}
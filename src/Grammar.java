@@ -0,0 +1,514 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The grammar of PascalMaisPresque, read from its description in <code>cfg.pmp</code>, with the FIRST and FOLLOW sets
+ * of its non-terminals and its LL(1) action table.
+ *
+ * Each line of the description is a rule <code>[n] &lt;Lhs&gt; → X1 X2 ... Xk</code>, where the Xi are non-terminals
+ * between angle brackets or terminals written as in the source code ([VarName] and [Number] for the valued ones), and
+ * ε stands for an empty right-hand side. Non-terminals whose name ends with a quote are the tails of the enumeration
+ * {@link NonTerminal NonTerminal}: &lt;InstList'&gt; and &lt;If'&gt; are InstListTail and IfTail, the others XPrime.
+ *
+ * Symbols of the right-hand sides are encoded as integers so that the {@link LL1Parser LL1Parser} can keep them on a
+ * stack of ints: a terminal is encoded by its ordinal, a non-terminal by its ordinal plus {@link #TERMINALS TERMINALS}.
+ */
+public class Grammar {
+    /**
+     * Name of the resource describing the grammar, next to the classes.
+     */
+    private static final String RESOURCE = "cfg.pmp";
+
+    /**
+     * Number of terminals, which is also the code of the first non-terminal.
+     */
+    public static final int TERMINALS = LexicalUnit.values().length;
+
+    /**
+     * All the terminals, indexed by ordinal.
+     */
+    private static final LexicalUnit[] UNITS = LexicalUnit.values();
+
+    /**
+     * All the non-terminals, indexed by ordinal.
+     */
+    private static final NonTerminal[] VARIABLES = NonTerminal.values();
+
+    /**
+     * The grammar read from the resource, loaded on first use.
+     */
+    private static Grammar instance;
+
+    /**
+     * A production rule of the grammar.
+     */
+    public static class Rule {
+        /**
+         * Number of the rule in the description.
+         */
+        private final int number;
+
+        /**
+         * Left-hand side of the rule.
+         */
+        private final NonTerminal lhs;
+
+        /**
+         * Encoded symbols of the right-hand side, empty for an ε-rule.
+         */
+        private final int[] rhs;
+
+        /**
+         * Creates a rule.
+         *
+         * @param number the number of the rule.
+         * @param lhs the left-hand side.
+         * @param rhs the encoded right-hand side.
+         */
+        Rule(int number, NonTerminal lhs, int[] rhs) {
+            this.number = number;
+            this.lhs = lhs;
+            this.rhs = rhs;
+        }
+
+        /**
+         * Returns the number of the rule.
+         *
+         * @return the value of attribute {@link number number}.
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * Returns the left-hand side of the rule.
+         *
+         * @return the value of attribute {@link lhs lhs}.
+         */
+        public NonTerminal getLhs() {
+            return lhs;
+        }
+
+        /**
+         * Returns the right-hand side of the rule. The array must not be modified.
+         *
+         * @return the encoded symbols of the right-hand side.
+         */
+        public int[] getRhs() {
+            return rhs;
+        }
+    }
+
+    /**
+     * The rules of the grammar, in the order of the description.
+     */
+    private final List<Rule> rules = new ArrayList<>();
+
+    /**
+     * Indices in {@link rules rules} of the rules of each non-terminal (indexed by ordinal), in the order of the description.
+     */
+    private final List<List<Integer>> rulesOf = new ArrayList<>();
+
+    /**
+     * Whether each non-terminal (indexed by ordinal) derives the empty word.
+     */
+    private final boolean[] nullable = new boolean[VARIABLES.length];
+
+    /**
+     * FIRST set of each non-terminal (indexed by ordinal), in the order in which the terminals appear in the rules.
+     */
+    private final List<Set<LexicalUnit>> first = new ArrayList<>();
+
+    /**
+     * FOLLOW set of each non-terminal (indexed by ordinal).
+     */
+    private final List<Set<LexicalUnit>> follow = new ArrayList<>();
+
+    /**
+     * LL(1) action table: index of the rule to apply for a non-terminal (first index) on a look-ahead (second index),
+     * -1 for a syntax error. A non-terminal with a single rule has it on every look-ahead.
+     */
+    private final int[][] table = new int[VARIABLES.length][TERMINALS];
+
+    /**
+     * Terminals for which each non-terminal (indexed by ordinal) has an action, in the order of its rules.
+     */
+    private final List<List<LexicalUnit>> expected = new ArrayList<>();
+
+    /**
+     * Reads a grammar and builds its LL(1) action table.
+     *
+     * @param description a Reader on the description of the grammar.
+     * @throws IOException if the description cannot be read.
+     * @throws IllegalArgumentException if the description is malformed or the grammar is not LL(1).
+     */
+    public Grammar(Reader description) throws IOException {
+        for (int i = 0; i < VARIABLES.length; i++) {
+            rulesOf.add(new ArrayList<>());
+            first.add(new LinkedHashSet<>());
+            follow.add(new LinkedHashSet<>());
+        }
+        BufferedReader reader = new BufferedReader(description);
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (!line.isBlank()) {
+                addRule(line.trim());
+            }
+        }
+        if (rules.isEmpty()) {
+            throw new IllegalArgumentException("The grammar has no rule");
+        }
+        computeNullable();
+        boolean[] done = new boolean[VARIABLES.length];
+        for (NonTerminal variable : VARIABLES) {
+            computeFirst(variable, done, new boolean[VARIABLES.length]);
+        }
+        computeFollow();
+        computeTable();
+    }
+
+    /**
+     * Returns the grammar of PascalMaisPresque, reading <code>cfg.pmp</code> the first time.
+     *
+     * @return the grammar of the language.
+     * @throws IOException if the description cannot be found or read.
+     */
+    public static synchronized Grammar get() throws IOException {
+        if (instance == null) {
+            InputStream stream = Grammar.class.getResourceAsStream(RESOURCE);
+            if (stream == null) {
+                throw new IOException("Cannot find the grammar " + RESOURCE);
+            }
+            try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+                instance = new Grammar(reader);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Tells whether an encoded symbol is a terminal.
+     *
+     * @param symbol the encoded symbol.
+     * @return true iff the symbol is a terminal.
+     */
+    public static boolean isTerminal(int symbol) {
+        return symbol < TERMINALS;
+    }
+
+    /**
+     * Decodes a terminal.
+     *
+     * @param symbol the encoded terminal.
+     * @return the LexicalUnit of the terminal.
+     */
+    public static LexicalUnit terminal(int symbol) {
+        return UNITS[symbol];
+    }
+
+    /**
+     * Decodes a non-terminal.
+     *
+     * @param symbol the encoded non-terminal.
+     * @return the NonTerminal.
+     */
+    public static NonTerminal nonTerminal(int symbol) {
+        return VARIABLES[symbol - TERMINALS];
+    }
+
+    /**
+     * Encodes a non-terminal.
+     *
+     * @param variable the non-terminal.
+     * @return the code of the non-terminal.
+     */
+    public static int code(NonTerminal variable) {
+        return TERMINALS + variable.ordinal();
+    }
+
+    /**
+     * Returns the start symbol of the grammar, the left-hand side of its first rule.
+     *
+     * @return the axiom of the grammar.
+     */
+    public NonTerminal getStart() {
+        return rules.get(0).getLhs();
+    }
+
+    /**
+     * Returns a rule of the grammar.
+     *
+     * @param index the index of the rule in the description (its number minus one in cfg.pmp).
+     * @return the rule.
+     */
+    public Rule getRule(int index) {
+        return rules.get(index);
+    }
+
+    /**
+     * Returns the number of rules of the grammar.
+     *
+     * @return the size of {@link rules rules}.
+     */
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * Looks up the LL(1) action table.
+     *
+     * @param variable the non-terminal at the top of the stack.
+     * @param lookahead the type of the look-ahead.
+     * @return the index of the rule to apply, -1 if there is none (syntax error).
+     */
+    public int action(NonTerminal variable, LexicalUnit lookahead) {
+        return table[variable.ordinal()][lookahead.ordinal()];
+    }
+
+    /**
+     * Returns the terminals on which a non-terminal can be expanded, to be reported when another one is met.
+     *
+     * @param variable the non-terminal.
+     * @return an unmodifiable list of the terminals for which the table has an action.
+     */
+    public List<LexicalUnit> expected(NonTerminal variable) {
+        return expected.get(variable.ordinal());
+    }
+
+    /**
+     * Returns the FIRST set of a non-terminal.
+     *
+     * @param variable the non-terminal.
+     * @return an unmodifiable set of the terminals which can start a word derived from it.
+     */
+    public Set<LexicalUnit> first(NonTerminal variable) {
+        return Collections.unmodifiableSet(first.get(variable.ordinal()));
+    }
+
+    /**
+     * Returns the FOLLOW set of a non-terminal.
+     *
+     * @param variable the non-terminal.
+     * @return an unmodifiable set of the terminals which can follow it (EOS after the start symbol).
+     */
+    public Set<LexicalUnit> follow(NonTerminal variable) {
+        return Collections.unmodifiableSet(follow.get(variable.ordinal()));
+    }
+
+    /**
+     * Parses a line of the description and adds its rule.
+     *
+     * @param line a rule, such as <code>[13] &lt;Assign&gt; → [VarName] := &lt;ExprArith&gt;</code>.
+     */
+    private void addRule(String line) {
+        String[] words = line.split("\\s+");
+        if (words.length < 3 || !words[0].matches("\\[\\d+\\]") || !words[2].equals("→")) {
+            throw new IllegalArgumentException("Malformed rule: " + line);
+        }
+        int number = Integer.parseInt(words[0].substring(1, words[0].length() - 1));
+        NonTerminal lhs = nonTerminal(words[1], line);
+        List<Integer> rhs = new ArrayList<>();
+        for (int i = 3; i < words.length; i++) {
+            if (words[i].equals("ε")) {
+                continue;
+            }
+            if (words[i].length() > 1 && words[i].startsWith("<")) { // Not the terminal <
+                rhs.add(code(nonTerminal(words[i], line)));
+            } else {
+                rhs.add(terminal(words[i], line).ordinal());
+            }
+        }
+        rulesOf.get(lhs.ordinal()).add(rules.size());
+        rules.add(new Rule(number, lhs, rhs.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * Finds the non-terminal written in a rule.
+     *
+     * @param word the non-terminal between angle brackets.
+     * @param line the rule, for the error message.
+     * @return the NonTerminal.
+     */
+    private static NonTerminal nonTerminal(String word, String line) {
+        if (!word.startsWith("<") || !word.endsWith(">")) {
+            throw new IllegalArgumentException("Malformed non-terminal " + word + " in rule: " + line);
+        }
+        String name = word.substring(1, word.length() - 1);
+        if (name.endsWith("'")) {
+            name = name.substring(0, name.length() - 1);
+            name += name.equals("InstList") || name.equals("If") ? "Tail" : "Prime";
+        }
+        try {
+            return NonTerminal.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown non-terminal " + word + " in rule: " + line);
+        }
+    }
+
+    /**
+     * Finds the terminal written in a rule.
+     *
+     * @param word the terminal, as written in the source code or [VarName], [Number].
+     * @param line the rule, for the error message.
+     * @return the LexicalUnit.
+     */
+    private static LexicalUnit terminal(String word, String line) {
+        for (LexicalUnit unit : UNITS) {
+            if (word.equals(unit.lexeme()) || (unit.lexeme() == null && word.equals(unit.toString()))) {
+                return unit;
+            }
+        }
+        throw new IllegalArgumentException("Unknown terminal " + word + " in rule: " + line);
+    }
+
+    /**
+     * Computes which non-terminals derive the empty word (fixed point).
+     */
+    private void computeNullable() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Rule rule : rules) {
+                if (!nullable[rule.lhs.ordinal()] && nullable(rule.rhs, 0)) {
+                    nullable[rule.lhs.ordinal()] = true;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Tells whether a suffix of a right-hand side derives the empty word.
+     *
+     * @param rhs the encoded right-hand side.
+     * @param from the index of the first symbol of the suffix.
+     * @return true iff all the symbols of the suffix are nullable non-terminals.
+     */
+    private boolean nullable(int[] rhs, int from) {
+        for (int i = from; i < rhs.length; i++) {
+            if (isTerminal(rhs[i]) || !nullable[rhs[i] - TERMINALS]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the FIRST set of a non-terminal, after those of the non-terminals its rules start with, so that the
+     * terminals are listed in the order of the rules.
+     *
+     * @param variable the non-terminal.
+     * @param done the non-terminals whose FIRST set is complete.
+     * @param visiting the non-terminals whose FIRST set is being computed, to detect left recursion.
+     */
+    private void computeFirst(NonTerminal variable, boolean[] done, boolean[] visiting) {
+        if (done[variable.ordinal()]) {
+            return;
+        }
+        if (visiting[variable.ordinal()]) {
+            throw new IllegalArgumentException("The grammar is left-recursive on <" + variable + ">");
+        }
+        visiting[variable.ordinal()] = true;
+        for (int index : rulesOf.get(variable.ordinal())) {
+            addFirst(first.get(variable.ordinal()), rules.get(index).rhs, 0, done, visiting);
+        }
+        visiting[variable.ordinal()] = false;
+        done[variable.ordinal()] = true;
+    }
+
+    /**
+     * Adds the FIRST set of a suffix of a right-hand side to a set.
+     *
+     * @param set the set to complete.
+     * @param rhs the encoded right-hand side.
+     * @param from the index of the first symbol of the suffix.
+     * @param done the non-terminals whose FIRST set is complete, null once they all are.
+     * @param visiting the non-terminals whose FIRST set is being computed.
+     */
+    private void addFirst(Set<LexicalUnit> set, int[] rhs, int from, boolean[] done, boolean[] visiting) {
+        for (int i = from; i < rhs.length; i++) {
+            if (isTerminal(rhs[i])) {
+                set.add(terminal(rhs[i]));
+                return;
+            }
+            NonTerminal variable = nonTerminal(rhs[i]);
+            if (done != null) {
+                computeFirst(variable, done, visiting);
+            }
+            set.addAll(first.get(variable.ordinal()));
+            if (!nullable[variable.ordinal()]) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Computes the FOLLOW sets of the non-terminals (fixed point).
+     */
+    private void computeFollow() {
+        follow.get(getStart().ordinal()).add(LexicalUnit.EOS);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Rule rule : rules) {
+                for (int i = 0; i < rule.rhs.length; i++) {
+                    if (isTerminal(rule.rhs[i])) {
+                        continue;
+                    }
+                    Set<LexicalUnit> set = follow.get(rule.rhs[i] - TERMINALS);
+                    int size = set.size();
+                    addFirst(set, rule.rhs, i + 1, null, null);
+                    if (nullable(rule.rhs, i + 1)) {
+                        set.addAll(follow.get(rule.lhs.ordinal()));
+                    }
+                    changed |= set.size() != size;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills the LL(1) action table with the PREDICT set of each rule.
+     *
+     * @throws IllegalArgumentException if two rules of a non-terminal are predicted by the same terminal.
+     */
+    private void computeTable() {
+        for (int[] row : table) {
+            Arrays.fill(row, -1);
+        }
+        for (NonTerminal variable : VARIABLES) {
+            Set<LexicalUnit> terminals = new LinkedHashSet<>();
+            for (int index : rulesOf.get(variable.ordinal())) {
+                Rule rule = rules.get(index);
+                Set<LexicalUnit> predict = new LinkedHashSet<>();
+                addFirst(predict, rule.rhs, 0, null, null);
+                if (nullable(rule.rhs, 0)) {
+                    predict.addAll(follow.get(variable.ordinal()));
+                }
+                for (LexicalUnit unit : predict) {
+                    int previous = table[variable.ordinal()][unit.ordinal()];
+                    if (previous >= 0) {
+                        throw new IllegalArgumentException(String.format("The grammar is not LL(1): rules [%d] and [%d] are both predicted by %s", rules.get(previous).number, rule.number, unit));
+                    }
+                    table[variable.ordinal()][unit.ordinal()] = index;
+                }
+                terminals.addAll(predict);
+            }
+            expected.add(Collections.unmodifiableList(new ArrayList<>(terminals)));
+            if (rulesOf.get(variable.ordinal()).size() == 1) {
+                // As in the recursive descent, a single rule is applied whatever the look-ahead: a wrong token is
+                // reported further, by the first non-terminal with a choice or by the first terminal to match
+                Arrays.fill(table[variable.ordinal()], rulesOf.get(variable.ordinal()).get(0));
+            }
+        }
+    }
+}
@@ -0,0 +1,830 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Intermediate representation of a PascalMaisPresque program between its {@link AST AST} and the text of its LLVM code.
+ *
+ * A {@link Function Function} is a list of {@link Block basic blocks}, each being a list of {@link Instruction
+ * instructions} ending with a terminator (a branch or a return). Instructions are typed {@link Value values} whose
+ * operands are other instructions or {@link Constant constants}, so the data flow of the program is a graph of objects
+ * rather than names in a text. The blocks know their predecessors and successors in the control-flow graph, and
+ * {@link Dominators Dominators} computes the dominator tree of a function.
+ *
+ * The IR is built by {@link LLVM LLVM} from the AST and written as text by {@link IRPrinter IRPrinter}. Instructions and
+ * labels keep the indentation and the register numbers given by the generator, so that the text of an IR which was
+ * not transformed is exactly the one the generator always wrote.
+ */
+public final class IR {
+    private IR() {
+    }
+
+    /**
+     * Types of the values.
+     */
+    public enum Type {
+        I1("i1"), I32("i32"), I32_POINTER("i32*"), VOID("void");
+
+        /**
+         * The LLVM name of the type.
+         */
+        private final String name;
+
+        Type(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the LLVM name of the type.
+         *
+         * @return the name of the type in the text of the code.
+         */
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Operations of the instructions, with the type of their result.
+     */
+    public enum Opcode {
+        ALLOCA("alloca", Type.I32_POINTER),
+        LOAD("load", Type.I32),
+        STORE("store", Type.VOID),
+        ADD("add", Type.I32),
+        SUB("sub", Type.I32),
+        MUL("mul", Type.I32),
+        SDIV("sdiv", Type.I32),
+        ICMP_EQ("icmp eq", Type.I1),
+        ICMP_SLT("icmp slt", Type.I1),
+        AND("and", Type.I1),
+        OR("or", Type.I1),
+        READ("call i32 @readInt", Type.I32),
+        PRINT("call void @println", Type.VOID),
+        PHI("phi", Type.I32),
+        BR("br", Type.VOID),
+        COND_BR("br", Type.VOID),
+        RET("ret", Type.VOID);
+
+        /**
+         * The LLVM instruction (with the predicate of a comparison, or the callee of a call).
+         */
+        private final String keyword;
+        /**
+         * The type of the result.
+         */
+        private final Type type;
+
+        Opcode(String keyword, Type type) {
+            this.keyword = keyword;
+            this.type = type;
+        }
+
+        /**
+         * Returns the LLVM instruction of the operation.
+         *
+         * @return the keyword starting the instruction in the text of the code.
+         */
+        public String getKeyword() {
+            return keyword;
+        }
+
+        /**
+         * Returns the type of the result of the operation.
+         *
+         * @return the type, VOID for an instruction without result.
+         */
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Checks whether the operation ends a basic block.
+         *
+         * @return true for the branches and the return.
+         */
+        public boolean isTerminator() {
+            return this == BR || this == COND_BR || this == RET;
+        }
+
+        /**
+         * Checks whether the operation computes a value from two operands.
+         *
+         * @return true for the arithmetic, comparison and boolean operations.
+         */
+        public boolean isBinary() {
+            return ordinal() >= ADD.ordinal() && ordinal() <= OR.ordinal();
+        }
+
+        /**
+         * Returns the operation computing an arithmetic operator.
+         *
+         * @param operator the operator of an {@link AST.BinOp AST.BinOp}.
+         * @return the opcode of the instruction.
+         */
+        public static Opcode of(AST.Operator operator) {
+            switch (operator) {
+                case ADD:
+                    return ADD;
+                case SUB:
+                    return SUB;
+                case MUL:
+                    return MUL;
+                default:
+                    return SDIV;
+            }
+        }
+
+        /**
+         * Returns the operation computing a comparison.
+         *
+         * @param comparison the comparison of an {@link AST.Compare AST.Compare}.
+         * @return the opcode of the instruction.
+         */
+        public static Opcode of(AST.Comparison comparison) {
+            return comparison == AST.Comparison.EQUAL ? ICMP_EQ : ICMP_SLT;
+        }
+    }
+
+    /**
+     * A typed value: an operand of instructions.
+     */
+    public abstract static class Value {
+        /**
+         * The type of the value.
+         */
+        private final Type type;
+
+        protected Value(Type type) {
+            this.type = type;
+        }
+
+        /**
+         * Returns the type of the value.
+         *
+         * @return the value of attribute {@link type type}.
+         */
+        public Type getType() {
+            return type;
+        }
+    }
+
+    /**
+     * A constant integer or boolean.
+     */
+    public static final class Constant extends Value {
+        /**
+         * The boolean constant true.
+         */
+        public static final Constant TRUE = new Constant(Type.I1, 1);
+        /**
+         * The boolean constant false.
+         */
+        public static final Constant FALSE = new Constant(Type.I1, 0);
+
+        /**
+         * The value of the constant, 1 or 0 for a boolean.
+         */
+        private final int value;
+
+        private Constant(Type type, int value) {
+            super(type);
+            this.value = value;
+        }
+
+        /**
+         * Returns an integer constant.
+         *
+         * @param value the value of the constant.
+         * @return an i32 constant.
+         */
+        public static Constant i32(int value) {
+            return new Constant(Type.I32, value);
+        }
+
+        /**
+         * Returns a boolean constant.
+         *
+         * @param value the value of the constant.
+         * @return {@link #TRUE TRUE} or {@link #FALSE FALSE}.
+         */
+        public static Constant i1(boolean value) {
+            return value ? TRUE : FALSE;
+        }
+
+        /**
+         * Returns the value of the constant.
+         *
+         * @return the integer value, 1 or 0 for a boolean.
+         */
+        public int getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Constant && ((Constant) other).getType() == getType() && ((Constant) other).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * getType().hashCode() + value;
+        }
+    }
+
+    /**
+     * An instruction, whose result (if any) is a value.
+     *
+     * The result is named after a variable for an alloca, and numbered otherwise. A branch has its target blocks, and
+     * a phi the block each of its operands comes from.
+     */
+    public static final class Instruction extends Value {
+        private final Opcode opcode;
+        private final List<Value> operands;
+        private final List<Block> blocks;
+        /**
+         * The name of the result of an alloca, null for the other instructions.
+         */
+        private final String name;
+        /**
+         * The number of the result given by the generator, 0 if the instruction has none.
+         */
+        private int number;
+        /**
+         * Number of tabulations before the instruction in the text of the code.
+         */
+        private int indentation;
+        /**
+         * The block containing the instruction, null if it is not in a block.
+         */
+        private Block block;
+
+        private Instruction(Opcode opcode, Type type, String name, int number, List<Value> operands, List<Block> blocks) {
+            super(type);
+            this.opcode = opcode;
+            this.name = name;
+            this.number = number;
+            this.operands = operands;
+            this.blocks = blocks;
+        }
+
+        /**
+         * Creates the allocation of a variable.
+         *
+         * @param name the name of the variable.
+         * @return the instruction <code>%name = alloca i32</code>.
+         */
+        public static Instruction alloca(String name) {
+            return new Instruction(Opcode.ALLOCA, Type.I32_POINTER, name, 0, new ArrayList<Value>(), new ArrayList<Block>());
+        }
+
+        /**
+         * Creates the load of a variable.
+         *
+         * @param number the number of the result.
+         * @param variable the alloca of the variable.
+         * @return the instruction <code>%number = load i32, i32* variable</code>.
+         */
+        public static Instruction load(int number, Value variable) {
+            return create(Opcode.LOAD, number, variable);
+        }
+
+        /**
+         * Creates the store of a value in a variable.
+         *
+         * @param value the stored value.
+         * @param variable the alloca of the variable.
+         * @return the instruction <code>store i32 value, i32* variable</code>.
+         */
+        public static Instruction store(Value value, Value variable) {
+            return create(Opcode.STORE, 0, value, variable);
+        }
+
+        /**
+         * Creates an arithmetic, comparison or boolean operation.
+         *
+         * @param opcode the binary operation.
+         * @param number the number of the result.
+         * @param left the left operand.
+         * @param right the right operand.
+         * @return the instruction <code>%number = opcode type left, right</code>.
+         */
+        public static Instruction binary(Opcode opcode, int number, Value left, Value right) {
+            return create(opcode, number, left, right);
+        }
+
+        /**
+         * Creates a call reading an integer.
+         *
+         * @param number the number of the result.
+         * @return the instruction <code>%number = call i32 @readInt()</code>.
+         */
+        public static Instruction read(int number) {
+            return create(Opcode.READ, number);
+        }
+
+        /**
+         * Creates a call printing an integer.
+         *
+         * @param value the printed value.
+         * @return the instruction <code>call void @println(i32 value)</code>.
+         */
+        public static Instruction print(Value value) {
+            return create(Opcode.PRINT, 0, value);
+        }
+
+        /**
+         * Creates a phi without incoming values yet.
+         *
+         * @param type the type of the merged values.
+         * @param number the number of the result.
+         * @return the instruction <code>%number = phi type</code>.
+         */
+        public static Instruction phi(Type type, int number) {
+            return new Instruction(Opcode.PHI, type, null, number, new ArrayList<Value>(), new ArrayList<Block>());
+        }
+
+        /**
+         * Creates an unconditional branch.
+         *
+         * @param target the block to jump to.
+         * @return the instruction <code>br label %target</code>.
+         */
+        public static Instruction branch(Block target) {
+            return new Instruction(Opcode.BR, Type.VOID, null, 0, new ArrayList<Value>(), new ArrayList<Block>(Arrays.asList(target)));
+        }
+
+        /**
+         * Creates a conditional branch.
+         *
+         * @param condition the i1 value choosing the target.
+         * @param ifTrue the block to jump to when the condition is true.
+         * @param ifFalse the block to jump to when the condition is false.
+         * @return the instruction <code>br i1 condition, label %ifTrue, label %ifFalse</code>.
+         */
+        public static Instruction branch(Value condition, Block ifTrue, Block ifFalse) {
+            return new Instruction(Opcode.COND_BR, Type.VOID, null, 0, new ArrayList<Value>(Arrays.asList(condition)),
+                    new ArrayList<Block>(Arrays.asList(ifTrue, ifFalse)));
+        }
+
+        /**
+         * Creates the return of a value.
+         *
+         * @param value the returned value.
+         * @return the instruction <code>ret i32 value</code>.
+         */
+        public static Instruction ret(Value value) {
+            return create(Opcode.RET, 0, value);
+        }
+
+        /**
+         * Creates an instruction whose type is the one of its operation, without target blocks.
+         *
+         * @param opcode the operation.
+         * @param number the number of the result, 0 if none.
+         * @param operands the operands.
+         * @return the instruction.
+         */
+        private static Instruction create(Opcode opcode, int number, Value... operands) {
+            return new Instruction(opcode, opcode.getType(), null, number, new ArrayList<Value>(Arrays.asList(operands)), new ArrayList<Block>());
+        }
+
+        /**
+         * Returns the operation of the instruction.
+         *
+         * @return the value of attribute {@link opcode opcode}.
+         */
+        public Opcode getOpcode() {
+            return opcode;
+        }
+
+        /**
+         * Returns the operands of the instruction.
+         *
+         * @return an unmodifiable view of the operands.
+         */
+        public List<Value> getOperands() {
+            return Collections.unmodifiableList(operands);
+        }
+
+        /**
+         * Returns an operand of the instruction.
+         *
+         * @param index the index of the operand.
+         * @return the operand.
+         */
+        public Value getOperand(int index) {
+            return operands.get(index);
+        }
+
+        /**
+         * Replaces an operand of the instruction.
+         *
+         * @param index the index of the operand.
+         * @param value the new operand.
+         */
+        public void setOperand(int index, Value value) {
+            operands.set(index, value);
+        }
+
+        /**
+         * Returns the target blocks of a branch, or the incoming blocks of a phi.
+         *
+         * @return an unmodifiable view of the blocks.
+         */
+        public List<Block> getBlocks() {
+            return Collections.unmodifiableList(blocks);
+        }
+
+        /**
+         * Replaces a target block of a branch, or an incoming block of a phi.
+         *
+         * @param index the index of the block.
+         * @param block the new block.
+         */
+        public void setBlock(int index, Block block) {
+            blocks.set(index, block);
+        }
+
+        /**
+         * Adds an incoming value to a phi.
+         *
+         * @param value the value of the phi when the control comes from the block.
+         * @param predecessor the block the control comes from.
+         */
+        public void addIncoming(Value value, Block predecessor) {
+            operands.add(value);
+            blocks.add(predecessor);
+        }
+
+        /**
+         * Removes an incoming value of a phi.
+         *
+         * @param index the index of the incoming value.
+         */
+        public void removeIncoming(int index) {
+            operands.remove(index);
+            blocks.remove(index);
+        }
+
+        /**
+         * Returns the name of the result of an alloca.
+         *
+         * @return the name of the variable, null for the other instructions.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the number of the result given by the generator.
+         *
+         * @return the number, 0 if the instruction has no numbered result.
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * Returns the indentation of the instruction in the text of the code.
+         *
+         * @return the number of tabulations.
+         */
+        public int getIndentation() {
+            return indentation;
+        }
+
+        /**
+         * Sets the indentation of the instruction in the text of the code.
+         *
+         * @param indentation the number of tabulations.
+         */
+        public void setIndentation(int indentation) {
+            this.indentation = indentation;
+        }
+
+        /**
+         * Returns the block containing the instruction.
+         *
+         * @return the block, null if the instruction is not in a block.
+         */
+        public Block getBlock() {
+            return block;
+        }
+
+        /**
+         * Checks whether the instruction does more than computing its result: reading or printing an integer,
+         * storing, ending the block, or dividing by a value which may be 0 or -1, which fails at run time.
+         *
+         * @return false iff the instruction can be removed when its result is not used, or run when it would not be.
+         */
+        public boolean hasSideEffects() {
+            switch (opcode) {
+                case ALLOCA:
+                case LOAD:
+                case PHI:
+                    return false;
+                case SDIV:
+                    Value divisor = operands.get(1);
+                    return !(divisor instanceof Constant) || ((Constant) divisor).getValue() == 0
+                            || ((Constant) divisor).getValue() == -1;
+                default:
+                    return !opcode.isBinary();
+            }
+        }
+    }
+
+    /**
+     * A basic block: a label and a list of instructions, only the last one being a terminator.
+     */
+    public static final class Block {
+        /**
+         * The label of the block, null for the entry block which is not labelled.
+         */
+        private final String label;
+        /**
+         * Number of tabulations before the label in the text of the code.
+         */
+        private int indentation;
+        private final List<Instruction> instructions = new ArrayList<Instruction>();
+        private final List<Block> predecessors = new ArrayList<Block>();
+        private final List<Block> successors = new ArrayList<Block>();
+
+        /**
+         * Creates an empty block.
+         *
+         * @param label the label of the block, null for the entry block.
+         * @param indentation the number of tabulations before the label.
+         */
+        public Block(String label, int indentation) {
+            this.label = label;
+            this.indentation = indentation;
+        }
+
+        /**
+         * Returns the label of the block.
+         *
+         * @return the label, null for the entry block.
+         */
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Returns the indentation of the label in the text of the code.
+         *
+         * @return the number of tabulations.
+         */
+        public int getIndentation() {
+            return indentation;
+        }
+
+        /**
+         * Sets the indentation of the label in the text of the code.
+         *
+         * @param indentation the number of tabulations.
+         */
+        public void setIndentation(int indentation) {
+            this.indentation = indentation;
+        }
+
+        /**
+         * Returns the instructions of the block.
+         *
+         * @return an unmodifiable view of the instructions, in order.
+         */
+        public List<Instruction> getInstructions() {
+            return Collections.unmodifiableList(instructions);
+        }
+
+        /**
+         * Appends an instruction to the block.
+         *
+         * @param instruction an instruction which is not in a block.
+         */
+        public void add(Instruction instruction) {
+            add(instructions.size(), instruction);
+        }
+
+        /**
+         * Inserts an instruction in the block.
+         *
+         * @param index the position of the instruction in the block.
+         * @param instruction an instruction which is not in a block.
+         */
+        public void add(int index, Instruction instruction) {
+            instructions.add(index, instruction);
+            instruction.block = this;
+        }
+
+        /**
+         * Removes an instruction from the block.
+         *
+         * @param instruction an instruction of the block.
+         */
+        public void remove(Instruction instruction) {
+            instructions.remove(instruction);
+            instruction.block = null;
+        }
+
+        /**
+         * Removes the instructions for which a predicate holds, in a single pass.
+         *
+         * @param removed the predicate selecting the instructions to remove.
+         */
+        public void removeIf(Predicate<Instruction> removed) {
+            instructions.removeIf(instruction -> {
+                if (removed.test(instruction)) {
+                    instruction.block = null;
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        /**
+         * Removes the incoming values of the phis of the block coming from a block which no longer branches to it.
+         *
+         * @param predecessor the former predecessor.
+         */
+        public void forgetPredecessor(Block predecessor) {
+            for (Instruction instruction : instructions) {
+                if (instruction.getOpcode() != Opcode.PHI) {
+                    break;
+                }
+                for (int i = instruction.blocks.size() - 1; i >= 0; i--) {
+                    if (instruction.blocks.get(i) == predecessor) {
+                        instruction.removeIncoming(i);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the terminator of the block.
+         *
+         * @return the last instruction if it ends the block, null otherwise.
+         */
+        public Instruction getTerminator() {
+            if (instructions.isEmpty()) {
+                return null;
+            }
+            Instruction last = instructions.get(instructions.size() - 1);
+            return last.getOpcode().isTerminator() ? last : null;
+        }
+
+        /**
+         * Returns the blocks from which the control can reach this one.
+         *
+         * @return an unmodifiable view of the predecessors, as of the last {@link Function#updateEdges() update}.
+         */
+        public List<Block> getPredecessors() {
+            return Collections.unmodifiableList(predecessors);
+        }
+
+        /**
+         * Returns the blocks the control can reach from this one.
+         *
+         * @return an unmodifiable view of the successors, as of the last {@link Function#updateEdges() update}.
+         */
+        public List<Block> getSuccessors() {
+            return Collections.unmodifiableList(successors);
+        }
+    }
+
+    /**
+     * A function: its blocks, the first one being the entry.
+     */
+    public static final class Function {
+        /**
+         * The name of the function, without the @.
+         */
+        private final String name;
+        private final List<Block> blocks = new ArrayList<Block>();
+        /**
+         * Number of tabulations before the closing brace in the text of the code.
+         */
+        private int closingIndentation;
+
+        /**
+         * Creates a function without blocks.
+         *
+         * @param name the name of the function, without the @.
+         */
+        public Function(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Returns the name of the function.
+         *
+         * @return the value of attribute {@link name name}.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the blocks of the function.
+         *
+         * @return an unmodifiable view of the blocks, in the order of the text.
+         */
+        public List<Block> getBlocks() {
+            return Collections.unmodifiableList(blocks);
+        }
+
+        /**
+         * Returns the entry block of the function.
+         *
+         * @return the first block.
+         */
+        public Block getEntry() {
+            return blocks.get(0);
+        }
+
+        /**
+         * Appends a block to the function.
+         *
+         * @param block the new block.
+         */
+        public void add(Block block) {
+            blocks.add(block);
+        }
+
+        /**
+         * Inserts a block in the function.
+         *
+         * @param index the position of the block in the text, after the entry.
+         * @param block the new block.
+         */
+        public void add(int index, Block block) {
+            blocks.add(index, block);
+        }
+
+        /**
+         * Counts the instructions of the function.
+         *
+         * @return the number of instructions of all the blocks.
+         */
+        public int getInstructionCount() {
+            int count = 0;
+            for (Block block : blocks) {
+                count += block.instructions.size();
+            }
+            return count;
+        }
+
+        /**
+         * Removes the blocks for which a predicate holds.
+         *
+         * @param removed the predicate selecting the blocks to remove.
+         */
+        public void removeIf(Predicate<Block> removed) {
+            blocks.removeIf(removed);
+        }
+
+        /**
+         * Returns the indentation of the closing brace in the text of the code.
+         *
+         * @return the number of tabulations.
+         */
+        public int getClosingIndentation() {
+            return closingIndentation;
+        }
+
+        /**
+         * Sets the indentation of the closing brace in the text of the code.
+         *
+         * @param closingIndentation the number of tabulations.
+         */
+        public void setClosingIndentation(int closingIndentation) {
+            this.closingIndentation = closingIndentation;
+        }
+
+        /**
+         * Computes the predecessors and successors of the blocks from their terminators. To be called whenever a
+         * branch or a block is added or removed.
+         */
+        public void updateEdges() {
+            for (Block block : blocks) {
+                block.predecessors.clear();
+                block.successors.clear();
+            }
+            for (Block block : blocks) {
+                Instruction terminator = block.getTerminator();
+                if (terminator == null) {
+                    continue;
+                }
+                for (Block successor : terminator.getBlocks()) {
+                    // Both targets of a conditional branch may be the same block, which is one edge
+                    if (!block.successors.contains(successor)) {
+                        block.successors.add(successor);
+                        successor.predecessors.add(block);
+                    }
+                }
+            }
+        }
+    }
+}
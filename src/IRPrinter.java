@@ -0,0 +1,198 @@
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Writes the {@link IR IR} of a program as the text of an LLVM module.
+ *
+ * The module starts with the definitions of the functions reading and printing integers, followed by the function of
+ * the program. Each instruction and label is indented as recorded in the IR. The numbered results keep the numbers
+ * given by the generator, unless the printer renumbers them in the order of the text, as LLVM requires once
+ * instructions have been removed or added.
+ */
+public class IRPrinter {
+    /**
+     * Definition of the function reading an integer from the input.
+     */
+    private static final String READ_FUNCTION = "@.strR = private unnamed_addr constant [3 x i8] c\"%d\\00\", align 1\n"
+            + "\n"
+            + "define i32 @readInt() {\n"
+            + "  %x = alloca i32, align 4\n"
+            + "  %1 = call i32 (i8*, ...) @__isoc99_scanf(i8* getelementptr inbounds ([3 x i8], [3 x i8]* @.strR, i32 0, i32 0), i32* %x)\n"
+            + "  %2 = load i32, i32* %x, align 4\n"
+            + "  ret i32 %2\n"
+            + "}\n"
+            + "declare i32 @__isoc99_scanf(i8*, ...)";
+    /**
+     * Definition of the function printing an integer on a line of the output.
+     */
+    private static final String PRINT_FUNCTION = "@.strP = private unnamed_addr constant [4 x i8] c\"%d\\0A\\00\", align 1\n"
+            + "\n"
+            + "; Function Attrs: nounwind uwtable\n"
+            + "define void @println(i32 %x) #0 {\n"
+            + "  %1 = alloca i32, align 4\n"
+            + "  store i32 %x, i32* %1, align 4\n"
+            + "  %2 = load i32, i32* %1, align 4\n"
+            + "  %3 = call i32 (i8*, ...) @printf(i8* getelementptr inbounds ([4 x i8], [4 x i8]* @.strP, i32 0, i32 0), i32 %2)\n"
+            + "  ret void\n"
+            + "}\n"
+            + "\n"
+            + "declare i32 @printf(i8*, ...) #1;\n"
+            + "\n";
+
+    /**
+     * Whether the numbered results are renumbered in the order of the text.
+     */
+    private final boolean renumber;
+    /**
+     * The numbers of the results when they are renumbered.
+     */
+    private final Map<IR.Instruction, Integer> numbers = new IdentityHashMap<IR.Instruction, Integer>();
+    /**
+     * The text being written.
+     */
+    private final StringBuilder code = new StringBuilder();
+
+    /**
+     * Creates a printer.
+     *
+     * @param renumber whether the numbered results are renumbered 1, 2, 3... in the order of the text, instead of
+     *                 keeping the numbers given by the generator.
+     */
+    public IRPrinter(boolean renumber) {
+        this.renumber = renumber;
+    }
+
+    /**
+     * Writes the module of a program.
+     *
+     * @param function the main function of the program.
+     * @return the text of the LLVM module.
+     */
+    public String print(IR.Function function) {
+        code.setLength(0);
+        numbers.clear();
+        if (renumber) {
+            int next = 1;
+            for (IR.Block block : function.getBlocks()) {
+                for (IR.Instruction instruction : block.getInstructions()) {
+                    if (instruction.getNumber() != 0) {
+                        numbers.put(instruction, next++);
+                    }
+                }
+            }
+        }
+        code.append(READ_FUNCTION).append(PRINT_FUNCTION);
+        code.append("define i32 @").append(function.getName()).append("() {\n");
+        for (IR.Block block : function.getBlocks()) {
+            if (block.getLabel() != null) {
+                indent(block.getIndentation());
+                code.append(block.getLabel()).append(":\n");
+            }
+            for (IR.Instruction instruction : block.getInstructions()) {
+                indent(instruction.getIndentation());
+                printInstruction(instruction);
+                code.append('\n');
+            }
+        }
+        indent(function.getClosingIndentation());
+        code.append("}\n");
+        return code.toString();
+    }
+
+    /**
+     * Writes an instruction, without its indentation and end of line.
+     *
+     * @param instruction the instruction.
+     */
+    private void printInstruction(IR.Instruction instruction) {
+        IR.Opcode opcode = instruction.getOpcode();
+        if (instruction.getType() != IR.Type.VOID) {
+            code.append(reference(instruction)).append(" = ");
+        }
+        switch (opcode) {
+            case ALLOCA:
+                code.append("alloca i32");
+                break;
+            case LOAD:
+                code.append("load i32, i32* ").append(reference(instruction.getOperand(0)));
+                break;
+            case STORE:
+                code.append("store i32 ").append(reference(instruction.getOperand(0)))
+                    .append(", i32* ").append(reference(instruction.getOperand(1)));
+                break;
+            case READ:
+                code.append(opcode.getKeyword()).append("()");
+                break;
+            case PRINT:
+                code.append(opcode.getKeyword()).append("(i32 ").append(reference(instruction.getOperand(0))).append(")");
+                break;
+            case PHI:
+                code.append("phi ").append(instruction.getType().getName());
+                for (int i = 0; i < instruction.getOperands().size(); i++) {
+                    code.append(i == 0 ? " " : ", ")
+                        .append("[ ").append(reference(instruction.getOperand(i)))
+                        .append(", %").append(label(instruction.getBlocks().get(i))).append(" ]");
+                }
+                break;
+            case BR:
+                code.append("br label %").append(label(instruction.getBlocks().get(0)));
+                break;
+            case COND_BR:
+                code.append("br i1 ").append(reference(instruction.getOperand(0)))
+                    .append(", label %").append(label(instruction.getBlocks().get(0)))
+                    .append(", label %").append(label(instruction.getBlocks().get(1)));
+                break;
+            case RET:
+                code.append("ret i32 ").append(reference(instruction.getOperand(0)));
+                break;
+            default:
+                // Binary operations, whose operands have the same type
+                IR.Value left = instruction.getOperand(0);
+                code.append(opcode.getKeyword()).append(' ').append(left.getType().getName()).append(' ')
+                    .append(reference(left)).append(", ").append(reference(instruction.getOperand(1)));
+                break;
+        }
+    }
+
+    /**
+     * Returns the text of a value used as an operand.
+     *
+     * @param value a constant or the result of an instruction.
+     * @return the literal of the constant, or the name of the result.
+     */
+    private String reference(IR.Value value) {
+        if (value instanceof IR.Constant) {
+            IR.Constant constant = (IR.Constant) value;
+            if (constant.getType() == IR.Type.I1) {
+                return constant.getValue() != 0 ? "true" : "false";
+            }
+            return String.valueOf(constant.getValue());
+        }
+        IR.Instruction instruction = (IR.Instruction) value;
+        if (instruction.getName() != null) {
+            return "%" + instruction.getName();
+        }
+        return "%" + (renumber ? numbers.get(instruction) : instruction.getNumber());
+    }
+
+    /**
+     * Returns the name of a block used as an operand.
+     *
+     * @param block a block.
+     * @return its label, or 0 for the entry block, which LLVM numbers implicitly before the results.
+     */
+    private static String label(IR.Block block) {
+        return block.getLabel() != null ? block.getLabel() : "0";
+    }
+
+    /**
+     * Writes the tabulations before a line.
+     *
+     * @param indentation the number of tabulations.
+     */
+    private void indent(int indentation) {
+        for (int i = 0; i < indentation; i++) {
+            code.append('\t');
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * A variable name interned by an {@link IdentifierTable IdentifierTable}.
+ *
+ * There is exactly one Identifier per distinct name of a program, so identifiers can be compared by reference
+ * and their dense integer id can be used as an index in arrays or bit sets.
+ */
+public class Identifier {
+    /**
+     * The dense integer id of the identifier, in order of first appearance.
+     */
+    private final int id;
+
+    /**
+     * The name of the variable.
+     */
+    private final String name;
+
+    /**
+     * Creates an identifier. Identifiers are only created by the {@link IdentifierTable IdentifierTable}.
+     *
+     * @param id the dense integer id of the identifier.
+     * @param name the name of the variable.
+     */
+    Identifier(int id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    /**
+     * Returns the id of the identifier.
+     *
+     * @return the value of attribute {@link id id}.
+     */
+    public int getId() {
+        return this.id;
+    }
+
+    /**
+     * Returns the name of the identifier.
+     *
+     * @return the value of attribute {@link name name}.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Returns the name of the variable, so that identifiers are displayed like the names they replace.
+     *
+     * @return the name of the variable.
+     */
+    @Override
+    public String toString() {
+        return this.name;
+    }
+}
@@ -0,0 +1,212 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Table interning the variable names of a program into {@link Identifier Identifier} objects with dense integer ids.
+ *
+ * Names are looked up directly in the scan buffer of the lexer (open addressing with linear probing), so a String is
+ * only allocated the first time a name is met.
+ */
+public class IdentifierTable {
+    /**
+     * Initial number of slots of the hash table (a power of two).
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Hash table of the identifiers, null for an empty slot.
+     */
+    private Identifier[] slots = new Identifier[INITIAL_CAPACITY];
+
+    /**
+     * Hash of the name stored in the slot with the same index.
+     */
+    private int[] hashes = new int[INITIAL_CAPACITY];
+
+    /**
+     * Identifiers indexed by their id.
+     */
+    private Identifier[] byId = new Identifier[INITIAL_CAPACITY];
+
+    /**
+     * Number of identifiers in the table.
+     */
+    private int size = 0;
+
+    /**
+     * Returns the identifier of the name stored in buffer[offset..offset+length), creating it if the name is new.
+     *
+     * @param buffer the characters containing the name.
+     * @param offset the position of the first character of the name.
+     * @param length the number of characters of the name.
+     * @return the unique Identifier of this name.
+     */
+    public Identifier intern(char[] buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            Identifier identifier = slots[slot];
+            if (identifier == null) {
+                return add(slot, hash, new String(buffer, offset, length));
+            }
+            if (hashes[slot] == hash && sameName(identifier.getName(), buffer, offset, length)) {
+                return identifier;
+            }
+        }
+    }
+
+    /**
+     * Returns the identifier of the ASCII name stored in buffer[offset..offset+length), creating it if the name is new.
+     *
+     * Same as {@link #intern(char[], int, int) intern} for a scanner working on the bytes of an ASCII source.
+     *
+     * @param buffer the bytes containing the name.
+     * @param offset the position of the first byte of the name.
+     * @param length the number of bytes of the name.
+     * @return the unique Identifier of this name.
+     */
+    public Identifier intern(ByteBuffer buffer, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int mask = slots.length - 1;
+        for (int slot = mix(hash) & mask; ; slot = (slot + 1) & mask) {
+            Identifier identifier = slots[slot];
+            if (identifier == null) {
+                return add(slot, hash, StandardCharsets.US_ASCII.decode(buffer.slice(offset, length)).toString());
+            }
+            if (hashes[slot] == hash && sameName(identifier.getName(), buffer, offset, length)) {
+                return identifier;
+            }
+        }
+    }
+
+    /**
+     * Returns the identifier of the given name, creating it if the name is new.
+     *
+     * @param name the name of the variable.
+     * @return the unique Identifier of this name.
+     */
+    public Identifier intern(String name) {
+        return intern(name.toCharArray(), 0, name.length());
+    }
+
+    /**
+     * Returns the identifier with the given id.
+     *
+     * @param id the id of the identifier.
+     * @return the Identifier with this id.
+     */
+    public Identifier get(int id) {
+        return byId[id];
+    }
+
+    /**
+     * Returns the number of distinct names in the table.
+     *
+     * @return the value of attribute {@link size size}.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Spreads the bits of a String-like hash so that names differing in their last characters use distant slots.
+     *
+     * @param hash the hash of the name.
+     * @return the mixed hash.
+     */
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Compares a name with the characters stored in a buffer.
+     *
+     * @param name the name to compare.
+     * @param buffer the characters to compare to.
+     * @param offset the position of the first character in buffer.
+     * @param length the number of characters to compare.
+     * @return true iff the name is exactly buffer[offset..offset+length).
+     */
+    private static boolean sameName(String name, char[] buffer, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares a name with the ASCII characters stored in a byte buffer.
+     *
+     * @param name the name to compare.
+     * @param buffer the bytes to compare to.
+     * @param offset the position of the first byte in buffer.
+     * @param length the number of bytes to compare.
+     * @return true iff the name is exactly buffer[offset..offset+length).
+     */
+    private static boolean sameName(String name, ByteBuffer buffer, int offset, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != buffer.get(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a new identifier in the given free slot, growing the table when it becomes half full.
+     *
+     * @param slot the free slot where the name belongs.
+     * @param hash the hash of the name.
+     * @param name the name of the variable.
+     * @return the new Identifier.
+     */
+    private Identifier add(int slot, int hash, String name) {
+        Identifier identifier = new Identifier(size, name);
+        if (size == byId.length) {
+            byId = Arrays.copyOf(byId, 2 * size);
+        }
+        byId[size++] = identifier;
+        slots[slot] = identifier;
+        hashes[slot] = hash;
+        if (2 * size > slots.length) {
+            rehash();
+        }
+        return identifier;
+    }
+
+    /**
+     * Doubles the number of slots of the hash table.
+     */
+    private void rehash() {
+        Identifier[] oldSlots = slots;
+        int[] oldHashes = hashes;
+        slots = new Identifier[2 * oldSlots.length];
+        hashes = new int[2 * oldSlots.length];
+        int mask = slots.length - 1;
+        for (int i = 0; i < oldSlots.length; i++) {
+            if (oldSlots[i] != null) {
+                int slot = mix(oldHashes[i]) & mask;
+                while (slots[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = oldSlots[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loop-invariant code motion: moves the computations which give the same value at each iteration of a
+ * {@link Loops.Loop loop} out of it, so that they run once before the loop.
+ *
+ * An instruction of a loop is invariant when it has no {@link IR.Instruction#hasSideEffects() side effect} and its
+ * operands are constants, values computed outside the loop, or invariant themselves. A load is invariant when the
+ * loop never stores the variable. Such an instruction can be run before the loop even if the loop would not have run
+ * it, as it can neither fail nor change anything. The phis are never invariant, as they merge the values of the
+ * iterations.
+ *
+ * The invariant instructions are moved to the end of the preheader of the loop: its only predecessor outside the
+ * loop, when this predecessor always branches to the header. Otherwise a new block <code>whileLoop_N.preheader</code>
+ * is inserted on the edge entering the loop. The loops entered from several blocks, which the generator never builds,
+ * are left alone. The inner loops are processed first, so that an instruction moved out of an inner loop can then
+ * be moved out of the loops containing it.
+ */
+public class LICM implements Pass {
+    /**
+     * Whether the last run inserted a block.
+     */
+    private boolean controlFlowChanged;
+
+    @Override
+    public String getName() {
+        return "licm";
+    }
+
+    /**
+     * Moves the invariant instructions out of the loops of a function.
+     *
+     * @param function a function whose edges are up to date.
+     * @param manager the pass manager.
+     * @return true iff an instruction was moved.
+     */
+    @Override
+    public boolean run(IR.Function function, PassManager manager) {
+        controlFlowChanged = false;
+        boolean changed = false;
+        Loops loops = manager.getAnalysis(Loops.ANALYSIS);
+        Map<Loops.Loop, Set<IR.Value>> stored = new IdentityHashMap<Loops.Loop, Set<IR.Value>>();
+        for (Loops.Loop loop : loops.getLoops()) {
+            // The inner loops come first, so the variables they store are already known
+            Set<IR.Value> variables = stored.computeIfAbsent(loop, key -> newIdentitySet());
+            for (IR.Block block : loop.getOwnBlocks()) {
+                for (IR.Instruction instruction : block.getInstructions()) {
+                    if (instruction.getOpcode() == IR.Opcode.STORE) {
+                        variables.add(instruction.getOperand(1));
+                    }
+                }
+            }
+            if (loop.getParent() != null) {
+                stored.computeIfAbsent(loop.getParent(), key -> newIdentitySet()).addAll(variables);
+            }
+            List<IR.Instruction> invariants = findInvariants(loop, variables);
+            stored.remove(loop);
+            if (invariants.isEmpty()) {
+                continue;
+            }
+            IR.Block preheader = getPreheader(function, loops, loop);
+            if (preheader == null) {
+                continue;
+            }
+            Set<IR.Instruction> moved = newIdentitySet();
+            moved.addAll(invariants);
+            for (IR.Block block : loop.getOwnBlocks()) {
+                block.removeIf(moved::contains);
+            }
+            int indentation = preheader.getTerminator().getIndentation();
+            for (IR.Instruction instruction : invariants) {
+                instruction.setIndentation(indentation);
+                preheader.add(preheader.getInstructions().size() - 1, instruction);
+            }
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * The loops and the dominator tree are only kept when no preheader was inserted.
+     */
+    @Override
+    public boolean preserves(Analysis<?> analysis) {
+        return (analysis == Dominators.ANALYSIS || analysis == Loops.ANALYSIS) && !controlFlowChanged;
+    }
+
+    /**
+     * Finds the invariant instructions of a loop.
+     *
+     * Only the blocks of the loop outside its nested loops are searched: an instruction left in a nested loop depends
+     * on a phi, a side effect or a load of a variable stored in the nested loop, which are all in this loop too. The
+     * instructions moved out of the nested loops are in the blocks searched.
+     *
+     * @param loop a loop of the function.
+     * @param stored the variables stored in the loop.
+     * @return the invariant instructions, each one after the invariant instructions it uses.
+     */
+    private static List<IR.Instruction> findInvariants(Loops.Loop loop, Set<IR.Value> stored) {
+        List<IR.Instruction> invariants = new ArrayList<IR.Instruction>();
+        Set<IR.Instruction> found = newIdentitySet();
+        // The blocks come after their dominators, so the operands of an instruction are checked before it
+        for (IR.Block block : loop.getOwnBlocks()) {
+            for (IR.Instruction instruction : block.getInstructions()) {
+                if (isInvariant(instruction, loop, found, stored)) {
+                    found.add(instruction);
+                    invariants.add(instruction);
+                }
+            }
+        }
+        return invariants;
+    }
+
+    /**
+     * Creates an empty set comparing its elements by identity.
+     *
+     * @return a new set.
+     */
+    private static <T> Set<T> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+    }
+
+    /**
+     * Checks whether an instruction of a loop computes the same value at each iteration.
+     *
+     * @param instruction an instruction of the loop.
+     * @param loop the loop.
+     * @param invariants the invariant instructions of the loop found so far.
+     * @param stored the variables stored in the loop.
+     * @return true iff the instruction is a binary operation or a load without side effect, whose operands are
+     *         constants or values computed outside the loop or invariant.
+     */
+    private static boolean isInvariant(IR.Instruction instruction, Loops.Loop loop, Set<IR.Instruction> invariants,
+                                       Set<IR.Value> stored) {
+        if (instruction.hasSideEffects()) {
+            return false;
+        }
+        if (instruction.getOpcode() == IR.Opcode.LOAD) {
+            if (stored.contains(instruction.getOperand(0))) {
+                return false;
+            }
+        } else if (!instruction.getOpcode().isBinary()) {
+            return false;
+        }
+        for (IR.Value operand : instruction.getOperands()) {
+            if (operand instanceof IR.Instruction && loop.contains(((IR.Instruction) operand).getBlock())
+                    && !invariants.contains(operand)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the preheader of a loop, inserting it if needed.
+     *
+     * @param function the function.
+     * @param loops the loops of the function, to which the inserted block is added.
+     * @param loop a loop of the function.
+     * @return the only predecessor of the header outside the loop, ending with a branch to the header, or null if
+     *         the loop is entered from several blocks.
+     */
+    private IR.Block getPreheader(IR.Function function, Loops loops, Loops.Loop loop) {
+        IR.Block header = loop.getHeader();
+        IR.Block entering = null;
+        for (IR.Block predecessor : header.getPredecessors()) {
+            if (!loop.contains(predecessor)) {
+                if (entering != null) {
+                    return null;
+                }
+                entering = predecessor;
+            }
+        }
+        if (entering == null) {
+            return null;
+        }
+        if (entering.getTerminator().getOpcode() == IR.Opcode.BR) {
+            return entering;
+        }
+        // The edge entering the loop is split
+        IR.Block preheader = new IR.Block(header.getLabel() + ".preheader", header.getIndentation());
+        IR.Instruction branch = IR.Instruction.branch(header);
+        branch.setIndentation(header.getInstructions().get(0).getIndentation());
+        preheader.add(branch);
+        IR.Instruction terminator = entering.getTerminator();
+        for (int i = 0; i < terminator.getBlocks().size(); i++) {
+            if (terminator.getBlocks().get(i) == header) {
+                terminator.setBlock(i, preheader);
+            }
+        }
+        for (IR.Instruction instruction : header.getInstructions()) {
+            if (instruction.getOpcode() != IR.Opcode.PHI) {
+                break;
+            }
+            for (int i = 0; i < instruction.getBlocks().size(); i++) {
+                if (instruction.getBlocks().get(i) == entering) {
+                    instruction.setBlock(i, preheader);
+                }
+            }
+        }
+        function.add(function.getBlocks().indexOf(header), preheader);
+        function.updateEdges();
+        loops.insert(preheader, entering);
+        controlFlowChanged = true;
+        return preheader;
+    }
+}
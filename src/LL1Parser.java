@@ -0,0 +1,242 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Table-driven parser for PascalMaisPresque.
+ *
+ * Unlike the recursive descent of {@link Parser Parser}, this parser runs the pushdown automaton itself: the symbols
+ * still to be matched are kept on an explicit stack, and the rule to apply to a non-terminal is read from the LL(1)
+ * action table of the {@link Grammar Grammar} described in <code>cfg.pmp</code>. The length and the nesting depth of
+ * the parsed programs are therefore only bounded by the heap, not by the size of the Java call stack.
+ *
+ * The derivation is reported to a {@link TreeBuilder TreeBuilder} in the same order as {@link Parser Parser} does:
+ * when a non-terminal is expanded, the symbols of the applied rule are pushed above an end marker (except the first
+ * one, which is expanded right away), and popping the marker ends the tree of the non-terminal.
+ */
+public class LL1Parser {
+    /**
+     * Initial capacity of the stack.
+     */
+    private static final int INITIAL_DEPTH = 64;
+    /**
+     * Marker pushed below the symbols of an applied rule: the end of the tree of the expanded non-terminal.
+     */
+    private static final int EXIT = -1;
+
+    /**
+     * The grammar of the language, with its action table.
+     */
+    private final Grammar grammar;
+    /**
+     * Copy of the action table of the grammar as a flat array: the rule to apply to a non-terminal on a look-ahead is
+     * at index ordinal(non-terminal) * {@link Grammar#TERMINALS Grammar.TERMINALS} + ordinal(look-ahead).
+     */
+    private final int[] actions;
+    /**
+     * Right-hand sides of the rules of the grammar, indexed like the rules.
+     */
+    private final int[][] rules;
+    /**
+     * Numbers of the rules of the grammar, as reported to the listener.
+     */
+    private final int[] numbers;
+    /**
+     * Listener notified of each applied rule, null if none.
+     */
+    private ParseListener listener;
+    /**
+     * Lexer object for the parsed file.
+     */
+    private LexicalAnalyzer scanner;
+    /**
+     * Current symbol at the head of the word to be read. This corresponds to the look-ahead (of length 1).
+     */
+    private Symbol current;
+    /**
+     * Packed tokens of the parsed file, or null when the tokens are read one by one from the lexer.
+     */
+    private TokenBuffer tokens;
+    /**
+     * Cursor in the packed tokens: index of the look-ahead.
+     */
+    private int position;
+
+    /**
+     * Encoded grammar symbols of the stack (see {@link Grammar Grammar}) or end markers, the top being at index depth-1.
+     */
+    private int[] symbols = new int[INITIAL_DEPTH];
+    /**
+     * Number of symbols on the stack.
+     */
+    private int depth = 0;
+
+    /**
+     * Creates a parser reading the tokens of the provided lexer and initializes the look-ahead.
+     *
+     * @param scanner the lexer of the parsed file.
+     * @throws IOException in case the lexing fails (syntax error) or the grammar cannot be read.
+     */
+    public LL1Parser(LexicalAnalyzer scanner) throws IOException {
+        this(Grammar.get());
+        this.scanner = scanner;
+        this.current = scanner.nextToken();
+    }
+
+    /**
+     * Creates a parser reading already scanned tokens, starting with the first one as look-ahead.
+     *
+     * @param tokens the packed tokens of the parsed file.
+     * @throws IOException if the grammar cannot be read.
+     */
+    public LL1Parser(TokenBuffer tokens) throws IOException {
+        this(Grammar.get());
+        this.tokens = tokens;
+        this.position = 0;
+        tokens.reach(position);
+    }
+
+    /**
+     * Creates a parser for a grammar, copying its tables in the layout used by {@link #parse() parse}.
+     *
+     * @param grammar the grammar of the language.
+     */
+    private LL1Parser(Grammar grammar) {
+        this.grammar = grammar;
+        this.actions = new int[NonTerminal.values().length * Grammar.TERMINALS];
+        for (NonTerminal variable : NonTerminal.values()) {
+            for (LexicalUnit unit : LexicalUnit.values()) {
+                actions[variable.ordinal() * Grammar.TERMINALS + unit.ordinal()] = grammar.action(variable, unit);
+            }
+        }
+        this.rules = new int[grammar.size()][];
+        this.numbers = new int[grammar.size()];
+        for (int i = 0; i < rules.length; i++) {
+            rules[i] = grammar.getRule(i).getRhs();
+            numbers[i] = grammar.getRule(i).getNumber();
+        }
+    }
+
+    /**
+     * Attaches a listener notified of each applied rule.
+     *
+     * @param listener the listener, or null to stop tracing the rules.
+     */
+    public void setListener(ParseListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the type of the look-ahead.
+     *
+     * @return the LexicalUnit of the current token.
+     */
+    private LexicalUnit lookahead() {
+        return tokens == null ? current.getType() : tokens.type(position);
+    }
+
+    /**
+     * Returns the look-ahead as a complete Symbol, with its position and value (used for error reporting).
+     *
+     * @return the Symbol of the current token.
+     */
+    private Symbol token() {
+        return tokens == null ? current : tokens.symbol(position);
+    }
+
+    /**
+     * Matches the look-ahead and advances in the input stream.
+     *
+     * @return the Symbol of the matched token, to be used as a leaf.
+     * @throws IOException in case the lexing fails (syntax error).
+     */
+    private Symbol consume() throws IOException {
+        Symbol leaf;
+        if (tokens == null) {
+            leaf = current;
+            current = scanner.nextToken();
+        } else {
+            leaf = tokens.leaf(position);
+            tokens.reach(++position);
+        }
+        return leaf;
+    }
+
+    /**
+     * Pushes a symbol on the stack.
+     *
+     * @param symbol the encoded grammar symbol, or the end marker.
+     */
+    private void push(int symbol) {
+        if (depth == symbols.length) {
+            symbols = Arrays.copyOf(symbols, 2 * depth);
+        }
+        symbols[depth++] = symbol;
+    }
+
+    /**
+     * Parses the file.
+     *
+     * @return a ParseTree containing the parsed file structured by the grammar rules.
+     * @throws IOException in case the lexing fails (syntax error).
+     * @throws ParseException in case the parsing fails (syntax error).
+     */
+    public ParseTree parse() throws IOException, ParseException {
+        ParseTreeArena builder = new ParseTreeArena();
+        parse(builder);
+        return builder.getTree();
+    }
+
+    /**
+     * Parses the file, reporting its derivation to a tree builder.
+     *
+     * As the recursive descent, the parser stops once the start symbol is derived, without checking that the end of
+     * the stream follows.
+     *
+     * @param builder the builder of the tree, for instance an {@link ASTBuilder ASTBuilder} to skip the parse tree.
+     * @throws IOException in case the lexing fails (syntax error).
+     * @throws ParseException in case the parsing fails (syntax error).
+     */
+    public void parse(TreeBuilder builder) throws IOException, ParseException {
+        push(Grammar.code(grammar.getStart()));
+        while (depth > 0) {
+            int symbol = symbols[--depth];
+            if (symbol == EXIT) {
+                builder.exit();
+                continue;
+            }
+            // Expand the leftmost symbol in place: only the other symbols of a rule go through the stack
+            while (!Grammar.isTerminal(symbol)) {
+                NonTerminal variable = Grammar.nonTerminal(symbol);
+                int index = actions[(symbol - Grammar.TERMINALS) * Grammar.TERMINALS + lookahead().ordinal()];
+                if (index < 0) {
+                    // The expected terminals are listed in the same order as by the recursive descent
+                    List<LexicalUnit> expected = Parser.expected(variable);
+                    throw new ParseException(token(), variable, expected != null ? expected : grammar.expected(variable));
+                }
+                if (listener != null) {
+                    listener.ruleApplied(numbers[index]);
+                }
+                builder.enter(variable);
+                int[] rhs = rules[index];
+                if (rhs.length == 0) {
+                    builder.epsilon();
+                    builder.exit();
+                    break;
+                }
+                push(EXIT);
+                for (int i = rhs.length - 1; i > 0; i--) {
+                    push(rhs[i]);
+                }
+                symbol = rhs[0];
+            }
+            if (Grammar.isTerminal(symbol)) {
+                LexicalUnit unit = Grammar.terminal(symbol);
+                if (lookahead() != unit) {
+                    throw new ParseException(token(), Arrays.asList(unit));
+                }
+                builder.leaf(consume());
+            }
+        }
+    }
+}
@@ -1,13 +1,58 @@
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * The LLVM class represents a code generator for LLVM intermediate representation.
- * It generates LLVM code based on an Abstract Syntax Tree (AST).
+ * It builds the {@link IR IR} of the main function from an Abstract Syntax Tree (AST), which
+ * {@link IRPrinter IRPrinter} writes as LLVM code.
+ *
+ * The tree is walked without recursion, so that the nesting depth of the program is only bounded by the heap.
+ * The nodes being generated are kept on an explicit stack of frames, each with the number of steps already done
+ * for its node. The generator visits the node of the top frame, and its visit method does the next step: it either
+ * schedules a child (which is generated completely before the node is visited again), or finishes the node.
+ * Expressions and conditions finish with the IR value holding their result, pushed on a stack of values where
+ * their parent pops them.
+ *
+ * The generator can also reuse the values of the expressions: when an expression node was already generated in the
+ * current basic block, and no variable it reads was stored since, its value is used again instead of being computed
+ * a second time. Expression nodes are the same object only when the AST shares them (see
+ * {@link ExpressionTable ExpressionTable}), so structurally identical expressions are then computed once per block.
+ *
+ * The conditions can also be evaluated with short circuits: instead of computing a boolean value, a condition is
+ * generated with the blocks to jump to when it is true and when it is false. Each comparison branches to them, and
+ * the right operand of an <code>and</code> (resp. <code>or</code>) gets its own block, only reached when the left
+ * operand is true (resp. false).
  */
-public class LLVM {
-    private AST ast;
-    private StringBuilder code = new StringBuilder();
-    private ArrayList<String> namedVariables = new ArrayList<>();
+public class LLVM implements ASTVisitor<IR.Value> {
+    /**
+     * Initial capacity of the stacks.
+     */
+    private static final int INITIAL_DEPTH = 64;
+    /**
+     * Read set of the expressions reading no variable.
+     */
+    private static final Identifier[] NO_VARIABLES = new Identifier[0];
+
+    private AST.Program ast;
+    private IR.Function function = new IR.Function("main");
+    /**
+     * The block instructions are appended to.
+     */
+    private IR.Block current;
+    /**
+     * The blocks of the labels, including those branched to but not reached yet.
+     */
+    private Map<String, IR.Block> blocks = new HashMap<String, IR.Block>();
+    /**
+     * The alloca of each variable, by identifier.
+     */
+    private Map<Identifier, IR.Instruction> namedVariables = new HashMap<Identifier, IR.Instruction>();
     private int numberedVariableCounter = 0;
     private int instructionCounter = 0;
     private int tabulation = 0;
@@ -17,570 +62,718 @@ public class LLVM {
     private String whileLoopLabel = "whileLoop_";
     private String whileBodyLabel = "whileBody_";
     private String whileEndLabel = "whileEnd_";
+    private String andRightLabel = "andRight_";
+    private String orRightLabel = "orRight_";
+    /**
+     * Number of the labels of the next conjunction or disjunction evaluated with a short circuit.
+     */
+    private int conditionCounter = 0;
+    /**
+     * Whether the conditions are evaluated with short circuits.
+     */
+    private final boolean shortCircuit;
 
-    public LLVM(AST ast) {
+    /**
+     * Nodes being generated, the current one being at index depth-1.
+     */
+    private AST[] frames = new AST[INITIAL_DEPTH];
+    /**
+     * Number of steps done for the node of the frame with the same index.
+     */
+    private int[] steps = new int[INITIAL_DEPTH];
+    /**
+     * Number kept by the frame with the same index between two steps (the number of the labels of a conditional or a
+     * loop).
+     */
+    private int[] notes = new int[INITIAL_DEPTH];
+    /**
+     * Block to jump to when the condition of the frame with the same index is true, null for a condition computing
+     * its value or another node.
+     */
+    private IR.Block[] whenTrue = new IR.Block[INITIAL_DEPTH];
+    /**
+     * Block to jump to when the condition of the frame with the same index is false.
+     */
+    private IR.Block[] whenFalse = new IR.Block[INITIAL_DEPTH];
+    /**
+     * Number of frames.
+     */
+    private int depth = 0;
+    /**
+     * Values of the generated expressions and conditions, not used by their parent yet.
+     */
+    private IR.Value[] values = new IR.Value[INITIAL_DEPTH];
+    /**
+     * Number of values.
+     */
+    private int valueCount = 0;
+
+    /**
+     * Values of the expressions computed in the current basic block and still valid, null if values are not reused.
+     */
+    private final Map<AST.Expression, IR.Value> available;
+    /**
+     * Variables read by each expression remembered once, sorted by id.
+     */
+    private final Map<AST.Expression, Identifier[]> readSets;
+    /**
+     * Expressions remembered in {@link #available available} reading each variable.
+     */
+    private final Map<Identifier, List<AST.Expression>> readers;
+
+    public LLVM(AST.Program ast) {
+        this(ast, false, false);
+    }
+
+    /**
+     * Generates the IR of a program.
+     * @param ast The AST of the program.
+     * @param reuseValues Whether the value of an expression node generated twice in a basic block is reused when
+     *                    no variable it reads was stored in between.
+     * @param shortCircuit Whether the evaluation of a condition stops as soon as its value is known.
+     */
+    public LLVM(AST.Program ast, boolean reuseValues, boolean shortCircuit) {
         this.ast = ast;
+        this.shortCircuit = shortCircuit;
+        this.available = reuseValues ? new IdentityHashMap<AST.Expression, IR.Value>() : null;
+        this.readSets = reuseValues ? new IdentityHashMap<AST.Expression, Identifier[]>() : null;
+        this.readers = reuseValues ? new HashMap<Identifier, List<AST.Expression>>() : null;
         generateCode(ast);
     }
 
     /**
-     * Generates LLVM code based on the given parse tree.
-     * Depending of the label of the parse tree, a different function is called.
-     * @param parseTree The parse tree representing the program.
-     */
-    public void generateCode(ParseTree parseTree) {
-        switch (parseTree.getLabel().getValue().toString()) {
-            case "Program":
-                program(parseTree);
-                break;
-            case "Code":
-                code(parseTree);
-                break;
-            case "InstList":
-                instlist(parseTree);
-                break;
-            case "Assign":
-                assign(parseTree);
-                break;
-            case "If":
-                if_(parseTree);
-                break;
-            case "While":
-                while_(parseTree);
-                break;
-            case "Print":
-                print(parseTree);
-                break;
-            case "Read":
-                read(parseTree);
-                break;
-            default:
-                throw new RuntimeException("Invalid rule");
+     * Generates the IR of the given node of the AST and all its subtree.
+     * @param node The node to generate code for.
+     * @return The IR value of an expression or a condition, null for a statement.
+     */
+    public IR.Value generateCode(AST node) {
+        int bottom = depth;
+        int valueBottom = valueCount;
+        schedule(node);
+        while (depth > bottom) {
+            frames[depth - 1].accept(this); //The node of the top frame does its next step
         }
+        return valueCount > valueBottom ? pop() : null;
     }
 
     /**
-     * Appends the given code to the LLVM code with proper tabulation.
-     * @param code the code to be added
+     * Pushes a frame for a node, which will be generated before the current node does its next step.
+     * @param node The node to generate code for.
      */
-    public void addCode(String code) {
-        for (int i = 0; i < tabulation; i++) {
-            this.code.append("\t");
+    private void schedule(AST node) {
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, 2 * depth);
+            steps = Arrays.copyOf(steps, 2 * depth);
+            notes = Arrays.copyOf(notes, 2 * depth);
+            whenTrue = Arrays.copyOf(whenTrue, 2 * depth);
+            whenFalse = Arrays.copyOf(whenFalse, 2 * depth);
         }
-        this.code.append(code);
+        frames[depth] = node;
+        steps[depth] = 0;
+        notes[depth] = 0;
+        whenTrue[depth] = null;
+        whenFalse[depth] = null;
+        depth++;
+    }
+
+    /**
+     * Pushes a frame for a condition evaluated with a short circuit, which branches to one of two blocks instead of
+     * computing its value.
+     * @param condition The node of the condition.
+     * @param ifTrue The block to jump to when the condition is true.
+     * @param ifFalse The block to jump to when the condition is false.
+     */
+    private void scheduleCondition(AST condition, IR.Block ifTrue, IR.Block ifFalse) {
+        schedule(condition);
+        whenTrue[depth - 1] = ifTrue;
+        whenFalse[depth - 1] = ifFalse;
     }
 
     /**
-     * Adds a named variable to the LLVM code and returns the variable name.
-     * If the variable is not already present, it is added to the list of named variables
-     * and the corresponding LLVM code is generated.
-     * @param varname the name of the variable to be added
-     * @return the name of the added variable
+     * Ends the generation of a condition, branching to the targets of its frame if it has some.
+     * @param value The i1 value of the condition.
+     * @return null, to be returned by the visit method.
      */
-    public String addNamedVariable(String varname) {
-        if(!this.namedVariables.contains(varname)){
-            this.namedVariables.add(varname);
-            addCode("%" + varname + " = alloca i32\n");
+    private IR.Value finishCondition(IR.Instruction value) {
+        if (whenTrue[depth - 1] == null) {
+            return finish(value);
         }
-        return varname;
+        addInstruction(IR.Instruction.branch(value, whenTrue[depth - 1], whenFalse[depth - 1]));
+        return finish(null);
     }
 
     /**
-        * Increments the numberedVariableCounter and returns the incremented value as a String for local variables.
-        * @return The incremented value of the numberedVariableCounter as a String.
-        */
-    public String addNumberedVariable() {
-        numberedVariableCounter++;
-        return String.valueOf(numberedVariableCounter);
+     * Returns the step to do for the current node, counting it as done.
+     * @return The number of steps already done for the node.
+     */
+    private int step() {
+        return steps[depth - 1]++;
     }
 
     /**
-     * Adds a read function to the LLVM code.
-     * The read function reads an integer from the input and returns it.
+     * Ends the generation of the current node.
+     * @param value The IR value of an expression or a condition, null for a statement.
+     * @return null, to be returned by the visit method.
      */
-    public void addReadFunction() {
-            code.append("@.strR = private unnamed_addr constant [3 x i8] c\"%d\\00\", align 1\n")
-                .append("\n")
-                .append("define i32 @readInt() {\n")
-                .append("  %x = alloca i32, align 4\n")
-                .append("  %1 = call i32 (i8*, ...) @__isoc99_scanf(i8* getelementptr inbounds ([3 x i8], [3 x i8]* @.strR, i32 0, i32 0), i32* %x)\n")
-                .append("  %2 = load i32, i32* %x, align 4\n")
-                .append("  ret i32 %2\n")
-                .append("}\n")
-                .append("declare i32 @__isoc99_scanf(i8*, ...)");
+    private IR.Value finish(IR.Value value) {
+        depth--;
+        frames[depth] = null;
+        whenTrue[depth] = null;
+        whenFalse[depth] = null;
+        if (value != null) {
+            if (valueCount == values.length) {
+                values = Arrays.copyOf(values, 2 * valueCount);
+            }
+            values[valueCount++] = value;
         }
+        return null;
+    }
 
     /**
-     * Adds a print function to the LLVM code.
-     * This function appends the necessary LLVM code to define a print function
-     * that prints an integer value to the console.
-     */
-    public void addPrintFunction() {
-        code.append("@.strP = private unnamed_addr constant [4 x i8] c\"%d\\0A\\00\", align 1\n")
-            .append("\n")
-            .append("; Function Attrs: nounwind uwtable\n")
-            .append("define void @println(i32 %x) #0 {\n")
-            .append("  %1 = alloca i32, align 4\n")
-            .append("  store i32 %x, i32* %1, align 4\n")
-            .append("  %2 = load i32, i32* %1, align 4\n")
-            .append("  %3 = call i32 (i8*, ...) @printf(i8* getelementptr inbounds ([4 x i8], [4 x i8]* @.strP, i32 0, i32 0), i32 %2)\n")
-            .append("  ret void\n")
-            .append("}\n")
-            .append("\n")
-            .append("declare i32 @printf(i8*, ...) #1;\n")
-            .append("\n");
-    }
-
-    /**
-     * Recursively allocates variables from the given parse tree.
-     * If a terminal node represents a variable name, it is added to the list of named variables.
-     * If a non-terminal node is encountered, the method is called recursively on its children.
-     * @param parseTree the parse tree to allocate variables from
-     */
-    public void allocateVariables(ParseTree parseTree) {
-        for (ParseTree grandchild : parseTree.getChildren()) {
-            if (grandchild.getLabel().isTerminal() && grandchild.getLabel().getType() == LexicalUnit.VARNAME) {
-                addNamedVariable(grandchild.getLabel().getValue().toString());
-            } else {
-                allocateVariables(grandchild);
-            }
+     * Pops the value of the last generated expression or condition.
+     * @return The IR value holding its result.
+     */
+    private IR.Value pop() {
+        IR.Value value = values[--valueCount];
+        values[valueCount] = null;
+        return value;
+    }
+
+    /**
+     * Returns the value of an expression if it can be reused.
+     * @param expression The expression about to be generated.
+     * @return The IR value already holding its result, or null if it must be computed.
+     */
+    private IR.Value reusable(AST.Expression expression) {
+        return available == null ? null : available.get(expression);
+    }
+
+    /**
+     * Remembers the value of an expression, to reuse it until a variable it reads is stored or the basic block ends.
+     * @param expression The generated expression, whose operands were remembered before.
+     * @param value The IR value holding its result.
+     * @return The value.
+     */
+    private IR.Value remember(AST.Expression expression, IR.Value value) {
+        if (available == null) {
+            return value;
+        }
+        Identifier[] reads = readSets.get(expression);
+        if (reads == null) {
+            reads = computeReadSet(expression);
+            readSets.put(expression, reads);
         }
+        available.put(expression, value);
+        for (Identifier variable : reads) {
+            readers.computeIfAbsent(variable, key -> new ArrayList<AST.Expression>()).add(expression);
+        }
+        return value;
     }
 
     /**
-     * Generates LLVM code for the rule <Program>.
-     * @param parseTree The parse tree representing the program.
+     * Computes the variables read by an expression from those of its operands.
+     * @param expression An expression whose operands were remembered before.
+     * @return The variables read, sorted by id.
      */
-    public void program(ParseTree parseTree) {
-        addReadFunction();
-        addPrintFunction();
-        code.append("define i32 @main() {\n");
-        tabulation++;
-        allocateVariables(ast); //We need to allocate variables before generating code
-        code(parseTree.getChildren().get(1));
-        addCode("ret i32 0\n");
-        tabulation--;
-        addCode("}\n");
+    private Identifier[] computeReadSet(AST.Expression expression) {
+        switch (expression.getKind()) {
+            case VAR:
+                return new Identifier[] {((AST.Var) expression).getIdentifier()};
+            case UNARY_MINUS:
+                return readSet(((AST.UnaryMinus) expression).getOperand());
+            case BIN_OP:
+                Identifier[] left = readSet(((AST.BinOp) expression).getLeft());
+                Identifier[] right = readSet(((AST.BinOp) expression).getRight());
+                Identifier[] union = new Identifier[left.length + right.length];
+                int size = 0;
+                int i = 0;
+                int j = 0;
+                while (i < left.length || j < right.length) {
+                    if (j == right.length || (i < left.length && left[i].getId() < right[j].getId())) {
+                        union[size++] = left[i++];
+                    } else if (i == left.length || right[j].getId() < left[i].getId()) {
+                        union[size++] = right[j++];
+                    } else {
+                        union[size++] = left[i++];
+                        j++;
+                    }
+                }
+                // The set of an operand is shared when it is the whole union
+                return size == left.length ? left : size == right.length ? right : Arrays.copyOf(union, size);
+            default:
+                return NO_VARIABLES;
+        }
     }
 
     /**
-     * Generates LLVM code for the rule <Code>.
-     * @param parseTree The parse tree to generate code for.
+     * Returns the variables read by an operand.
+     * @param operand An expression remembered before, or a constant.
+     * @return The variables read, sorted by id.
      */
-    public void code(ParseTree parseTree) {
-        for (ParseTree grandchild : parseTree.getChildren()) {
-            if (grandchild.getLabel().isNonTerminal()) {
-                generateCode(grandchild);
-            } else {
-                throw new RuntimeException("Invalid code");
+    private Identifier[] readSet(AST.Expression operand) {
+        Identifier[] reads = readSets.get(operand);
+        return reads == null ? NO_VARIABLES : reads;
+    }
+
+    /**
+     * Forgets the values of the expressions reading a variable, which is about to be stored.
+     * @param variable The stored variable.
+     */
+    private void forget(Identifier variable) {
+        if (available == null) {
+            return;
+        }
+        List<AST.Expression> expressions = readers.remove(variable);
+        if (expressions != null) {
+            for (AST.Expression expression : expressions) {
+                available.remove(expression);
             }
         }
     }
 
     /**
-     * Generates LLVM code for the rule <InstList>.
-     * @param parseTree The parse tree to generate code for.
+     * Returns the block of a label, created when it is first branched to or reached.
+     * @param label The name of the label.
+     * @return The block.
      */
-    public void instlist(ParseTree parseTree) {
-        for (ParseTree grandchild : parseTree.getChildren()) {
-            if (grandchild.getLabel().isNonTerminal()) {
-                generateCode(grandchild); //We call the function generateCode for each child that is an <Instruction>
-            }
+    private IR.Block block(String label) {
+        return blocks.computeIfAbsent(label, key -> new IR.Block(key, 0));
+    }
+
+    /**
+     * Starts a new basic block with a label. The values computed before are forgotten, as they might not be defined
+     * on all the paths reaching the label.
+     * @param label The name of the label.
+     */
+    private void addLabel(String label) {
+        current = block(label);
+        current.setIndentation(tabulation);
+        function.add(current);
+        if (available != null) {
+            available.clear();
+            readers.clear();
         }
     }
 
     /**
-     * Generates LLVM code for the rule <Assign>.
-     * @param parseTree The parse tree to generate code for.
+     * Appends the given instruction to the current block with proper tabulation.
+     * @param instruction the instruction to be added
+     * @return the instruction
      */
-    public void assign(ParseTree parseTree) {
-        String namedVariable = parseTree.getChildren().get(0).getLabel().getValue().toString();
-        addNamedVariable(namedVariable);
-        String value = exprarith(parseTree.getChildren().get(2));
-        addCode("store i32 " + value + ", i32* %" + namedVariable + "\n");
+    public IR.Instruction addInstruction(IR.Instruction instruction) {
+        instruction.setIndentation(tabulation);
+        current.add(instruction);
+        return instruction;
     }
 
     /**
-     * Generates LLVM code for the rule <ExprArith>.
-     * @param parseTree The parse tree to generate code for.
+     * Adds a named variable to the IR and returns its allocation.
+     * If the variable is not already present, it is added to the map of named variables
+     * and the corresponding alloca is generated.
+     * @param varname the identifier of the variable to be added
+     * @return the alloca of the variable
      */
-    public String exprarith(ParseTree parseTree) {
-        int n = parseTree.getChildren().size();
-        if (n == 1) {
-            return prod(parseTree.getChildren().get(0)); //<Prod>
-        } else if (n >= 3 && n % 2 == 1) {
-            String leftProd = "";
-            String rightProd = "";
-            String last = "";
-            for (int i = 0; i < n - 1; i += 2) {
-                if (last.isEmpty()) {
-                    // If we are at the first iteration, we need to generate code for the first two children
-                    leftProd = prod(parseTree.getChildren().get(i));
-                    rightProd = prod(parseTree.getChildren().get(i+2));
-                } else {
-                    // If we are at the second iteration or more, we need to use the last numbered variable generated
-                    leftProd = last;
-                    rightProd = prod(parseTree.getChildren().get(i+2));
-                }
-                String numberedVariable = "";
-                switch (parseTree.getChildren().get(i+1).getLabel().getType()) {
-                    case PLUS:
-                        numberedVariable = "%" + addNumberedVariable();
-                        addCode(numberedVariable + " = add i32 " + leftProd + ", " + rightProd + "\n");
-                        break;
-                    case MINUS:
-                        numberedVariable = "%" + addNumberedVariable();
-                        addCode(numberedVariable + " = sub i32 " + leftProd + ", " + rightProd + "\n");
-                        break;
-                    default:
-                        throw new RuntimeException("Invalid op");
-                }
-                last = numberedVariable;
-            }
-            return last;
-        } else {
-            throw new RuntimeException("Invalid exprarith");
+    public IR.Instruction addNamedVariable(Identifier varname) {
+        IR.Instruction variable = namedVariables.get(varname);
+        if (variable == null) {
+            variable = addInstruction(IR.Instruction.alloca(varname.getName()));
+            namedVariables.put(varname, variable);
         }
+        return variable;
     }
 
     /**
-     * Generates LLVM code for the rule <Prod>.
-     * @param parseTree The parse tree to generate code for.
-     */
-    public String prod(ParseTree parseTree) {
-        int n = parseTree.getChildren().size();
-        if (n == 1) {
-            return atom(parseTree.getChildren().get(0)); //<Atom>
-        } else if (n >= 3 && n % 2 == 1) {
-            // If we have a prod with more than one child, we need to generate code for each child and keep the last numbered variable generated
-            String leftAtom = "";
-            String rightAtom = "";
-            String last = "";
-            for (int i = 0; i < n - 1; i += 2) {
-                if (last.isEmpty()) {
-                    //If we are at the first iteration, we need to generate code for the first two children
-                    leftAtom = atom(parseTree.getChildren().get(i));
-                    rightAtom = atom(parseTree.getChildren().get(i+2));
-                } else {
-                    //If we are at the second iteration or more, we need to use the last numbered variable generated
-                    leftAtom = last;
-                    rightAtom = atom(parseTree.getChildren().get(i+2));
-                }
-                String numberedVariable = "";
-                switch (parseTree.getChildren().get(i+1).getLabel().getType()) {
-                    case DIVIDE:
-                        numberedVariable = "%" + addNumberedVariable();
-                        addCode(numberedVariable + " = sdiv i32 " + leftAtom + ", " + rightAtom + "\n");
-                        break;
-                    case TIMES:
-                        numberedVariable = "%" + addNumberedVariable();
-                        addCode(numberedVariable + " = mul i32 " + leftAtom + ", " + rightAtom + "\n");
-                        break;
-                    default:
-                        throw new RuntimeException("Invalid op");
-                }
-                last = numberedVariable;
+        * Increments the numberedVariableCounter and returns the incremented value for local variables.
+        * @return The incremented value of the numberedVariableCounter.
+        */
+    public int addNumberedVariable() {
+        numberedVariableCounter++;
+        return numberedVariableCounter;
+    }
+
+    /**
+     * Allocates variables from the given node.
+     * Each variable of the subtree is added to the list of named variables, in the order of the source.
+     * @param node the node to allocate variables from
+     */
+    public void allocateVariables(AST node) {
+        Deque<AST> pending = new ArrayDeque<AST>();
+        pending.push(node);
+        while (!pending.isEmpty()) {
+            AST current = pending.pop();
+            if (current.getKind() == AST.Kind.VAR) {
+                addNamedVariable(((AST.Var) current).getIdentifier());
+            }
+            List<AST> children = current.getChildren();
+            for (int i = children.size() - 1; i >= 0; i--) {
+                pending.push(children.get(i)); //Pushed in reverse order to allocate in the order of the source
             }
-            return last;
         }
-        throw new RuntimeException("Invalid prod");
     }
 
+    /**
+     * Generates the IR of the rule <Program>.
+     * @param program The node of the program.
+     */
+    @Override
+    public IR.Value visitProgram(AST.Program program) {
+        if (step() == 0) {
+            tabulation++;
+            current = new IR.Block(null, tabulation);
+            function.add(current);
+            allocateVariables(ast); //We need to allocate variables before generating code
+            schedule(program.getBody());
+            return null;
+        }
+        addInstruction(IR.Instruction.ret(IR.Constant.i32(0)));
+        tabulation--;
+        function.setClosingIndentation(tabulation);
+        function.updateEdges();
+        return finish(null);
+    }
 
     /**
-     * Calculates the number of unary minus operators in the given parse tree.
-     * 
-     * @param parseTree The parse tree to analyze.
-     * @param minusCounter The current count of unary minus operators.
-     * @return The updated count of unary minus operators.
+     * Generates the IR of the rules <Code> and <InstList>, one instruction per step.
+     * @param block The node of the list of instructions.
      */
-    public int unaryMinus(ParseTree parseTree, int minusCounter) {
-        //If we have a unary minus, we need to increment the counter and call the method recursively on the child for - <Atom>
-        ParseTree grandchild = parseTree.getChildren().get(0);
-        if (grandchild.getLabel().isTerminal() && grandchild.getLabel().getType() == LexicalUnit.MINUS) {
-            minusCounter++;
-            minusCounter = unaryMinus(parseTree.getChildren().get(1), minusCounter);
+    @Override
+    public IR.Value visitBlock(AST.Block block) {
+        int i = step();
+        if (i < block.getStatements().size()) {
+            schedule(block.getStatements().get(i)); //We generate code for each <Instruction>
+            return null;
         }
-        return minusCounter;
-    }
-
-    /**
-     * This method takes a ParseTree as input and returns a String representing the atom.
-     * The atom can be a unary minus, an expression enclosed in parentheses, a variable name, or a number.
-     * @param parseTree The ParseTree representing the atom.
-     * @return The String representation of the atom.
-     * @throws RuntimeException if the atom is invalid.
-     */
-    public String atom(ParseTree parseTree) {
-        ParseTree grandchild = parseTree.getChildren().get(0);
-        String result = "";
-        switch (grandchild.getLabel().getType()) {
-            case MINUS:
-                int minusCounter = 0;
-                minusCounter = unaryMinus(parseTree, minusCounter);
-                if (minusCounter % 2 == 1) {
-                    //If the number of unary minus operators is odd, we need to substract the value from 0
-                    String numberedVariable = "%" + addNumberedVariable();
-                    ParseTree child = null;
-                    for (int i = 0; i < minusCounter; i++) {
-                        ParseTree tree = child == null ? parseTree : child;
-                        child = tree.getChildren().get(1);
-                    }
-                    addCode(numberedVariable + " = sub i32 0, " + atom(child) + "\n");
-                    result = numberedVariable;
-                } else {
-                    //If the number of unary minus operators is even, we can just return the value
-                    ParseTree child = null;
-                    for (int i = 0; i < minusCounter; i++) {
-                        ParseTree tree = child == null ? parseTree : child;
-                        child = tree.getChildren().get(1);
-                    }
-                    result = atom(child);
+        return finish(null);
+    }
 
-                }
-                break;
-            case LPAREN:
-                result = exprarith(parseTree.getChildren().get(1));
-                break;
-            case VARNAME:
-                String nameVariable = "%"+ addNamedVariable(grandchild.getLabel().getValue().toString());
-                String numberedVariable = "%" + addNumberedVariable();
-                addCode(numberedVariable + " = load i32, i32* " + nameVariable + "\n"); 
-                result = numberedVariable;
-                break;
-            case NUMBER:
-                result = grandchild.getLabel().getValue().toString();
-                break;
-            default:
-                throw new RuntimeException("Invalid atom");
+    /**
+     * Generates the IR of the rule <Assign>.
+     * @param assign The node of the assignment.
+     */
+    @Override
+    public IR.Value visitAssign(AST.Assign assign) {
+        if (step() == 0) {
+            addNamedVariable(assign.getTarget().getIdentifier());
+            schedule(assign.getValue());
+            return null;
         }
-        return result;
-    }
-
-    /**
-     * Generates LLVM code for the rule <Cond>.
-     * @param parseTree The parse tree to generate code for.
-     * @return The last numbered variable generated.
-     */
-    public String cond(ParseTree parseTree) {
-        int n = parseTree.getChildren().size();
-        if (n == 1) {
-            return conj(parseTree.getChildren().get(0)); //<Conj>
-        } else if (n >= 3 && n % 2 == 1) {
-            //If we have a cond with more than one child, we need to generate code for each child and keep the last numbered variable generated
-            String leftConj = "";
-            String rightConj = "";
-            String last = "";
-            for (int i = 0; i < n - 1; i += 2) {
-                if (last.isEmpty()) {
-                    leftConj = conj(parseTree.getChildren().get(i));
-                    rightConj = conj(parseTree.getChildren().get(i+2));
-                } else {
-                    leftConj = last;
-                    rightConj = conj(parseTree.getChildren().get(i+2));
-                }
-                String numberedVariable = "";
-                switch (parseTree.getChildren().get(i+1).getLabel().getType()) {
-                    case OR:
-                        numberedVariable = "%" + addNumberedVariable();
-                        addCode(numberedVariable + " = or i1 " + leftConj + ", " + rightConj + "\n");
-                        break;
-                    default:
-                        throw new RuntimeException("Invalid op");
+        IR.Value value = pop();
+        forget(assign.getTarget().getIdentifier());
+        addInstruction(IR.Instruction.store(value, addNamedVariable(assign.getTarget().getIdentifier())));
+        return finish(null);
+    }
+
+    /**
+     * Generates the IR of the rules <ExprArith> and <Prod>.
+     * The left operand is computed first, then the right one, then the operation.
+     * @param binOp The node of the operation.
+     */
+    @Override
+    public IR.Value visitBinOp(AST.BinOp binOp) {
+        switch (step()) {
+            case 0:
+                IR.Value reused = reusable(binOp);
+                if (reused != null) {
+                    return finish(reused);
                 }
-                last = numberedVariable;
-            }
-            return last;
+                schedule(binOp.getLeft());
+                return null;
+            case 1:
+                schedule(binOp.getRight());
+                return null;
+            default:
+                IR.Value right = pop();
+                IR.Value left = pop();
+                IR.Instruction operation = addInstruction(IR.Instruction.binary(
+                        IR.Opcode.of(binOp.getOperator()), addNumberedVariable(), left, right));
+                return finish(remember(binOp, operation));
         }
-        throw new RuntimeException("Invalid cond");
-    }
-
-    /**
-     * Generates LLVM code for the rule <Conj>.
-     * @param parseTree The parse tree to generate code for.
-     * @return The last numbered variable generated.
-     */
-    private String conj(ParseTree parseTree) {
-        int n = parseTree.getChildren().size();
-        if (n == 1) {
-            return simplecond(parseTree.getChildren().get(0)); //<SimpleCond>
-        } else if (n >= 3 && n % 2 == 1) {
-            //If we have a conj with more than one child, we need to generate code for each child and keep the last numbered variable generated
-            String leftSimpleCond = "";
-            String rightSimpleCond = "";
-            String last = "";
-            for (int i = 0; i < n - 1; i += 2) {
-                if (last.isEmpty()) {
-                    leftSimpleCond = simplecond(parseTree.getChildren().get(i));
-                    rightSimpleCond = simplecond(parseTree.getChildren().get(i+2));
-                } else {
-                    leftSimpleCond = last;
-                    rightSimpleCond = simplecond(parseTree.getChildren().get(i+2));
-                }
-                String numberedVariable = "";
-                switch (parseTree.getChildren().get(i+1).getLabel().getType()) {
-                    case AND:
-                        numberedVariable = "%" + addNumberedVariable();
-                        addCode(numberedVariable + " = and i1 " + leftSimpleCond + ", " + rightSimpleCond + "\n");
-                        break;
-                    default:
-                        throw new RuntimeException("Invalid op");
-                }
-                last = numberedVariable;
+    }
+
+    /**
+     * Generates the IR of a unary minus: the value is substracted from 0.
+     * The numbered variable of the result is taken after the code of the operand is generated, so the numbers follow
+     * the order of the text.
+     * @param unaryMinus The node of the negation.
+     */
+    @Override
+    public IR.Value visitUnaryMinus(AST.UnaryMinus unaryMinus) {
+        if (step() == 0) {
+            IR.Value reused = reusable(unaryMinus);
+            if (reused != null) {
+                return finish(reused);
             }
-            return last;
+            schedule(unaryMinus.getOperand());
+            return null;
         }
-        throw new RuntimeException("Invalid conj");
-    }
-
-    /**
-     * Generates LLVM code for the rule <SimpleCond>.
-     * @param parseTree The parse tree to generate code for.
-     * @return The last numbered variable generated.
-     */
-    private String simplecond(ParseTree parseTree) {
-        if (parseTree.getChildren().size() == 1) {
-            return cond(parseTree.getChildren().get(0)); //<Cond>
-        } else {
-            String leftComp = exprarith(parseTree.getChildren().get(0));
-            String rightComp = exprarith(parseTree.getChildren().get(2));
-            String numberedVariable = "";
-            switch (parseTree.getChildren().get(1).getLabel().getType()) {
-                case EQUAL:
-                    numberedVariable = "%" + addNumberedVariable();
-                    addCode(numberedVariable + " = icmp eq i32 " + leftComp + ", " + rightComp + "\n");
-                    return numberedVariable;
-                case SMALLER:
-                    numberedVariable = "%" + addNumberedVariable();
-                    addCode(numberedVariable + " = icmp slt i32 " + leftComp + ", " + rightComp + "\n");
-                    return numberedVariable;
-                default:
-                    throw new RuntimeException("Invalid simplecond");
-            }
+        IR.Instruction negation = addInstruction(IR.Instruction.binary(
+                IR.Opcode.SUB, addNumberedVariable(), IR.Constant.i32(0), pop()));
+        return finish(remember(unaryMinus, negation));
+    }
+
+    /**
+     * Generates the IR loading a variable.
+     * @param var The node of the variable.
+     */
+    @Override
+    public IR.Value visitVar(AST.Var var) {
+        IR.Value reused = reusable(var);
+        if (reused != null) {
+            return finish(reused);
         }
+        IR.Instruction load = addInstruction(IR.Instruction.load(addNumberedVariable(), addNamedVariable(var.getIdentifier())));
+        return finish(remember(var, load));
     }
 
     /**
-     * Generates LLVM code for the first <If>.
-     * @param parseTree The parse tree to generate code for.
+     * Returns a constant, used directly as an operand.
+     * @param constant The node of the constant.
      */
-    public void if_1(ParseTree parseTree) {
-        String trueLabel = ifTrueLabel + instructionCounter;
-        String endLabel = ifEndLabel + instructionCounter;
-        String boolValue = cond(parseTree.getChildren().get(1)); //<Cond>
-        addCode("br i1 " + boolValue + ", label %" + trueLabel + ", label %" + endLabel + "\n");
-        addCode(trueLabel + ":\n");
-        tabulation++;
-        instructionCounter++;
-        generateCode(parseTree.getChildren().get(3)); //<Instruction>
-        addCode("br label %" + endLabel + "\n");
-        tabulation--;
-        addCode(endLabel + ":\n");
-        tabulation++;
+    @Override
+    public IR.Value visitConst(AST.Const constant) {
+        return finish(IR.Constant.i32(constant.getValue()));
     }
 
     /**
-     * Generates LLVM code for the second <If>.
-     * @param parseTree The parse tree to generate code for.
+     * Generates the IR of the rule <SimpleCond> comparing two expressions.
+     * @param compare The node of the comparison.
      */
-    public void if_2(ParseTree parseTree) {
-        String trueLabel = ifTrueLabel + instructionCounter;
-        String falseLabel = ifFalseLabel + instructionCounter;
-        String endLabel = ifEndLabel + instructionCounter;
-        String boolValue = cond(parseTree.getChildren().get(1)); //<Cond>
-        addCode("br i1 " + boolValue + ", label %" + trueLabel + ", label %" + falseLabel + "\n");
-        addCode(trueLabel + ":\n");
-        tabulation++;
-        instructionCounter++;
-        generateCode(parseTree.getChildren().get(3)); //<Instruction1>
-        addCode("br label %" + endLabel + "\n");
-        tabulation--;
-        addCode(falseLabel + ":\n");
-        tabulation++;
-        instructionCounter++;
-        generateCode(parseTree.getChildren().get(5)); //<Instruction2>
-        addCode("br label %" + endLabel + "\n");
-        tabulation--;
-        addCode(endLabel + ":\n");
-        tabulation++;
+    @Override
+    public IR.Value visitCompare(AST.Compare compare) {
+        switch (step()) {
+            case 0:
+                schedule(compare.getLeft());
+                return null;
+            case 1:
+                schedule(compare.getRight());
+                return null;
+            default:
+                IR.Value rightComp = pop();
+                IR.Value leftComp = pop();
+                return finishCondition(addInstruction(IR.Instruction.binary(
+                        IR.Opcode.of(compare.getComparison()), addNumberedVariable(), leftComp, rightComp)));
+        }
     }
 
     /**
-     * Generates LLVM code for the rule <If>.
-     * @param parseTree The parse tree to generate code for.
+     * Generates the IR of the rule <Conj>.
+     * With a short circuit, the right operand is only evaluated when the left one is true.
+     * @param and The node of the conjunction.
      */
-    public void if_(ParseTree parseTree) {
-        switch (parseTree.getChildren().size()) {
-            case 5:
-                if_1(parseTree);
-                break;
-            case 6:
-                if_2(parseTree);
-                break;
+    @Override
+    public IR.Value visitAnd(AST.And and) {
+        if (whenTrue[depth - 1] != null) {
+            switch (step()) {
+                case 0:
+                    notes[depth - 1] = conditionCounter++;
+                    scheduleCondition(and.getLeft(), block(andRightLabel + notes[depth - 1]), whenFalse[depth - 1]);
+                    return null;
+                case 1:
+                    addLabel(andRightLabel + notes[depth - 1]);
+                    scheduleCondition(and.getRight(), whenTrue[depth - 1], whenFalse[depth - 1]);
+                    return null;
+                default:
+                    return finish(null);
+            }
+        }
+        switch (step()) {
+            case 0:
+                schedule(and.getLeft());
+                return null;
+            case 1:
+                schedule(and.getRight());
+                return null;
             default:
-                throw new RuntimeException("Invalid if");
+                IR.Value rightSimpleCond = pop();
+                IR.Value leftSimpleCond = pop();
+                return finish(addInstruction(IR.Instruction.binary(
+                        IR.Opcode.AND, addNumberedVariable(), leftSimpleCond, rightSimpleCond)));
         }
     }
 
     /**
-     * Generates LLVM code for the rule <While>.
-     * @param parseTree The parse tree to generate code for.
+     * Generates the IR of the rule <Cond>.
+     * With a short circuit, the right operand is only evaluated when the left one is false.
+     * @param or The node of the disjunction.
      */
-    private void while_(ParseTree parseTree) {
-        String loopLabel = whileLoopLabel + instructionCounter;
-        String bodyLabel = whileBodyLabel + instructionCounter;
-        String endLabel = whileEndLabel + instructionCounter;
-        addCode("br label %" + loopLabel + "\n");
-        if (tabulation > 1) {
-            tabulation--;
+    @Override
+    public IR.Value visitOr(AST.Or or) {
+        if (whenTrue[depth - 1] != null) {
+            switch (step()) {
+                case 0:
+                    notes[depth - 1] = conditionCounter++;
+                    scheduleCondition(or.getLeft(), whenTrue[depth - 1], block(orRightLabel + notes[depth - 1]));
+                    return null;
+                case 1:
+                    addLabel(orRightLabel + notes[depth - 1]);
+                    scheduleCondition(or.getRight(), whenTrue[depth - 1], whenFalse[depth - 1]);
+                    return null;
+                default:
+                    return finish(null);
+            }
+        }
+        switch (step()) {
+            case 0:
+                schedule(or.getLeft());
+                return null;
+            case 1:
+                schedule(or.getRight());
+                return null;
+            default:
+                IR.Value rightConj = pop();
+                IR.Value leftConj = pop();
+                return finish(addInstruction(IR.Instruction.binary(
+                        IR.Opcode.OR, addNumberedVariable(), leftConj, rightConj)));
         }
-        addCode(loopLabel + ":\n");
-        tabulation++;
-        String boolValue = cond(parseTree.getChildren().get(1)); //We need to generate code for the condition
-        addCode("br i1 " + boolValue + ", label %" + bodyLabel + ", label %" + endLabel + "\n");
-        tabulation--;
-        addCode(bodyLabel+ ":\n");
-        tabulation++;
-        instructionCounter++;
-        generateCode(parseTree.getChildren().get(3)); //We need to generate code for the instruction
-        addCode("br label %" + loopLabel + "\n");
-        tabulation--;
-        addCode(endLabel + ":\n");
-        tabulation++;
     }
 
     /**
-     * Generates LLVM code for the rule <Print>.
-     * @param parseTree The parse tree to generate code for.
+     * Generates the IR of the rule <If>.
+     * The labels are numbered with the value of the instruction counter when the conditional starts.
+     * @param ifNode The node of the conditional.
      */
-    private void print(ParseTree parseTree) {
-        String varname = parseTree.getChildren().get(2).getLabel().getValue().toString();
-        if (namedVariables.contains(varname)) {
+    @Override
+    public IR.Value visitIf(AST.If ifNode) {
+        switch (step()) {
+            case 0: {
+                int number = instructionCounter;
+                notes[depth - 1] = number;
+                String otherLabel = ifNode.getElseBranch() == null ? ifEndLabel + number : ifFalseLabel + number;
+                if (shortCircuit) {
+                    scheduleCondition(ifNode.getCondition(), block(ifTrueLabel + number), block(otherLabel)); //<Cond>
+                } else {
+                    schedule(ifNode.getCondition()); //<Cond>
+                }
+                return null;
+            }
+            case 1: {
+                int number = notes[depth - 1];
+                if (!shortCircuit) {
+                    IR.Value boolValue = pop();
+                    String otherLabel = ifNode.getElseBranch() == null ? ifEndLabel + number : ifFalseLabel + number;
+                    addInstruction(IR.Instruction.branch(boolValue, block(ifTrueLabel + number), block(otherLabel)));
+                }
+                addLabel(ifTrueLabel + number);
+                tabulation++;
+                instructionCounter++;
+                schedule(ifNode.getThenBranch()); //<Instruction1>
+                return null;
+            }
+            case 2: {
+                int number = notes[depth - 1];
+                addInstruction(IR.Instruction.branch(block(ifEndLabel + number)));
+                tabulation--;
+                if (ifNode.getElseBranch() == null) {
+                    addLabel(ifEndLabel + number);
+                    tabulation++;
+                    return finish(null);
+                }
+                addLabel(ifFalseLabel + number);
+                tabulation++;
+                instructionCounter++;
+                schedule(ifNode.getElseBranch()); //<Instruction2>
+                return null;
+            }
+            default: {
+                int number = notes[depth - 1];
+                addInstruction(IR.Instruction.branch(block(ifEndLabel + number)));
+                tabulation--;
+                addLabel(ifEndLabel + number);
+                tabulation++;
+                return finish(null);
+            }
+        }
+    }
+
+    /**
+     * Generates the IR of the rule <While>.
+     * @param whileNode The node of the loop.
+     */
+    @Override
+    public IR.Value visitWhile(AST.While whileNode) {
+        switch (step()) {
+            case 0: {
+                int number = instructionCounter;
+                notes[depth - 1] = number;
+                addInstruction(IR.Instruction.branch(block(whileLoopLabel + number)));
+                if (tabulation > 1) {
+                    tabulation--;
+                }
+                addLabel(whileLoopLabel + number);
+                tabulation++;
+                if (shortCircuit) {
+                    scheduleCondition(whileNode.getCondition(), block(whileBodyLabel + number), block(whileEndLabel + number));
+                } else {
+                    schedule(whileNode.getCondition()); //We need to generate code for the condition
+                }
+                return null;
+            }
+            case 1: {
+                int number = notes[depth - 1];
+                if (!shortCircuit) {
+                    IR.Value boolValue = pop();
+                    addInstruction(IR.Instruction.branch(boolValue, block(whileBodyLabel + number), block(whileEndLabel + number)));
+                }
+                tabulation--;
+                addLabel(whileBodyLabel + number);
+                tabulation++;
+                instructionCounter++;
+                schedule(whileNode.getBody()); //We need to generate code for the instruction
+                return null;
+            }
+            default: {
+                int number = notes[depth - 1];
+                addInstruction(IR.Instruction.branch(block(whileLoopLabel + number)));
+                tabulation--;
+                addLabel(whileEndLabel + number);
+                tabulation++;
+                return finish(null);
+            }
+        }
+    }
+
+    /**
+     * Generates the IR of the rule <Print>.
+     * @param print The node of the output.
+     */
+    @Override
+    public IR.Value visitPrint(AST.Print print) {
+        IR.Value value = reusable(print.getVariable());
+        if (value == null) {
             //Need to load the variable in i32 from i32*
-            String numberedVariable = addNumberedVariable();
-            addCode("%" + numberedVariable + " = load i32, i32* %" + varname + "\n");
-            addCode("call void @println(i32 %" + numberedVariable + ")\n");
-        } else {
-            addCode("call void @println(i32 %" + varname + ")\n");
+            value = remember(print.getVariable(), addInstruction(IR.Instruction.load(
+                    addNumberedVariable(), addNamedVariable(print.getVariable().getIdentifier()))));
         }
+        addInstruction(IR.Instruction.print(value));
+        return finish(null);
+    }
+
+    /**
+     * Generates the IR of the rule <Read>.
+     * @param read The node of the input.
+     */
+    @Override
+    public IR.Value visitRead(AST.Read read) {
+        Identifier varname = read.getVariable().getIdentifier();
+        IR.Instruction input = addInstruction(IR.Instruction.read(addNumberedVariable()));
+        forget(varname);
+        addInstruction(IR.Instruction.store(input, addNamedVariable(varname)));
+        return finish(null);
     }
 
     /**
-     * Generates LLVM code for the rule <Read>.
-     * @param parseTree The parse tree to generate code for.
+     * Returns the IR of the program.
+     * @return The main function, whose edges are up to date.
      */
-    private void read(ParseTree parseTree) {
-        String varname = parseTree.getChildren().get(2).getLabel().getValue().toString();
-        String numberedVariable = addNumberedVariable();
-        addCode("%" + numberedVariable + " = call i32 @readInt()\n");
-        addCode("store i32 %" + numberedVariable + ", i32* %" + varname + "\n");
+    public IR.Function getFunction() {
+        return function;
     }
 
     /**
      * Returns the generated LLVM code.
      * @return The generated LLVM code.
      */
-    public String getCode() {   
-        return code.toString();
+    public String getCode() {
+        return new IRPrinter(false).print(function);
     }
 }
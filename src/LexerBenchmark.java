@@ -0,0 +1,95 @@
+/**
+ * Compares the throughput of the table-driven {@link LexicalAnalyzer LexicalAnalyzer} and of the direct-coded
+ * {@link DirectLexer DirectLexer} on a pure ASCII source.
+ *
+ * Both scanners fill a {@link TokenBuffer TokenBuffer}; the buffers are checked to be identical, then each scanner is
+ * run a number of times after a warm-up and its throughput is displayed in tokens per second.
+ */
+public class LexerBenchmark {
+    /**
+     * Number of runs of each scanner before the measured runs, to let the JIT compile the hot loops.
+     */
+    private static final int WARMUP = 5;
+
+    /**
+     * A scanner under test.
+     */
+    private interface Scanner {
+        /**
+         * Scans the whole source.
+         *
+         * @param source the mapped source.
+         * @return the tokens of the source.
+         * @throws Exception in case the lexing fails.
+         */
+        TokenBuffer scan(MappedSource source) throws Exception;
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args the number of measured runs (optional, 20 by default) and the source file.
+     * @throws Exception if the file cannot be read or scanned.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 0) {
+            System.out.println("Usage:  java LexerBenchmark [RUNS] [FILE]");
+            return;
+        }
+        int runs = args.length > 1 ? Integer.parseInt(args[0]) : 20;
+        MappedSource source = MappedSource.open(args[args.length-1]);
+        if (source == null) {
+            System.out.println("The file must be pure ASCII (and smaller than 2GB)");
+            return;
+        }
+        Scanner table = s -> TokenBuffer.fill(new LexicalAnalyzer(s));
+        Scanner direct = s -> new DirectLexer(s).tokenize();
+        if (!sameTokens(table.scan(source), direct.scan(source))) {
+            System.out.println("The scanners do not produce the same tokens");
+            return;
+        }
+        measure("table ", table, source, runs);
+        measure("direct", direct, source, runs);
+    }
+
+    /**
+     * Measures the throughput of a scanner and displays it.
+     *
+     * @param name the name of the scanner.
+     * @param scanner the scanner to measure.
+     * @param source the mapped source.
+     * @param runs the number of measured runs.
+     * @throws Exception in case the lexing fails.
+     */
+    private static void measure(String name, Scanner scanner, MappedSource source, int runs) throws Exception {
+        int count = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            count = scanner.scan(source).size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            scanner.scan(source);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s: %d tokens, %.3f ms per run, %.1f Mtokens/s%n", name, count, 1e3 * seconds / runs, count * (double) runs / seconds / 1e6);
+    }
+
+    /**
+     * Compares two token buffers.
+     *
+     * @param a the first buffer.
+     * @param b the second buffer.
+     * @return true iff both buffers contain the same tokens, at the same offsets, with the same values.
+     */
+    private static boolean sameTokens(TokenBuffer a, TokenBuffer b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.type(i) != b.type(i) || a.offset(i) != b.offset(i) || a.value(i) != b.value(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,6 +1,7 @@
 /* The following code was generated by JFlex 1.7.0 */
 
 
+import java.util.List;
 import java.util.regex.PatternSyntaxException;
 
 /**
@@ -292,6 +293,200 @@ class LexicalAnalyzer {
    */
   private int zzFinalHighSurrogate = 0;
 
+  /* user code: */
+	/**
+	 * Creates a scanner reading a memory-mapped ASCII source: the ASCII fast path via mmap.
+	 *
+	 * The scanner reads the source through an {@link MappedSource#asciiReader ASCII reader}, so no charset decoder
+	 * is involved. The automaton runs on chars, though: each refill still widens a window of the mapped bytes into
+	 * the scan buffer. Only the {@link DirectLexer DirectLexer} scans the bytes in place.
+	 *
+	 * @param source the mapped source, which must be pure ASCII.
+	 */
+	LexicalAnalyzer(MappedSource source) {
+		this(source, 0, source.length(), YYINITIAL, new LineIndex(source));
+	}
+
+	/**
+	 * Creates a scanner reading a part of a memory-mapped ASCII source, as if the input was limited to this part.
+	 *
+	 * The offsets (yychar) of the tokens are the ones in the whole source, so that their positions are resolved
+	 * by the line index of the whole source. Used to scan the chunks of a large file in parallel.
+	 *
+	 * @param source the mapped source, which must be pure ASCII.
+	 * @param start the offset of the first character to scan.
+	 * @param end the offset after the last character to scan.
+	 * @param state the lexical state at the start of the part (YYINITIAL or LONGCOMMENTS).
+	 * @param lines the line index of the whole source.
+	 */
+	LexicalAnalyzer(MappedSource source, int start, int end, int state, LineIndex lines) {
+		this.zzReader = source.asciiReader(start, end);
+		this.yychar = start;
+		this.zzLexicalState = state;
+		this.lines = lines;
+	}
+
+	/**
+	 * Index of the line starts of the source, used to compute the line and column of a token from its offset (yychar).
+	 */
+	private LineIndex lines;
+
+	/**
+	 * Returns the line index of the source.
+	 *
+	 * @return the index resolving the positions of the tokens.
+	 */
+	LineIndex getLines() {
+		return this.lines;
+	}
+
+	/**
+	 * Table interning the variable names met by the scanner.
+	 */
+	private IdentifierTable identifiers = new IdentifierTable();
+
+	/**
+	 * Returns the table of the variable names met so far.
+	 *
+	 * @return the table in which the values of the [VarName] tokens are interned.
+	 */
+	IdentifierTable getIdentifiers() {
+		return this.identifiers;
+	}
+
+	/**
+	 * Packed buffer receiving the tokens, or null when the scanner returns one Symbol per token.
+	 */
+	private TokenBuffer tokens;
+
+	/**
+	 * Makes the scanner append its tokens to the given buffer instead of creating a Symbol for each of them.
+	 * The symbols returned by nextToken are then the shared symbols of {@link TokenBuffer TokenBuffer}.
+	 *
+	 * @param tokens the buffer receiving the tokens.
+	 */
+	void packInto(TokenBuffer tokens) {
+		this.tokens = tokens;
+	}
+
+	/**
+	 * List receiving the warnings of the scan, or null when they are printed on the error stream at once.
+	 */
+	private List<String> warnings;
+
+	/**
+	 * Makes the scanner keep its warnings in the given list instead of printing them, for a scan whose result may
+	 * be discarded.
+	 *
+	 * @param warnings the list receiving the warnings, in the order of the source.
+	 */
+	void keepWarnings(List<String> warnings) {
+		this.warnings = warnings;
+	}
+
+	/**
+	 * Reports a warning about the source, which does not stop the scan.
+	 *
+	 * @param message the text of the warning.
+	 */
+	private void warn(String message) {
+		if (warnings != null) {
+			warnings.add(message);
+		} else {
+			System.err.println(message);
+		}
+	}
+
+	/**
+	 * Produces a token whose value is fixed by its type (keyword, punctuation or EOS).
+	 *
+	 * @param unit the type of the token.
+	 * @return the Symbol of the token.
+	 */
+	private Symbol symbol(LexicalUnit unit) {
+		if (tokens != null) {
+			tokens.add(unit, yychar, 0);
+			return TokenBuffer.shared(unit);
+		}
+		return new Symbol(unit, yychar, lines, unit.lexeme());
+	}
+
+	/**
+	 * Produces a [VarName] token.
+	 *
+	 * @param identifier the interned name of the variable.
+	 * @return the Symbol of the token.
+	 */
+	private Symbol variable(Identifier identifier) {
+		if (tokens != null) {
+			tokens.add(LexicalUnit.VARNAME, yychar, identifier.getId());
+			return TokenBuffer.shared(LexicalUnit.VARNAME);
+		}
+		return new Symbol(LexicalUnit.VARNAME, yychar, lines, identifier);
+	}
+
+	/**
+	 * Produces a [Number] token.
+	 *
+	 * @param value the value of the literal.
+	 * @return the Symbol of the token.
+	 */
+	private Symbol number(int value) {
+		if (tokens != null) {
+			tokens.add(LexicalUnit.NUMBER, yychar, value);
+			return TokenBuffer.shared(LexicalUnit.NUMBER);
+		}
+		return new Symbol(LexicalUnit.NUMBER, yychar, lines, Integer.valueOf(value));
+	}
+
+	/**
+	 * Produces the [Number] token of the matched literal, accumulating its digits straight from the scan buffer
+	 * (no String nor Integer is built when the tokens are packed).
+	 *
+	 * @return the Symbol of the token.
+	 * @throws PatternSyntaxException if the literal does not fit in a (signed 32 bits) int.
+	 */
+	private Symbol number() {
+		int value = 0;
+		for (int i = zzStartRead; i < zzMarkedPos; i++) {
+			int digit = zzBuffer[i] - '0';
+			if (value > (Integer.MAX_VALUE - digit) / 10) {
+				throw new PatternSyntaxException(String.format("Number greater than %d at line %d and column %d", Integer.MAX_VALUE, lines.line(yychar)+1, lines.column(yychar)), yytext(), -1); // No index in the literal: the position is in the description
+			}
+			value = 10*value + digit;
+		}
+		return number(value);
+	}
+
+	/**
+	 * Consumes in bulk the characters ignored after the current match, instead of running the automaton once per
+	 * character: the rest of a run of separators, or the text of a long comment up to the next quote (which may start
+	 * its end). Stops at the end of the buffer, the automaton then refilling it as usual.
+	 */
+	private void skip() {
+		int i = zzMarkedPos;
+		if (zzLexicalState == LONGCOMMENTS) {
+			while (i < zzEndRead && zzBuffer[i] != '\'') {
+				i++;
+			}
+		} else if (zzBuffer[zzStartRead] != '*') { // Not a short comment, which already ends with its line terminator
+			while (i < zzEndRead && isSeparator(zzBuffer[i])) {
+				i++;
+			}
+		}
+		zzMarkedPos = i;
+	}
+
+	/**
+	 * Tells whether a character is matched by {Separator}.
+	 *
+	 * @param c the character.
+	 * @return true iff c is a space, a tabulation, a form feed or a line terminator.
+	 */
+	private static boolean isSeparator(char c) {
+		return c == ' ' || c == '\t' || c == '\f' || c == '\n' || c == '\r';
+	}
+
 
   /**
    * Creates a new scanner
@@ -299,6 +494,9 @@ class LexicalAnalyzer {
    * @param   in  the java.io.Reader to read input from.
    */
   LexicalAnalyzer(java.io.Reader in) {
+  	// The init code runs before the reader is stored: the scanner reads through the line tracker
+	lines = new LineIndex();
+	in = lines.track(in);
     this.zzReader = in;
   }
 
@@ -541,62 +739,8 @@ class LexicalAnalyzer {
     while (true) {
       zzMarkedPosL = zzMarkedPos;
 
-      boolean zzR = false;
-      int zzCh;
-      int zzCharCount;
-      for (zzCurrentPosL = zzStartRead  ;
-           zzCurrentPosL < zzMarkedPosL ;
-           zzCurrentPosL += zzCharCount ) {
-        zzCh = Character.codePointAt(zzBufferL, zzCurrentPosL, zzMarkedPosL);
-        zzCharCount = Character.charCount(zzCh);
-        switch (zzCh) {
-        case '\u000B':  // fall through
-        case '\u000C':  // fall through
-        case '\u0085':  // fall through
-        case '\u2028':  // fall through
-        case '\u2029':
-          yyline++;
-          yycolumn = 0;
-          zzR = false;
-          break;
-        case '\r':
-          yyline++;
-          yycolumn = 0;
-          zzR = true;
-          break;
-        case '\n':
-          if (zzR)
-            zzR = false;
-          else {
-            yyline++;
-            yycolumn = 0;
-          }
-          break;
-        default:
-          zzR = false;
-          yycolumn += zzCharCount;
-        }
-      }
+      yychar+= zzMarkedPosL-zzStartRead;
 
-      if (zzR) {
-        // peek one character ahead if it is \n (if we have counted one line too much)
-        boolean zzPeek;
-        if (zzMarkedPosL < zzEndReadL)
-          zzPeek = zzBufferL[zzMarkedPosL] == '\n';
-        else if (zzAtEOF)
-          zzPeek = false;
-        else {
-          boolean eof = zzRefill();
-          zzEndReadL = zzEndRead;
-          zzMarkedPosL = zzMarkedPos;
-          zzBufferL = zzBuffer;
-          if (eof) 
-            zzPeek = false;
-          else 
-            zzPeek = zzBufferL[zzMarkedPosL] == '\n';
-        }
-        if (zzPeek) yyline--;
-      }
       zzAction = -1;
 
       zzCurrentPosL = zzCurrentPos = zzStartRead = zzMarkedPosL;
@@ -661,88 +805,88 @@ class LexicalAnalyzer {
         zzAtEOF = true;
             switch (zzLexicalState) {
             case LONGCOMMENTS: {
-              throw new PatternSyntaxException("A comment is never closed.",yytext(),yyline);
+              throw new PatternSyntaxException("A comment is never closed.",yytext(),lines.line(yychar));
             }  // fall though
             case 71: break;
             default:
-          { 	return new Symbol(LexicalUnit.EOS, yyline, yycolumn);
+          { 	return symbol(LexicalUnit.EOS);
  }
         }
       }
       else {
         switch (zzAction < 0 ? zzAction : ZZ_ACTION[zzAction]) {
           case 1: 
-            { throw new PatternSyntaxException("Unmatched token, out of symbols",yytext(),yyline);
+            { throw new PatternSyntaxException("Unmatched token, out of symbols",yytext(),lines.line(yychar));
             } 
             // fall through
           case 31: break;
           case 2: 
-            { return new Symbol(LexicalUnit.VARNAME,yyline, yycolumn,yytext());
+            { return variable(identifiers.intern(zzBuffer, zzStartRead, yylength()));
             } 
             // fall through
           case 32: break;
           case 3: 
-            { return new Symbol(LexicalUnit.NUMBER, yyline, yycolumn, Integer.valueOf(yytext()));
+            { return number();
             } 
             // fall through
           case 33: break;
           case 4: 
-            { 
+            { skip();
             } 
             // fall through
           case 34: break;
           case 5: 
-            { return new Symbol(LexicalUnit.TIMES, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.TIMES);
             } 
             // fall through
           case 35: break;
           case 6: 
-            { return new Symbol(LexicalUnit.EQUAL, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.EQUAL);
             } 
             // fall through
           case 36: break;
           case 7: 
-            { return new Symbol(LexicalUnit.LPAREN, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.LPAREN);
             } 
             // fall through
           case 37: break;
           case 8: 
-            { return new Symbol(LexicalUnit.RPAREN, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.RPAREN);
             } 
             // fall through
           case 38: break;
           case 9: 
-            { return new Symbol(LexicalUnit.LBRACK, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.LBRACK);
             } 
             // fall through
           case 39: break;
           case 10: 
-            { return new Symbol(LexicalUnit.RBRACK, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.RBRACK);
             } 
             // fall through
           case 40: break;
           case 11: 
-            { return new Symbol(LexicalUnit.PLUS, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.PLUS);
             } 
             // fall through
           case 41: break;
           case 12: 
-            { return new Symbol(LexicalUnit.MINUS, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.MINUS);
             } 
             // fall through
           case 42: break;
           case 13: 
-            { return new Symbol(LexicalUnit.DIVIDE, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.DIVIDE);
             } 
             // fall through
           case 43: break;
           case 14: 
-            { return new Symbol(LexicalUnit.SMALLER, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.SMALLER);
             } 
             // fall through
           case 44: break;
           case 15: 
-            { System.err.println("Warning! Numbers with leading zeros are deprecated: " + yytext()); return new Symbol(LexicalUnit.NUMBER, yyline, yycolumn, Integer.valueOf(yytext()));
+            { warn("Warning! Numbers with leading zeros are deprecated: " + yytext()); return number();
             } 
             // fall through
           case 45: break;
@@ -752,22 +896,22 @@ class LexicalAnalyzer {
             // fall through
           case 46: break;
           case 17: 
-            { return new Symbol(LexicalUnit.IF, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.IF);
             } 
             // fall through
           case 47: break;
           case 18: 
-            { return new Symbol(LexicalUnit.DO, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.DO);
             } 
             // fall through
           case 48: break;
           case 19: 
-            { return new Symbol(LexicalUnit.ASSIGN, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.ASSIGN);
             } 
             // fall through
           case 49: break;
           case 20: 
-            { return new Symbol(LexicalUnit.OR, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.OR);
             } 
             // fall through
           case 50: break;
@@ -777,47 +921,47 @@ class LexicalAnalyzer {
             // fall through
           case 51: break;
           case 22: 
-            { return new Symbol(LexicalUnit.END, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.END);
             } 
             // fall through
           case 52: break;
           case 23: 
-            { return new Symbol(LexicalUnit.DOTS, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.DOTS);
             } 
             // fall through
           case 53: break;
           case 24: 
-            { return new Symbol(LexicalUnit.AND, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.AND);
             } 
             // fall through
           case 54: break;
           case 25: 
-            { return new Symbol(LexicalUnit.ELSE, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.ELSE);
             } 
             // fall through
           case 55: break;
           case 26: 
-            { return new Symbol(LexicalUnit.READ, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.READ);
             } 
             // fall through
           case 56: break;
           case 27: 
-            { return new Symbol(LexicalUnit.THEN, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.THEN);
             } 
             // fall through
           case 57: break;
           case 28: 
-            { return new Symbol(LexicalUnit.BEG, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.BEG);
             } 
             // fall through
           case 58: break;
           case 29: 
-            { return new Symbol(LexicalUnit.WHILE, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.WHILE);
             } 
             // fall through
           case 59: break;
           case 30: 
-            { return new Symbol(LexicalUnit.PRINT, yyline, yycolumn, yytext());
+            { return symbol(LexicalUnit.PRINT);
             } 
             // fall through
           case 60: break;
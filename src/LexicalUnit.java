@@ -152,6 +152,89 @@ public enum LexicalUnit{
     }
     
     
+    /**
+     * Returns the text of the terminal as it appears in the source code.
+     * 
+     * @return a String containing the only word matched by the terminal, or null for the terminals that match several words (or none).
+     */
+    public String lexeme() {
+        String n=null;
+        switch (this) {
+            case BEG:
+                n="begin";
+                break;
+            case END:
+                n="end";
+                break;
+            case DOTS:
+                n="...";
+                break;
+            case ASSIGN:
+                n=":=";
+                break;
+            case LPAREN:
+                n="(";
+                break;
+            case RPAREN:
+                n=")";
+                break;
+            case MINUS:
+                n="-";
+                break;
+            case PLUS:
+                n="+";
+                break;
+            case TIMES:
+                n="*";
+                break;
+            case DIVIDE:
+                n="/";
+                break;
+            case IF:
+                n="if";
+                break;
+            case THEN:
+                n="then";
+                break;
+            case ELSE:
+                n="else";
+                break;
+            case AND:
+                n="and";
+                break;
+            case OR:
+                n="or";
+                break;
+            case LBRACK:
+                n="{";
+                break;
+            case RBRACK:
+                n="}";
+                break;
+            case EQUAL:
+                n="=";
+                break;
+            case SMALLER:
+                n="<";
+                break;
+            case WHILE:
+                n="while";
+                break;
+            case DO:
+                n="do";
+                break;
+            case PRINT:
+                n="print";
+                break;
+            case READ:
+                n="read";
+                break;
+            default:
+                break;
+        }
+        return n;
+    }
+    
     /**
      * Returns the LaTeX code representing the terminal.
      * 
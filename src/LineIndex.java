@@ -0,0 +1,194 @@
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Table of the offsets at which the lines of a source file start.
+ *
+ * Tokens only record the offset of their first character; their line and column are computed from this table by
+ * binary search, when an error message needs them. Line terminators are the ones JFlex counts: \n, \r, \r\n (as a
+ * single terminator), \u000B, \u000C, \u0085, \u2028 and \u2029.
+ *
+ * The table is built lazily, on the first query: from a {@link MappedSource MappedSource}, or from the characters read
+ * through the Reader returned by {@link #track(Reader) track}. The tracking Reader only copies each window it reads
+ * at the end of a pending buffer, with System.arraycopy, and the line terminators are searched when a position is
+ * needed. The pending characters are then kept until the next query: two bytes per character of the source when no
+ * position is ever needed.
+ */
+public class LineIndex {
+    /**
+     * Offsets of the first character of each line, in increasing order (the first line starts at 0).
+     */
+    private int[] starts = new int[64];
+
+    /**
+     * Number of lines recorded in {@link starts starts}.
+     */
+    private int count = 1;
+
+    /**
+     * Source still to be indexed, null once indexed (or when the index is filled by a Reader).
+     */
+    private MappedSource source;
+
+    /**
+     * Characters read through the tracking Reader and not indexed yet, in {@link pending pending}[0..pendingLength).
+     */
+    private char[] pending = new char[0];
+
+    /**
+     * Number of characters in {@link pending pending}.
+     */
+    private int pendingLength = 0;
+
+    /**
+     * Offset of the next character to be recorded.
+     */
+    private int offset = 0;
+
+    /**
+     * Last character recorded, to merge \r\n into a single line terminator.
+     */
+    private char previous = 0;
+
+    /**
+     * Creates an index of the characters read through {@link #track(Reader) track}.
+     */
+    public LineIndex() {
+        this.source = null;
+    }
+
+    /**
+     * Creates an index of a mapped file, which is built on the first query.
+     *
+     * @param source the mapped file.
+     */
+    public LineIndex(MappedSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Wraps a Reader so that every character read through it is kept, to be indexed on the first query.
+     *
+     * @param in the Reader of the source file.
+     * @return a Reader delivering the same characters as in.
+     */
+    public Reader track(Reader in) {
+        return new FilterReader(in) {
+            @Override
+            public int read() throws IOException {
+                int c = super.read();
+                if (c >= 0) {
+                    keep(new char[] {(char) c}, 0, 1);
+                }
+                return c;
+            }
+
+            @Override
+            public int read(char[] buffer, int off, int len) throws IOException {
+                int n = super.read(buffer, off, len);
+                if (n > 0) {
+                    keep(buffer, off, n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Appends characters read from the source to the pending ones.
+     *
+     * @param buffer the array holding the characters.
+     * @param off the position of the first character in the array.
+     * @param len the number of characters.
+     */
+    private synchronized void keep(char[] buffer, int off, int len) {
+        if (pendingLength + len > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(2 * pending.length, pendingLength + len));
+        }
+        System.arraycopy(buffer, off, pending, pendingLength, len);
+        pendingLength += len;
+    }
+
+    /**
+     * Records the next character of the source.
+     *
+     * @param c the character at offset {@link offset offset}.
+     */
+    private void record(char c) {
+        offset++;
+        switch (c) {
+            case '\n':
+                if (previous == '\r') {
+                    starts[count-1] = offset; // \r\n is one line terminator
+                } else {
+                    addLine(offset);
+                }
+                break;
+            case '\r':
+            case '\u000B':
+            case '\u000C':
+            case '\u0085':
+            case '\u2028':
+            case '\u2029':
+                addLine(offset);
+                break;
+            default:
+                break;
+        }
+        previous = c;
+    }
+
+    /**
+     * Records the start of a new line.
+     *
+     * @param start the offset of the first character of the line.
+     */
+    private void addLine(int start) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, 2 * count);
+        }
+        starts[count++] = start;
+    }
+
+    /**
+     * Indexes the mapped source if this was not done yet, or the characters read since the last query.
+     * 
+     * Synchronized since the scanners of the chunks of a file share its index and may report errors concurrently.
+     */
+    private synchronized void ensureIndexed() {
+        if (source != null) {
+            for (int i = 0; i < source.length(); i++) {
+                record(source.charAt(i));
+            }
+            source = null;
+        }
+        for (int i = 0; i < pendingLength; i++) {
+            record(pending[i]);
+        }
+        pendingLength = 0;
+    }
+
+    /**
+     * Returns the line of a character.
+     *
+     * @param offset the offset of the character in the file.
+     * @return the number of line terminators before the character (the first line being 0).
+     */
+    public int line(int offset) {
+        ensureIndexed();
+        int i = Arrays.binarySearch(starts, 0, count, offset);
+        return i >= 0 ? i : -i - 2; // Otherwise the insertion point is the line after
+    }
+
+    /**
+     * Returns the column of a character.
+     *
+     * @param offset the offset of the character in the file.
+     * @return the number of characters between the start of its line and the character.
+     */
+    public int column(int offset) {
+        return offset - starts[line(offset)];
+    }
+}
@@ -0,0 +1,249 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The natural loops of an {@link IR.Function IR.Function}, and how they are nested.
+ *
+ * An edge is a back edge when its target, the header of the loop, dominates its source, the latch. The loop is made
+ * of the header and of the blocks which can reach a latch without going through the header, the back edges to the
+ * same header making a single loop. The generator only branches back to the <code>whileLoop_N</code> block of a
+ * while, so each while gives a loop headed by its condition. Two loops are either disjoint or nested.
+ *
+ * The headers are processed from the last one in reverse postorder, so the inner loops are found first. The walk
+ * back from the latches of a loop jumps over the loops already found, from the header of the outermost one to its
+ * predecessors, which makes it a nested loop: each block is only visited by the walk of its innermost loop and by
+ * the walks reaching the headers. Each block is then mapped to its innermost loop, and the tree of the loops is
+ * numbered in preorder so that checking whether a loop contains a block compares two intervals.
+ *
+ * The predecessors and successors of the blocks must be {@link IR.Function#updateEdges() up to date}, and the loops
+ * are computed again whenever the control-flow graph changes.
+ */
+public class Loops {
+    /**
+     * The analysis computing the loops of a function, from its dominator tree.
+     */
+    public static final Analysis<Loops> ANALYSIS = new Analysis<Loops>() {
+        @Override
+        public String getName() {
+            return "loops";
+        }
+
+        @Override
+        public Loops compute(IR.Function function, PassManager manager) {
+            return new Loops(manager.getAnalysis(Dominators.ANALYSIS));
+        }
+    };
+
+    /**
+     * A natural loop.
+     */
+    public final class Loop {
+        private final IR.Block header;
+        /**
+         * Blocks of the loop branching back to its header.
+         */
+        private final List<IR.Block> latches = new ArrayList<IR.Block>();
+        /**
+         * Blocks of the loop which are not in a nested loop, in reverse postorder.
+         */
+        private final List<IR.Block> blocks = new ArrayList<IR.Block>();
+        /**
+         * The innermost loop containing this one, null for an outermost loop.
+         */
+        private Loop parent;
+        private final List<Loop> children = new ArrayList<Loop>();
+        /**
+         * Preorder number of the loop in the tree of the loops.
+         */
+        private int entering;
+        /**
+         * Largest preorder number of the loops nested in this one.
+         */
+        private int leaving;
+
+        /**
+         * Creates a loop without blocks.
+         *
+         * @param header the header of the loop.
+         */
+        private Loop(IR.Block header) {
+            this.header = header;
+        }
+
+        /**
+         * Returns the header of the loop, the only block entered from outside the loop.
+         *
+         * @return the target of the back edges.
+         */
+        public IR.Block getHeader() {
+            return header;
+        }
+
+        /**
+         * Returns the blocks of the loop branching back to its header.
+         *
+         * @return an unmodifiable list of the sources of the back edges.
+         */
+        public List<IR.Block> getLatches() {
+            return Collections.unmodifiableList(latches);
+        }
+
+        /**
+         * Returns the blocks of the loop which are not in a loop nested in it.
+         *
+         * @return an unmodifiable list of the blocks, each one after its dominators.
+         */
+        public List<IR.Block> getOwnBlocks() {
+            return Collections.unmodifiableList(blocks);
+        }
+
+        /**
+         * Checks whether a block is in the loop, or in a loop nested in it.
+         *
+         * @param block a block of the function.
+         * @return true iff the block is in the loop.
+         */
+        public boolean contains(IR.Block block) {
+            Loop loop = innermost.get(block);
+            return loop != null && entering <= loop.entering && loop.entering <= leaving;
+        }
+
+        /**
+         * Returns the innermost loop containing this one.
+         *
+         * @return the parent loop, null for an outermost loop.
+         */
+        public Loop getParent() {
+            return parent;
+        }
+
+        /**
+         * Returns the loops immediately nested in this one.
+         *
+         * @return an unmodifiable list of the child loops.
+         */
+        public List<Loop> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+    }
+
+    /**
+     * The loops, each one before the loops containing it.
+     */
+    private final List<Loop> loops = new ArrayList<Loop>();
+    /**
+     * The innermost loop containing each block, the blocks outside the loops being absent.
+     */
+    private final Map<IR.Block, Loop> innermost = new IdentityHashMap<IR.Block, Loop>();
+
+    /**
+     * Finds the loops of a function.
+     *
+     * @param dominators the dominator tree of the function.
+     */
+    public Loops(Dominators dominators) {
+        List<IR.Block> order = dominators.getReversePostorder();
+        for (int i = order.size() - 1; i >= 0; i--) {
+            IR.Block header = order.get(i);
+            Loop loop = null;
+            for (IR.Block predecessor : header.getPredecessors()) {
+                if (dominators.isReachable(predecessor) && dominators.dominates(header, predecessor)) {
+                    if (loop == null) {
+                        loop = new Loop(header);
+                    }
+                    loop.latches.add(predecessor);
+                }
+            }
+            if (loop == null) {
+                continue;
+            }
+            loops.add(loop);
+            innermost.put(header, loop);
+            Deque<IR.Block> worklist = new ArrayDeque<IR.Block>(loop.latches);
+            while (!worklist.isEmpty()) {
+                IR.Block block = worklist.poll();
+                Loop nested = innermost.get(block);
+                if (nested == null) {
+                    innermost.put(block, loop);
+                } else {
+                    while (nested.parent != null) {
+                        nested = nested.parent;
+                    }
+                    if (nested == loop) {
+                        continue;
+                    }
+                    // The outermost loop found so far is nested in this one, the walk goes on from its header
+                    nested.parent = loop;
+                    loop.children.add(nested);
+                    block = nested.header;
+                }
+                for (IR.Block predecessor : block.getPredecessors()) {
+                    if (dominators.isReachable(predecessor)) {
+                        worklist.add(predecessor);
+                    }
+                }
+            }
+        }
+        for (IR.Block block : order) {
+            Loop loop = innermost.get(block);
+            if (loop != null) {
+                loop.blocks.add(block);
+            }
+        }
+        // Preorder numbering of the tree, with an explicit stack
+        int counter = 0;
+        Deque<Loop> stack = new ArrayDeque<Loop>();
+        Map<Loop, Integer> next = new IdentityHashMap<Loop, Integer>();
+        for (Loop root : loops) {
+            if (root.parent != null) {
+                continue;
+            }
+            root.entering = counter++;
+            stack.push(root);
+            next.put(root, 0);
+            while (!stack.isEmpty()) {
+                Loop loop = stack.peek();
+                int child = next.get(loop);
+                if (child < loop.children.size()) {
+                    next.put(loop, child + 1);
+                    Loop nested = loop.children.get(child);
+                    nested.entering = counter++;
+                    stack.push(nested);
+                    next.put(nested, 0);
+                } else {
+                    loop.leaving = counter - 1;
+                    stack.pop();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the loops of the function.
+     *
+     * @return an unmodifiable list of the loops, the inner loops before the loops containing them.
+     */
+    public List<Loop> getLoops() {
+        return Collections.unmodifiableList(loops);
+    }
+
+    /**
+     * Adds a block inserted by a pass keeping the loops up to date, to the innermost loop of another block.
+     *
+     * @param block the new block.
+     * @param dominator the block branching to the new block, which it immediately follows in the
+     *        {@link Loop#getOwnBlocks() blocks} of its loop.
+     */
+    public void insert(IR.Block block, IR.Block dominator) {
+        Loop loop = innermost.get(dominator);
+        if (loop != null) {
+            innermost.put(block, loop);
+            loop.blocks.add(loop.blocks.indexOf(dominator) + 1, block);
+        }
+    }
+}
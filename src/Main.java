@@ -1,4 +1,6 @@
+import java.io.BufferedWriter;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
@@ -23,29 +25,180 @@ public class Main{
     public static void main(String[] args) throws FileNotFoundException, IOException, SecurityException, Exception {
         // Display the usage when no arguments are given
         if(args.length == 0){
-            System.out.println("Usage:  java -jar part3.jar [FILE]\n"
+            System.out.println("Usage:  java -jar part3.jar [OPTIONS] [FILE]\n"
+                               + "\tOPTIONS:\n"
+                               + "\t-packed: scan the whole file into a compact token buffer before parsing\n"
+                               + "\t-parallel: scan the file by chunks on all cores (implies -packed), and with -wt build the AST from the parse tree on all cores\n"
+                               + "\t-direct: scan the file with the direct-coded scanner instead of the JFlex tables (implies -packed)\n"
+                               + "\t-rules: count how often each rule of the grammar is applied and print the counts on the error stream\n"
+                               + "\t-wt FILE.tex: write the full parse tree of the program as a LaTeX document in FILE.tex\n"
+                               + "\t-ll1: parse with the LL(1) table built from cfg.pmp and an explicit stack (default)\n"
+                               + "\t-rd: parse with the recursive descent instead of the LL(1) table, its depth being bounded by the Java stack\n"
+                               + "\t-share: share identical arithmetic expressions in the AST and reuse their values in the generated code\n"
+                               + "\t-short: evaluate the conditions with short circuits, skipping the operands of and/or once the result is known\n"
+                               + "\t-mem2reg: keep the variables in SSA registers instead of loading and storing them in memory\n"
+                               + "\t-O0, -O1, -O2: optimization level (default -O0). -O1 simplifies the AST and implies -short and -mem2reg, -O2 also implies -share\n"
+                               + "\t-time-passes: print the time of each optimization pass and the size of the code it leaves on the error stream\n"
+                               + "\t-wa FILE.ast: write the AST of the program in FILE.ast, which can then be compiled instead of the source\n"
                                + "\tFILE:\n"
-                               + "\tA .ppm file containing a PascalMaisPresque program\n"
+                               + "\tA .ppm file containing a PascalMaisPresque program, or a .ast file written by -wa\n"
                                );
             System.exit(0);
         } else {
-            FileReader codeSource = null;
-            try {
-                codeSource = new FileReader(args[args.length-1]);
-            } catch (IOException e) {
-                e.printStackTrace();
+            String sourcePath = args[args.length-1];
+            boolean packedTokens = false;
+            boolean parallelLexing = false;
+            boolean directLexing = false;
+            boolean tableParsing = true;
+            boolean sharedExpressions = false;
+            boolean promoteVariables = false;
+            boolean shortCircuit = false;
+            int optimizationLevel = 0;
+            boolean timePasses = false;
+            String latexPath = null;
+            String astPath = null;
+            RuleCounter ruleCounter = null;
+            for (int i = 0; i < args.length-1; i++) {
+                switch (args[i]) {
+                    case "-packed":
+                        packedTokens = true;
+                        break;
+                    case "-parallel":
+                        parallelLexing = true;
+                        break;
+                    case "-direct":
+                        directLexing = true;
+                        break;
+                    case "-ll1":
+                        tableParsing = true;
+                        break;
+                    case "-rd":
+                        tableParsing = false;
+                        break;
+                    case "-share":
+                        sharedExpressions = true;
+                        break;
+                    case "-short":
+                        shortCircuit = true;
+                        break;
+                    case "-mem2reg":
+                        promoteVariables = true;
+                        break;
+                    case "-O0":
+                    case "-O1":
+                    case "-O2":
+                        optimizationLevel = args[i].charAt(2) - '0';
+                        break;
+                    case "-time-passes":
+                        timePasses = true;
+                        break;
+                    case "-rules":
+                        ruleCounter = new RuleCounter();
+                        break;
+                    case "-wt":
+                        if (i+1 < args.length-1) {
+                            latexPath = args[++i];
+                        }
+                        break;
+                    case "-wa":
+                        if (i+1 < args.length-1) {
+                            astPath = args[++i];
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (optimizationLevel >= 1) {
+                shortCircuit = true;
+            }
+            if (optimizationLevel >= 2) {
+                sharedExpressions = true;
+            }
+            PassManager passManager = PassManager.forLevel(optimizationLevel);
+            if (promoteVariables && optimizationLevel == 0) {
+                passManager.add(new Mem2Reg());
             }
-            ParseTree parseTree = null;
-            Parser parser = new Parser(codeSource);
             try {
-                parseTree = parser.parse();
-                AST ast = new AST(parseTree);
-                LLVM llvm = new LLVM(ast);
-                System.out.print(llvm.getCode());
+                ExpressionTable expressions = sharedExpressions ? new ExpressionTable() : null;
+                AST.Program program;
+                if (ASTReader.isCachedAST(sourcePath)) {
+                    // An AST written by -wa is compiled without scanning and parsing its source again
+                    program = ASTReader.read(sourcePath, expressions);
+                } else {
+                    // Pure ASCII files are mapped and read without decoding (scanned in place by -direct), the others go through a FileReader
+                    MappedSource mappedSource = MappedSource.open(sourcePath);
+                    TokenBuffer tokens = null;
+                    LexicalAnalyzer scanner = null;
+                    if (parallelLexing && mappedSource != null) {
+                        tokens = new ParallelLexer(mappedSource, ParallelLexer.DEFAULT_CHUNK_SIZE).tokenize();
+                    } else if (directLexing && mappedSource != null) {
+                        tokens = new DirectLexer(mappedSource).tokenize();
+                    } else {
+                        scanner = mappedSource != null ? new LexicalAnalyzer(mappedSource) : new LexicalAnalyzer(new FileReader(sourcePath));
+                        if (packedTokens || parallelLexing || directLexing) {
+                            tokens = TokenBuffer.fill(scanner);
+                        }
+                    }
+                    // The full parse tree is only built when it has to be drawn, otherwise the AST is built right away
+                    ASTBuilder astBuilder = new ASTBuilder(expressions);
+                    ParseTreeArena arena = latexPath != null ? new ParseTreeArena() : null;
+                    TreeBuilder builder = arena != null ? arena : astBuilder;
+                    if (tableParsing) {
+                        LL1Parser parser = tokens != null ? new LL1Parser(tokens) : new LL1Parser(scanner);
+                        parser.setListener(ruleCounter);
+                        parser.parse(builder);
+                    } else {
+                        Parser parser = tokens != null ? new Parser(tokens) : new Parser(scanner);
+                        parser.setListener(ruleCounter);
+                        parser.parse(builder);
+                    }
+                    if (ruleCounter != null) {
+                        System.err.print(ruleCounter.report());
+                    }
+                    if (arena != null) {
+                        try (BufferedWriter writer = new BufferedWriter(new FileWriter(latexPath))) {
+                            writer.write(arena.getTree().toLaTeX());
+                        }
+                        if (parallelLexing && expressions == null) {
+                            // Only without -share, as the table of the shared expressions is not thread-safe
+                            program = new ParallelASTBuilder(arena, ParallelASTBuilder.DEFAULT_THRESHOLD).build();
+                        } else {
+                            arena.replay(astBuilder);
+                            program = astBuilder.getProgram();
+                        }
+                    } else {
+                        program = astBuilder.getProgram();
+                    }
+                    if (astPath != null) {
+                        ASTWriter.write(program, astPath);
+                    }
+                }
+                if (optimizationLevel >= 1) {
+                    long start = System.nanoTime();
+                    ASTSimplifier simplifier = new ASTSimplifier(expressions);
+                    program = simplifier.simplify(program);
+                    passManager.record("simplify", System.nanoTime() - start, simplifier.getRewrites() + " rewrites of the AST");
+                }
+                LLVM llvm = new LLVM(program, sharedExpressions, shortCircuit);
+                if (passManager.isEmpty()) {
+                    System.out.print(llvm.getCode());
+                } else {
+                    // The passes add and remove instructions, so the registers are numbered again
+                    IR.Function function = llvm.getFunction();
+                    passManager.run(function);
+                    System.out.print(new IRPrinter(true).print(function));
+                }
+                if (timePasses) {
+                    System.err.print(passManager.report());
+                }
             } catch (ParseException e) {
                 System.out.println("Error:> " + e.getMessage());
             } catch (Exception e) {
                 System.out.println("Error:> " + e);
+            } catch (StackOverflowError e) {
+                // Only the recursive descent (-rd) and the drawing of the parse tree (-wt) still recurse on the program
+                System.out.println("Error:> The program is nested too deeply, the Java stack overflowed (java -Xss sets its size)");
             }
         }
     }
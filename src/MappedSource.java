@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A source file mapped in memory with {@link FileChannel#map FileChannel.map}, the ASCII fast path of the scanners.
+ *
+ * PascalMaisPresque sources are usually pure ASCII: in that case one byte is one character, so no charset decoder is
+ * needed. The {@link DirectLexer DirectLexer} scans the mapped {@link #bytes() bytes} in place. The JFlex scanner
+ * only runs on chars: it reads an {@link #asciiReader(int, int) ASCII reader}, which widens the bytes into the scan
+ * buffer at each refill, so it is spared the decoding but not the copies.
+ */
+public class MappedSource {
+    /**
+     * Mask selecting the high bit of each byte of a long: a byte is ASCII iff its high bit is cleared.
+     */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * The mapped content of the file.
+     */
+    private final MappedByteBuffer bytes;
+
+    /**
+     * The number of bytes (and characters) of the file.
+     */
+    private final int length;
+
+    /**
+     * Creates a source over already mapped bytes.
+     *
+     * @param bytes the mapped content of the file.
+     */
+    private MappedSource(MappedByteBuffer bytes) {
+        this.bytes = bytes;
+        this.length = bytes.capacity();
+    }
+
+    /**
+     * Maps the given file in memory.
+     *
+     * @param path the path of the file to be mapped.
+     * @return the mapped source, or null if the file contains non-ASCII bytes or is too large to be mapped at once, in which case the caller should fall back to a Reader.
+     * @throws IOException if the file cannot be opened or mapped.
+     */
+    public static MappedSource open(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            bytes.order(ByteOrder.LITTLE_ENDIAN);
+            return isAscii(bytes, (int) size) ? new MappedSource(bytes) : null;
+        }
+    }
+
+    /**
+     * Checks that every byte of the buffer is ASCII, testing eight bytes at a time.
+     *
+     * @param bytes the buffer to check.
+     * @param length the number of bytes of the buffer.
+     * @return true iff no byte has its high bit set.
+     */
+    private static boolean isAscii(MappedByteBuffer bytes, int length) {
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES) {
+            if ((bytes.getLong(i) & HIGH_BITS) != 0) {
+                return false;
+            }
+        }
+        for (; i < length; i++) {
+            if (bytes.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the length of the source.
+     *
+     * @return the number of characters (which is also the number of bytes) of the source.
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Returns the character at the given position.
+     *
+     * @param index the position of the character.
+     * @return the ASCII character at this position.
+     */
+    public char charAt(int index) {
+        return (char) bytes.get(index);
+    }
+
+    /**
+     * Returns a Reader over the characters between start (included) and end (excluded).
+     *
+     * Since the source is ASCII, each byte is simply widened to a char, directly into the buffer given to
+     * {@link Reader#read(char[], int, int) read}: the reader has no buffer of its own, but each character read is
+     * still copied once.
+     *
+     * @param start the position of the first character to read.
+     * @param end the position after the last character to read.
+     * @return a new reader over this part of the source.
+     */
+    public Reader asciiReader(int start, int end) {
+        return new Reader() {
+            private int position = start;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (position >= end) {
+                    return -1;
+                }
+                int count = Math.min(length, end - position);
+                for (int i = 0; i < count; i++) {
+                    buffer[offset + i] = (char) bytes.get(position + i);
+                }
+                position += count;
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Returns the bytes of the source, without copying them.
+     *
+     * @return a new read-only view of the mapped bytes.
+     */
+    public ByteBuffer bytes() {
+        return bytes.asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,376 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Promotes the variables of an {@link IR.Function IR.Function} from memory to SSA registers.
+ *
+ * The generator gives each variable an <code>alloca</code>, loads it for each use and stores it for each assignment.
+ * This pass removes the allocas, loads and stores of the variables only accessed that way: a load is replaced by the
+ * value last stored in the variable, and phi nodes merge the values coming from different paths at the join points
+ * (the <code>ifEnd_N</code> and <code>whileLoop_N</code> blocks).
+ *
+ * The phis are placed with the classic algorithm of Cytron et al.: at the iterated dominance frontier of the blocks
+ * storing a variable, but only where the variable is live, so that no useless phi is created. The loads and stores
+ * are then renamed in a walk of the dominator tree with an explicit stack, keeping the current value of each
+ * variable on a stack of its own. A variable read before any assignment holds 0.
+ *
+ * The results of the phis are numbered after those of the generator, so the function must then be printed with
+ * its registers {@link IRPrinter#IRPrinter(boolean) renumbered}.
+ */
+public class Mem2Reg implements Pass {
+    /**
+     * Value of a variable read before any assignment.
+     */
+    private static final IR.Constant INITIAL_VALUE = IR.Constant.i32(0);
+
+    /**
+     * Promoted allocas, with the index of their variable.
+     */
+    private final Map<IR.Instruction, Integer> variables = new IdentityHashMap<IR.Instruction, Integer>();
+    /**
+     * Index of each reachable block in the reverse postorder.
+     */
+    private final Map<IR.Block, Integer> indices = new IdentityHashMap<IR.Block, Integer>();
+    /**
+     * Variable merged by each phi placed by the pass.
+     */
+    private final Map<IR.Instruction, Integer> phis = new IdentityHashMap<IR.Instruction, Integer>();
+    /**
+     * Value replacing each removed load.
+     */
+    private final Map<IR.Instruction, IR.Value> replacements = new IdentityHashMap<IR.Instruction, IR.Value>();
+    /**
+     * Instructions to remove: the promoted allocas, and their loads and stores.
+     */
+    private final Set<IR.Instruction> removed = Collections.newSetFromMap(new IdentityHashMap<IR.Instruction, Boolean>());
+    /**
+     * Current value of each variable during the renaming, the last one being on top.
+     */
+    private List<List<IR.Value>> definitions;
+    /**
+     * Number given to the next phi.
+     */
+    private int nextNumber;
+
+    @Override
+    public String getName() {
+        return "mem2reg";
+    }
+
+    /**
+     * Promotes the variables of a function.
+     *
+     * @param function a function whose edges are up to date.
+     * @param manager the pass manager, giving the dominator tree.
+     * @return true iff a variable was promoted.
+     */
+    @Override
+    public boolean run(IR.Function function, PassManager manager) {
+        variables.clear();
+        indices.clear();
+        phis.clear();
+        replacements.clear();
+        removed.clear();
+        nextNumber = 0;
+        findVariables(function);
+        if (variables.isEmpty()) {
+            return false;
+        }
+        Dominators dominators = manager.getAnalysis(Dominators.ANALYSIS);
+        List<IR.Block> order = dominators.getReversePostorder();
+        for (int i = 0; i < order.size(); i++) {
+            indices.put(order.get(i), i);
+        }
+        placePhis(dominators);
+        rename(dominators, function);
+        for (IR.Block block : function.getBlocks()) {
+            block.removeIf(removed::contains);
+            for (IR.Instruction instruction : block.getInstructions()) {
+                for (int i = 0; i < instruction.getOperands().size(); i++) {
+                    IR.Value replacement = replacements.get(instruction.getOperand(i));
+                    if (replacement != null) {
+                        instruction.setOperand(i, replacement);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The control-flow graph is not changed, only the instructions of the blocks.
+     */
+    @Override
+    public boolean preserves(Analysis<?> analysis) {
+        return analysis == Dominators.ANALYSIS || analysis == Loops.ANALYSIS;
+    }
+
+    /**
+     * Finds the allocas only used as the address of loads and stores, which can be promoted.
+     *
+     * @param function the function.
+     */
+    private void findVariables(IR.Function function) {
+        Set<IR.Instruction> escaping = Collections.newSetFromMap(new IdentityHashMap<IR.Instruction, Boolean>());
+        List<IR.Instruction> allocas = new ArrayList<IR.Instruction>();
+        for (IR.Block block : function.getBlocks()) {
+            for (IR.Instruction instruction : block.getInstructions()) {
+                nextNumber = Math.max(nextNumber, instruction.getNumber() + 1);
+                if (instruction.getOpcode() == IR.Opcode.ALLOCA) {
+                    allocas.add(instruction);
+                }
+                for (int i = 0; i < instruction.getOperands().size(); i++) {
+                    IR.Value operand = instruction.getOperand(i);
+                    boolean address = (instruction.getOpcode() == IR.Opcode.LOAD && i == 0)
+                            || (instruction.getOpcode() == IR.Opcode.STORE && i == 1);
+                    if (!address && operand instanceof IR.Instruction) {
+                        escaping.add((IR.Instruction) operand);
+                    }
+                }
+            }
+        }
+        for (IR.Instruction alloca : allocas) {
+            if (!escaping.contains(alloca)) {
+                variables.put(alloca, variables.size());
+            }
+        }
+    }
+
+    /**
+     * Returns the promoted variable accessed by a load or a store.
+     *
+     * @param instruction an instruction.
+     * @return the index of the variable, or -1 if the instruction does not access a promoted variable.
+     */
+    private int accessed(IR.Instruction instruction) {
+        Integer variable = null;
+        if (instruction.getOpcode() == IR.Opcode.LOAD) {
+            variable = variables.get(instruction.getOperand(0));
+        } else if (instruction.getOpcode() == IR.Opcode.STORE) {
+            variable = variables.get(instruction.getOperand(1));
+        }
+        return variable == null ? -1 : variable;
+    }
+
+    /**
+     * Places the phis of the variables at the join points where they are live and reached by different stores.
+     *
+     * @param dominators the dominator tree of the function.
+     */
+    private void placePhis(Dominators dominators) {
+        List<IR.Block> order = dominators.getReversePostorder();
+        int count = variables.size();
+        // Blocks storing each variable, and blocks loading it before storing it
+        List<BitSet> stores = new ArrayList<BitSet>(count);
+        List<BitSet> exposedLoads = new ArrayList<BitSet>(count);
+        for (int v = 0; v < count; v++) {
+            stores.add(new BitSet());
+            exposedLoads.add(new BitSet());
+        }
+        for (int b = 0; b < order.size(); b++) {
+            for (IR.Instruction instruction : order.get(b).getInstructions()) {
+                int v = accessed(instruction);
+                if (v < 0) {
+                    continue;
+                }
+                if (instruction.getOpcode() == IR.Opcode.STORE) {
+                    stores.get(v).set(b);
+                } else if (!stores.get(v).get(b)) {
+                    exposedLoads.get(v).set(b);
+                }
+            }
+        }
+        int[] worklist = new int[order.size()];
+        for (int v = 0; v < count; v++) {
+            // A variable is live at the start of a block when a path from it loads the variable before storing it
+            BitSet live = (BitSet) exposedLoads.get(v).clone();
+            int size = 0;
+            for (int b = live.nextSetBit(0); b >= 0; b = live.nextSetBit(b + 1)) {
+                worklist[size++] = b;
+            }
+            while (size > 0) {
+                IR.Block block = order.get(worklist[--size]);
+                for (IR.Block predecessor : block.getPredecessors()) {
+                    Integer p = indices.get(predecessor);
+                    if (p != null && !live.get(p) && !stores.get(v).get(p)) {
+                        live.set(p);
+                        worklist[size++] = p;
+                    }
+                }
+            }
+            // Iterated dominance frontier of the stores, a phi being a store of its own block
+            BitSet visited = (BitSet) stores.get(v).clone();
+            BitSet placed = new BitSet();
+            for (int b = visited.nextSetBit(0); b >= 0; b = visited.nextSetBit(b + 1)) {
+                worklist[size++] = b;
+            }
+            while (size > 0) {
+                IR.Block block = order.get(worklist[--size]);
+                for (IR.Block join : dominators.getFrontier(block)) {
+                    int j = indices.get(join);
+                    if (placed.get(j) || !live.get(j)) {
+                        continue;
+                    }
+                    placed.set(j);
+                    IR.Instruction phi = IR.Instruction.phi(IR.Type.I32, nextNumber++);
+                    phi.setIndentation(join.getInstructions().get(0).getIndentation());
+                    join.add(phiCount(join), phi);
+                    phis.put(phi, v);
+                    if (!visited.get(j)) {
+                        visited.set(j);
+                        worklist[size++] = j;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the phis at the start of a block.
+     *
+     * @param block a block.
+     * @return the index of its first instruction which is not a phi.
+     */
+    private static int phiCount(IR.Block block) {
+        int count = 0;
+        for (IR.Instruction instruction : block.getInstructions()) {
+            if (instruction.getOpcode() != IR.Opcode.PHI) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Replaces the loads of the variables by their current values and fills the incoming values of the phis, in
+     * preorder of the dominator tree. The blocks which cannot be reached only give the initial values to their
+     * successors.
+     *
+     * @param dominators the dominator tree of the function.
+     * @param function the function.
+     */
+    private void rename(Dominators dominators, IR.Function function) {
+        definitions = new ArrayList<List<IR.Value>>(variables.size());
+        for (int v = 0; v < variables.size(); v++) {
+            definitions.add(new ArrayList<IR.Value>());
+        }
+        removed.addAll(variables.keySet());
+        // Variables defined so far, undone when the walk leaves the subtree of the block defining them
+        int[] defined = new int[16];
+        int definedCount = 0;
+        List<IR.Block> stack = new ArrayList<IR.Block>();
+        List<Integer> next = new ArrayList<Integer>();
+        List<Integer> marks = new ArrayList<Integer>();
+        stack.add(function.getEntry());
+        next.add(-1);
+        marks.add(0);
+        while (!stack.isEmpty()) {
+            int top = stack.size() - 1;
+            IR.Block block = stack.get(top);
+            int child = next.get(top);
+            if (child == -1) {
+                // First visit of the block
+                marks.set(top, definedCount);
+                for (IR.Instruction instruction : block.getInstructions()) {
+                    int v;
+                    if (instruction.getOpcode() == IR.Opcode.PHI) {
+                        Integer merged = phis.get(instruction);
+                        v = merged == null ? -1 : merged;
+                    } else {
+                        v = accessed(instruction);
+                    }
+                    if (v < 0) {
+                        continue;
+                    }
+                    if (instruction.getOpcode() == IR.Opcode.LOAD) {
+                        replacements.put(instruction, current(v));
+                        removed.add(instruction);
+                        continue;
+                    }
+                    if (instruction.getOpcode() == IR.Opcode.STORE) {
+                        IR.Value value = instruction.getOperand(0);
+                        IR.Value replacement = replacements.get(value);
+                        definitions.get(v).add(replacement != null ? replacement : value);
+                        removed.add(instruction);
+                    } else {
+                        definitions.get(v).add(instruction);
+                    }
+                    if (definedCount == defined.length) {
+                        defined = Arrays.copyOf(defined, 2 * definedCount);
+                    }
+                    defined[definedCount++] = v;
+                }
+                addIncoming(block, false);
+                child = 0;
+            }
+            List<IR.Block> children = dominators.getChildren(block);
+            if (child < children.size()) {
+                next.set(top, child + 1);
+                stack.add(children.get(child));
+                next.add(-1);
+                marks.add(0);
+            } else {
+                for (int mark = marks.get(top); definedCount > mark; definedCount--) {
+                    List<IR.Value> values = definitions.get(defined[definedCount - 1]);
+                    values.remove(values.size() - 1);
+                }
+                stack.remove(top);
+                next.remove(top);
+                marks.remove(top);
+            }
+        }
+        for (IR.Block block : function.getBlocks()) {
+            if (indices.containsKey(block)) {
+                continue;
+            }
+            for (IR.Instruction instruction : block.getInstructions()) {
+                int v = accessed(instruction);
+                if (v >= 0) {
+                    if (instruction.getOpcode() == IR.Opcode.LOAD) {
+                        replacements.put(instruction, INITIAL_VALUE);
+                    }
+                    removed.add(instruction);
+                }
+            }
+            addIncoming(block, true);
+        }
+    }
+
+    /**
+     * Adds the values of the variables at the end of a block to the phis of its successors.
+     *
+     * @param block a block.
+     * @param unreachable whether the block cannot be reached, its values being then the initial ones.
+     */
+    private void addIncoming(IR.Block block, boolean unreachable) {
+        for (IR.Block successor : block.getSuccessors()) {
+            for (IR.Instruction instruction : successor.getInstructions()) {
+                if (instruction.getOpcode() != IR.Opcode.PHI) {
+                    break;
+                }
+                Integer v = phis.get(instruction);
+                if (v != null) {
+                    instruction.addIncoming(unreachable ? INITIAL_VALUE : current(v), block);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the current value of a variable.
+     *
+     * @param variable the index of the variable.
+     * @return the value last stored on the path being renamed, or the initial value.
+     */
+    private IR.Value current(int variable) {
+        List<IR.Value> values = definitions.get(variable);
+        return values.isEmpty() ? INITIAL_VALUE : values.get(values.size() - 1);
+    }
+}
@@ -0,0 +1,211 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds the {@link AST AST} of a program from its parse tree stored in a {@link ParseTreeArena ParseTreeArena}, in
+ * parallel on a ForkJoin pool.
+ *
+ * The instructions of an &lt;InstList&gt; are independent subtrees: a task builds the statements of a range of them,
+ * and splits the range in two halves of similar sizes while it holds more parse tree nodes than a threshold. A single
+ * large <code>begin</code> ... <code>end</code> instruction is split in the same way along its own list. Smaller
+ * ranges are replayed to their own {@link ASTBuilder ASTBuilder}, and the statements are concatenated in the order of
+ * the source, so the AST is the same as the one built on a single thread.
+ */
+public class ParallelASTBuilder {
+    /**
+     * Default number of parse tree nodes under which a range of instructions is built on a single thread.
+     */
+    public static final int DEFAULT_THRESHOLD = 1 << 14;
+    /**
+     * Number of nested splits after which a range is built on a single thread, whatever its size, so that deeply
+     * nested blocks do not overflow the stack.
+     */
+    private static final int MAX_LEVEL = 32;
+
+    /**
+     * The parse tree of the program.
+     */
+    private final ParseTreeArena arena;
+    /**
+     * Number of parse tree nodes under which a range of instructions is built on a single thread.
+     */
+    private final int threshold;
+
+    /**
+     * Creates a parallel builder for the given parse tree.
+     *
+     * @param arena the complete parse tree of a program.
+     * @param threshold the number of parse tree nodes under which a range of instructions is not split.
+     */
+    public ParallelASTBuilder(ParseTreeArena arena, int threshold) {
+        this.arena = arena;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Builds the AST of the program.
+     *
+     * @return the root of the AST, equal to the one {@link ParseTreeArena#replay(TreeBuilder) replayed} to an ASTBuilder.
+     */
+    public AST.Program build() {
+        int program = arena.getRoot();
+        if (arena.subtreeSize(program) < threshold) {
+            ASTBuilder builder = new ASTBuilder();
+            arena.replay(builder);
+            return builder.getProgram();
+        }
+        // <Program> → begin <Code> end, and <Code> → <InstList> or ε
+        int code = arena.nextSibling(arena.firstChild(program));
+        int instList = arena.firstChild(code);
+        if (instList == ParseTreeArena.EPSILON) {
+            return new AST.Program(new AST.Block(new ArrayList<AST.Statement>()));
+        }
+        return new AST.Program(new AST.Block(ForkJoinPool.commonPool().invoke(task(instList, 0))));
+    }
+
+    /**
+     * Creates the task building the statements of an &lt;InstList&gt;.
+     *
+     * @param instList the index of the &lt;InstList&gt; node.
+     * @param level the number of splits done before.
+     * @return the task building the statements of all its instructions.
+     */
+    private Statements task(int instList, int level) {
+        // <InstList> → <Instruction> <InstList'>, and <InstList'> → ... <Instruction> <InstList'> or ε
+        List<Integer> instructions = new ArrayList<Integer>();
+        int instruction = arena.firstChild(instList);
+        while (true) {
+            instructions.add(instruction);
+            int tail = arena.nextSibling(instruction);
+            int separator = arena.firstChild(tail);
+            if (separator == ParseTreeArena.EPSILON) {
+                break;
+            }
+            instruction = arena.nextSibling(separator);
+        }
+        int[] ends = new int[instructions.size() + 1];
+        for (int i = 0; i < instructions.size(); i++) {
+            ends[i + 1] = ends[i] + arena.subtreeSize(instructions.get(i));
+        }
+        return new Statements(instructions, ends, 0, instructions.size(), level);
+    }
+
+    /**
+     * Task building the statements of a range of instructions of an &lt;InstList&gt;.
+     */
+    private class Statements extends RecursiveTask<List<AST.Statement>> {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The &lt;Instruction&gt; nodes of the list.
+         */
+        private final List<Integer> instructions;
+        /**
+         * Number of parse tree nodes of the instructions before each one (and of all of them, at the end).
+         */
+        private final int[] ends;
+        /**
+         * Index of the first instruction of the range.
+         */
+        private final int from;
+        /**
+         * Index after the last instruction of the range.
+         */
+        private final int to;
+        /**
+         * Number of splits done before this task.
+         */
+        private final int level;
+
+        /**
+         * Creates the task of a range of instructions.
+         *
+         * @param instructions the &lt;Instruction&gt; nodes of the list.
+         * @param ends the number of parse tree nodes of the instructions before each one.
+         * @param from the index of the first instruction of the range.
+         * @param to the index after the last instruction of the range.
+         * @param level the number of splits done before.
+         */
+        Statements(List<Integer> instructions, int[] ends, int from, int to, int level) {
+            this.instructions = instructions;
+            this.ends = ends;
+            this.from = from;
+            this.to = to;
+            this.level = level;
+        }
+
+        @Override
+        protected List<AST.Statement> compute() {
+            // A single large begin ... end instruction is split along its own list, without recursion when they nest
+            Statements range = this;
+            int blocks = 0;
+            while (range.to - range.from == 1 && range.size() >= threshold && range.isBlock()) {
+                range = task(arena.nextSibling(arena.firstChild(range.instructions.get(range.from))), level);
+                blocks++;
+            }
+            List<AST.Statement> statements = range.split();
+            for (; blocks > 0; blocks--) {
+                List<AST.Statement> block = new ArrayList<AST.Statement>(1);
+                block.add(new AST.Block(statements));
+                statements = block;
+            }
+            return statements;
+        }
+
+        /**
+         * Builds the statements of the range, in two halves of similar sizes on different threads if it is large.
+         *
+         * @return the statements of the instructions, in order.
+         */
+        private List<AST.Statement> split() {
+            if (size() < threshold || to - from == 1 || level == MAX_LEVEL) {
+                return sequential();
+            }
+            int middle = from + 1;
+            int half = ends[from] + size() / 2;
+            while (middle < to - 1 && ends[middle] < half) {
+                middle++;
+            }
+            Statements left = new Statements(instructions, ends, from, middle, level + 1);
+            left.fork();
+            List<AST.Statement> right = new Statements(instructions, ends, middle, to, level + 1).compute();
+            List<AST.Statement> statements = new ArrayList<AST.Statement>(to - from);
+            statements.addAll(left.join());
+            statements.addAll(right);
+            return statements;
+        }
+
+        /**
+         * Returns the size of the range.
+         *
+         * @return the number of parse tree nodes of the instructions of the range.
+         */
+        private int size() {
+            return ends[to] - ends[from];
+        }
+
+        /**
+         * Checks whether the first instruction of the range is a block.
+         *
+         * @return true iff it is derived by &lt;Instruction&gt; → begin &lt;InstList&gt; end.
+         */
+        private boolean isBlock() {
+            return arena.label(arena.firstChild(instructions.get(from))) == LexicalUnit.BEG.ordinal();
+        }
+
+        /**
+         * Builds the statements of the range on the current thread.
+         *
+         * @return the statements of the instructions, in order.
+         */
+        private List<AST.Statement> sequential() {
+            ASTBuilder builder = new ASTBuilder();
+            for (int i = from; i < to; i++) {
+                arena.replay(instructions.get(i), builder);
+            }
+            return builder.getStatements();
+        }
+    }
+}
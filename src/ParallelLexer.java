@@ -0,0 +1,188 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Scans a large memory-mapped file by chunks, in parallel on a ForkJoin pool.
+ *
+ * Chunks are cut just after a line feed. Outside of a long comment, a line feed always ends a token, so a chunk can be
+ * scanned on its own provided the lexical state at its start is known. Each chunk is scanned speculatively from
+ * YYINITIAL; the results are then stitched in order, and a chunk whose speculation was wrong (because it starts
+ * inside a <code>'' ... ''</code> comment) is scanned again from LONGCOMMENTS. The stitched tokens, positions, identifier
+ * ids and errors are the same as those of a sequential scan. The warnings of each scan are kept with its tokens, and
+ * only printed, in the order of the source, for the scans which are stitched.
+ */
+public class ParallelLexer {
+    /**
+     * Default number of characters of a chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 22;
+
+    /**
+     * The file to be scanned.
+     */
+    private final MappedSource source;
+
+    /**
+     * The line index of the whole file, shared by the scanners of the chunks.
+     */
+    private final LineIndex lines;
+
+    /**
+     * Approximate number of characters of a chunk.
+     */
+    private final int chunkSize;
+
+    /**
+     * Result of the scan of a chunk from a given lexical state.
+     */
+    private static class Chunk {
+        /** Offset of the first character of the chunk. */
+        int start;
+        /** Offset after the last character of the chunk. */
+        int end;
+        /** Lexical state at the start of the chunk. */
+        int startState;
+        /** Lexical state at the end of the chunk. */
+        int endState;
+        /** Tokens of the chunk, ending with EOS unless the chunk ends in a comment. */
+        TokenBuffer tokens;
+        /** Lexing error met in the chunk, null if none. */
+        PatternSyntaxException error;
+        /** Warnings of the scan, only printed if the scan is kept. */
+        List<String> warnings = new ArrayList<>();
+    }
+
+    /**
+     * Creates a parallel lexer for the given file.
+     *
+     * @param source the mapped file to be scanned.
+     * @param chunkSize the approximate number of characters of a chunk.
+     */
+    public ParallelLexer(MappedSource source, int chunkSize) {
+        this.source = source;
+        this.lines = new LineIndex(source);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Scans the whole file.
+     *
+     * @return the tokens of the file, identical to those of a sequential scan, followed by the first lexing error
+     *         of the file if any.
+     * @throws IOException in case the lexing fails.
+     */
+    public TokenBuffer tokenize() throws IOException {
+        List<Callable<Chunk>> tasks = new ArrayList<>();
+        int start = 0;
+        do {
+            int end = cut(start);
+            final int chunkStart = start;
+            tasks.add(() -> scan(chunkStart, end, LexicalAnalyzer.YYINITIAL));
+            start = end;
+        } while (start < source.length());
+
+        TokenBuffer tokens = new TokenBuffer(new IdentifierTable(), lines);
+        int state = LexicalAnalyzer.YYINITIAL;
+        for (Future<Chunk> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+            Chunk chunk = get(future);
+            if (chunk.startState != state) {
+                // Wrong speculation: the chunk starts inside a comment
+                chunk = scan(chunk.start, chunk.end, state);
+            }
+            boolean last = chunk.end == source.length();
+            // Only the last chunk really ends the file (with EOS or an unclosed comment)
+            int count = chunk.tokens.size();
+            if (!last && count > 0 && chunk.tokens.type(count - 1) == LexicalUnit.EOS) {
+                count--;
+            }
+            tokens.append(chunk.tokens, count);
+            for (String warning : chunk.warnings) {
+                System.err.println(warning);
+            }
+            if (chunk.error != null && (last || chunk.endState != LexicalAnalyzer.LONGCOMMENTS)) {
+                // The scan stops at the first error, which the parser meets after the tokens before it
+                tokens.fail(chunk.error);
+                break;
+            }
+            state = chunk.endState;
+        }
+        return tokens;
+    }
+
+    /**
+     * Finds the end of the chunk starting at the given offset: just after the first line feed following the chunk size.
+     *
+     * @param start the offset of the first character of the chunk.
+     * @return the offset after the last character of the chunk.
+     */
+    private int cut(int start) {
+        int end = start + chunkSize;
+        if (end >= source.length() || end < 0) {
+            return source.length();
+        }
+        while (end < source.length() && source.charAt(end - 1) != '\n') {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Scans a chunk from the given lexical state.
+     *
+     * @param start the offset of the first character of the chunk.
+     * @param end the offset after the last character of the chunk.
+     * @param state the lexical state at the start of the chunk.
+     * @return the tokens, end state and possible error of the chunk.
+     * @throws IOException in case the lexing fails.
+     */
+    private Chunk scan(int start, int end, int state) throws IOException {
+        LexicalAnalyzer scanner = new LexicalAnalyzer(source, start, end, state, lines);
+        Chunk chunk = new Chunk();
+        chunk.start = start;
+        chunk.end = end;
+        chunk.startState = state;
+        chunk.tokens = new TokenBuffer(scanner.getIdentifiers(), lines);
+        scanner.packInto(chunk.tokens);
+        scanner.keepWarnings(chunk.warnings);
+        try {
+            while (scanner.nextToken().getType() != LexicalUnit.EOS) {
+                // The tokens are appended by the scanner itself
+            }
+        } catch (PatternSyntaxException e) {
+            // In LONGCOMMENTS, the only error is reaching the end of the input: the comment goes on in the next chunk
+            chunk.error = e;
+        }
+        chunk.endState = scanner.yystate();
+        return chunk;
+    }
+
+    /**
+     * Waits for the scan of a chunk.
+     *
+     * @param future the pending scan.
+     * @return the scanned chunk.
+     * @throws IOException if the scan failed with an IOException.
+     */
+    private static Chunk get(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
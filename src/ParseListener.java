@@ -0,0 +1,16 @@
+/**
+ * Observer of the derivation found by a parser, notified of each applied rule.
+ *
+ * The parsers only call a listener when one is attached, so parsing without listener costs a single null check per
+ * rule. {@link RuleCounter RuleCounter} counts how often each rule is applied; {@link Parser#displayFullRules()
+ * displayFullRules} attaches a listener printing the rules.
+ */
+public interface ParseListener {
+    /**
+     * Called when a rule is applied, before its right-hand side is matched.
+     *
+     * @param rule the number of the rule, from 1 to {@link RuleCounter#RULES RuleCounter.RULES} as in
+     *             <code>cfg.pmp</code>.
+     */
+    void ruleApplied(int rule);
+}
@@ -0,0 +1,369 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds and stores the full parse tree of a program in a few primitive arrays.
+ *
+ * A node is an index in the arena. Its label is encoded as in {@link Grammar Grammar} (the ordinal of a terminal, or
+ * {@link Grammar#TERMINALS Grammar.TERMINALS} plus the ordinal of a non-terminal), and the tree is stored as a
+ * first-child/next-sibling binary tree. For a leaf, the first-child entry is the index of its token among the matched
+ * tokens instead. All the ε-rules share the EPSILON leaf at index 0, which is always the only child of its parent.
+ *
+ * No ParseTree object is created while parsing: {@link #getTree() getTree} returns a read-only view of the root,
+ * whose nodes and lists of children are created on demand when the tree is walked, for instance by
+ * {@link ParseTree#toLaTexTree() toLaTexTree}. The stored derivation can also be {@link #replay(TreeBuilder) replayed}
+ * to another builder, to get the AST without parsing the program again.
+ *
+ * Nodes are numbered in the order they are entered, so the subtree of a node is a range of consecutive indices (apart
+ * from the shared EPSILON leaf), whose length gives the size of the subtree without walking it.
+ */
+public class ParseTreeArena implements TreeBuilder {
+    /**
+     * Initial number of nodes of the arena.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+    /**
+     * Initial capacity of the stack of open nodes.
+     */
+    private static final int INITIAL_DEPTH = 64;
+    /**
+     * Index standing for no node.
+     */
+    public static final int NONE = -1;
+    /**
+     * Index of the shared EPSILON leaf.
+     */
+    public static final int EPSILON = 0;
+    /**
+     * View of the EPSILON leaf, shared by all the arenas.
+     */
+    private static final ParseTree EPSILON_LEAF = new ParseTree(new Symbol(LexicalUnit.EPSILON), Collections.<ParseTree>emptyList());
+    /**
+     * Labels of the non-terminals (indexed by ordinal), shared by the views of their nodes.
+     */
+    private static final Symbol[] VARIABLE_LABELS = new Symbol[NonTerminal.values().length];
+
+    static {
+        for (NonTerminal variable : NonTerminal.values()) {
+            VARIABLE_LABELS[variable.ordinal()] = new Symbol(null, variable);
+        }
+    }
+
+    /**
+     * Encoded label of each node.
+     */
+    private int[] labels = new int[INITIAL_CAPACITY];
+    /**
+     * First child of each inner node (NONE if it has not any yet), or index of the token of each leaf.
+     */
+    private int[] firstChildren = new int[INITIAL_CAPACITY];
+    /**
+     * Next sibling of each node, NONE for the last child.
+     */
+    private int[] nextSiblings = new int[INITIAL_CAPACITY];
+    /**
+     * Number of nodes of the arena.
+     */
+    private int size = 0;
+    /**
+     * Matched tokens, in the order of the input.
+     */
+    private Symbol[] tokens = new Symbol[INITIAL_CAPACITY];
+    /**
+     * Number of matched tokens.
+     */
+    private int tokenCount = 0;
+    /**
+     * Nodes whose rule is being derived, the innermost being at index depth-1.
+     */
+    private int[] open = new int[INITIAL_DEPTH];
+    /**
+     * Last child added to the node with the same index in {@link #open open}, NONE if none.
+     */
+    private int[] lastChildren = new int[INITIAL_DEPTH];
+    /**
+     * Number of open nodes.
+     */
+    private int depth = 0;
+    /**
+     * The root of the tree, NONE until the start symbol is entered.
+     */
+    private int root = NONE;
+
+    /**
+     * Creates an empty arena, holding only the shared EPSILON leaf.
+     */
+    public ParseTreeArena() {
+        newNode(LexicalUnit.EPSILON.ordinal(), NONE);
+    }
+
+    @Override
+    public void enter(NonTerminal variable) {
+        int node = newNode(Grammar.code(variable), NONE);
+        link(node);
+        if (depth == open.length) {
+            open = Arrays.copyOf(open, 2 * depth);
+            lastChildren = Arrays.copyOf(lastChildren, 2 * depth);
+        }
+        open[depth] = node;
+        lastChildren[depth] = NONE;
+        depth++;
+    }
+
+    @Override
+    public void leaf(Symbol token) {
+        if (tokenCount == tokens.length) {
+            tokens = Arrays.copyOf(tokens, 2 * tokenCount);
+        }
+        tokens[tokenCount] = token;
+        link(newNode(token.getType().ordinal(), tokenCount++));
+    }
+
+    @Override
+    public void epsilon() {
+        // An ε-rule has a single child, so the shared leaf never needs another sibling
+        firstChildren[open[depth - 1]] = EPSILON;
+        lastChildren[depth - 1] = EPSILON;
+    }
+
+    @Override
+    public void exit() {
+        depth--;
+    }
+
+    /**
+     * Returns a read-only view of the tree, once the start symbol is exited.
+     *
+     * @return the root of the parse tree.
+     */
+    public ParseTree getTree() {
+        return root == NONE ? null : view(root);
+    }
+
+    /**
+     * Returns the root of the tree.
+     *
+     * @return the index of the node of the start symbol, NONE if it was not entered.
+     */
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the number of nodes of the arena, including the shared EPSILON leaf.
+     *
+     * @return the number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the label of a node.
+     *
+     * @param node the index of the node.
+     * @return the label encoded as in {@link Grammar Grammar}.
+     */
+    public int label(int node) {
+        return labels[node];
+    }
+
+    /**
+     * Returns the first child of a node.
+     *
+     * @param node the index of the node.
+     * @return the index of its first child, NONE for a leaf.
+     */
+    public int firstChild(int node) {
+        return Grammar.isTerminal(labels[node]) ? NONE : firstChildren[node];
+    }
+
+    /**
+     * Returns the next sibling of a node.
+     *
+     * @param node the index of the node.
+     * @return the index of its next sibling, NONE for the last child.
+     */
+    public int nextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    /**
+     * Returns the token of a leaf.
+     *
+     * @param node the index of the leaf.
+     * @return the matched token, or an EPSILON Symbol for the shared EPSILON leaf.
+     */
+    public Symbol token(int node) {
+        return node == EPSILON ? EPSILON_LEAF.getLabel() : tokens[firstChildren[node]];
+    }
+
+    /**
+     * Returns the number of nodes of the subtree of a node.
+     *
+     * @param node the index of the node.
+     * @return the number of nodes of its subtree, not counting the shared EPSILON leaf.
+     */
+    public int subtreeSize(int node) {
+        if (node == EPSILON) {
+            return 0;
+        }
+        // The last node of the subtree is found by following the last children
+        int last = node;
+        while (!Grammar.isTerminal(labels[last]) && firstChildren[last] != NONE && firstChildren[last] != EPSILON) {
+            int child = firstChildren[last];
+            while (nextSiblings[child] != NONE) {
+                child = nextSiblings[child];
+            }
+            last = child;
+        }
+        return last - node + 1;
+    }
+
+    /**
+     * Reports the stored derivation to another builder, in the order the parser reported it.
+     *
+     * @param builder the builder receiving the derivation.
+     */
+    public void replay(TreeBuilder builder) {
+        if (root != NONE) {
+            replay(root, builder);
+        }
+    }
+
+    /**
+     * Reports the derivation of the subtree of a node to another builder, in the order the parser reported it.
+     *
+     * @param node the index of the node.
+     * @param builder the builder receiving the derivation.
+     */
+    public void replay(int node, TreeBuilder builder) {
+        // Nodes still to be reported, the end of a node being encoded as its bitwise complement
+        int[] stack = new int[INITIAL_DEPTH];
+        int top = 0;
+        stack[top++] = node;
+        while (top > 0) {
+            int current = stack[--top];
+            if (current < 0) {
+                builder.exit();
+            } else if (current == EPSILON) {
+                builder.epsilon();
+            } else if (Grammar.isTerminal(labels[current])) {
+                builder.leaf(tokens[firstChildren[current]]);
+            } else {
+                builder.enter(Grammar.nonTerminal(labels[current]));
+                int count = 1;
+                for (int child = firstChildren[current]; child != NONE; child = nextSiblings[child]) {
+                    count++;
+                }
+                if (top + count > stack.length) {
+                    stack = Arrays.copyOf(stack, Math.max(2 * stack.length, top + count));
+                }
+                stack[top++] = ~current;
+                // The children are pushed in reverse order, so that the first one is reported first
+                int index = top + count - 2;
+                for (int child = firstChildren[current]; child != NONE; child = nextSiblings[child]) {
+                    stack[index--] = child;
+                }
+                top += count - 1;
+            }
+        }
+    }
+
+    /**
+     * Adds a node to the arena.
+     *
+     * @param label the encoded label of the node.
+     * @param first its first child, or the index of its token for a leaf.
+     * @return the index of the node.
+     */
+    private int newNode(int label, int first) {
+        if (size == labels.length) {
+            labels = Arrays.copyOf(labels, 2 * size);
+            firstChildren = Arrays.copyOf(firstChildren, 2 * size);
+            nextSiblings = Arrays.copyOf(nextSiblings, 2 * size);
+        }
+        labels[size] = label;
+        firstChildren[size] = first;
+        nextSiblings[size] = NONE;
+        return size++;
+    }
+
+    /**
+     * Appends a node to the children of the innermost open node, or makes it the root.
+     *
+     * @param node the index of the node.
+     */
+    private void link(int node) {
+        if (depth == 0) {
+            root = node;
+            return;
+        }
+        int last = lastChildren[depth - 1];
+        if (last == NONE) {
+            firstChildren[open[depth - 1]] = node;
+        } else {
+            nextSiblings[last] = node;
+        }
+        lastChildren[depth - 1] = node;
+    }
+
+    /**
+     * Creates a read-only view of a node.
+     *
+     * @param node the index of the node.
+     * @return a ParseTree whose label and children are those of the node.
+     */
+    private ParseTree view(int node) {
+        if (node == EPSILON) {
+            return EPSILON_LEAF;
+        }
+        int label = labels[node];
+        if (Grammar.isTerminal(label)) {
+            return new ParseTree(tokens[firstChildren[node]], Collections.<ParseTree>emptyList());
+        }
+        return new ParseTree(VARIABLE_LABELS[label - Grammar.TERMINALS], new Children(node));
+    }
+
+    /**
+     * Read-only list of the children of a node, whose views are created when they are accessed.
+     */
+    private class Children extends AbstractList<ParseTree> {
+        /**
+         * The parent node.
+         */
+        private final int parent;
+
+        /**
+         * Creates the list of children of a node.
+         *
+         * @param parent the index of the node.
+         */
+        Children(int parent) {
+            this.parent = parent;
+        }
+
+        @Override
+        public ParseTree get(int index) {
+            int child = firstChildren[parent];
+            for (int i = 0; i < index && child != NONE; i++) {
+                child = nextSiblings[child];
+            }
+            if (child == NONE || index < 0) {
+                throw new IndexOutOfBoundsException("Index: " + index);
+            }
+            return view(child);
+        }
+
+        @Override
+        public int size() {
+            int count = 0;
+            for (int child = firstChildren[parent]; child != NONE; child = nextSiblings[child]) {
+                count++;
+            }
+            return count;
+        }
+    }
+}
@@ -1,6 +1,10 @@
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Parser for PascalMaisPresque.
@@ -20,9 +24,21 @@ public class Parser{
      */
     private Symbol current;
     /**
-     * Option to print only the rule number (false) or the full rule (true).
+     * Packed tokens of the parsed file, or null when the tokens are read one by one from the lexer.
      */
-    private boolean fullRuleDisplay=false;
+    private TokenBuffer tokens;
+    /**
+     * Cursor in the packed tokens: index of the look-ahead.
+     */
+    private int position;
+    /**
+     * Receiver of the derivation, which builds the tree of the parsed file.
+     */
+    private TreeBuilder builder;
+    /**
+     * Listener notified of each applied rule, null if none (then rules are not traced at all).
+     */
+    private ParseListener listener;
     /**
      * Width (in characters) of the widest left handside in a production rule.
      */
@@ -31,6 +47,222 @@ public class Parser{
      * Width (in characters) of the highest rule number.
      */
     private static final int log10ruleCard=2; // 41 rules
+    /**
+     * Left hand-sides of the rules, indexed by rule number.
+     */
+    private static final String[] ruleLhs={
+        null,
+        "<Program>",
+        "<Code>",
+        "<Code>",
+        "<InstList>",
+        "<InstListTail>",
+        "<InstListTail>",
+        "<Instruction>",
+        "<Instruction>",
+        "<Instruction>",
+        "<Instruction>",
+        "<Instruction>",
+        "<Instruction>",
+        "<Assign>",
+        "<ExprArith>",
+        "<ExprArith'>",
+        "<ExprArith'>",
+        "<ExprArith'>",
+        "<Prod>",
+        "<Prod'>",
+        "<Prod'>",
+        "<Prod'>",
+        "<Atom>",
+        "<Atom>",
+        "<Atom>",
+        "<Atom>",
+        "<If>",
+        "<IfTail>",
+        "<IfTail>",
+        "<Cond>",
+        "<Cond'>",
+        "<Cond'>",
+        "<Conj>",
+        "<Conj'>",
+        "<Conj'>",
+        "<SimpleCond>",
+        "<SimpleCond>",
+        "<Comp>",
+        "<Comp>",
+        "<While>",
+        "<Print>",
+        "<Read>"
+    };
+    /**
+     * Right hand-sides of the rules, indexed by rule number.
+     */
+    private static final String[] ruleRhs={
+        null,
+        "begin <Code> end",
+        "<InstList>",
+        "ɛ",
+        "<Instruction> <InstListTail>",
+        "... <Instruction> <InstListTail>",
+        "ɛ",
+        "<Assign>",
+        "<If>",
+        "<While>",
+        "<Print>",
+        "<Read>",
+        "begin <InstList> end",
+        "[Varname] := <ExprArith>",
+        "<Prod> <ExprArith'>",
+        "+ <Prod> <ExprArith'>",
+        "- <Prod> <ExprArith'>",
+        "ɛ",
+        "<Atom> <Prod'>",
+        "* <Atom> <Prod'>",
+        "/ <Atom> <Prod'>",
+        "ɛ",
+        "- <Atom>",
+        "(<ExprArith>)",
+        "[VarName]",
+        "[Number]",
+        "if <Cond> then <Instruction> else <IfTail>",
+        "<Instruction>",
+        "ɛ",
+        "<Conj> <Cond'>",
+        "or <Conj> <Cond'>",
+        "ɛ",
+        "<SimpleCond> <Conj'>",
+        "and <SimpleCond> <Conj'>",
+        "ɛ",
+        "{<Cond>}",
+        "<ExprArith> <Comp> <ExprArith>",
+        "=",
+        "<",
+        "while <Cond> do <Instruction>",
+        "print([VarName])",
+        "read([VarName])"
+    };
+    /**
+     * Terminals expected as look-ahead by each non-terminal, reported when none of its rules applies.
+     */
+    private static final Map<NonTerminal,List<LexicalUnit>> EXPECTED=new EnumMap<NonTerminal,List<LexicalUnit>>(NonTerminal.class);
+    /**
+     * Singleton list of each terminal, reported when it cannot be matched.
+     */
+    private static final Map<LexicalUnit,List<LexicalUnit>> MATCHED=new EnumMap<LexicalUnit,List<LexicalUnit>>(LexicalUnit.class);
+    /**
+     * Listener printing the full rules as they are applied.
+     */
+    private static final ParseListener fullRuleDisplay=rNum -> ruleOutput(rNum,ruleLhs[rNum],ruleRhs[rNum],true);
+
+    static {
+        EXPECTED.put(NonTerminal.Code, Collections.unmodifiableList(Arrays.asList(
+            LexicalUnit.BEG,
+            LexicalUnit.IF,
+            LexicalUnit.WHILE,
+            LexicalUnit.PRINT,
+            LexicalUnit.READ,
+            LexicalUnit.VARNAME,
+            LexicalUnit.END
+        )));
+        EXPECTED.put(NonTerminal.InstListTail, Collections.unmodifiableList(Arrays.asList(
+            LexicalUnit.DOTS,
+            LexicalUnit.END
+        )));
+        EXPECTED.put(NonTerminal.Instruction, Collections.unmodifiableList(Arrays.asList(
+            LexicalUnit.VARNAME,
+            LexicalUnit.IF,
+            LexicalUnit.WHILE,
+            LexicalUnit.PRINT,
+            LexicalUnit.READ,
+            LexicalUnit.BEG
+        )));
+        EXPECTED.put(NonTerminal.ExprArithPrime, Collections.unmodifiableList(Arrays.asList(
+            LexicalUnit.PLUS,
+            LexicalUnit.MINUS,
+            LexicalUnit.END,
+            LexicalUnit.THEN,
+            LexicalUnit.ELSE,
+            LexicalUnit.DO,
+            LexicalUnit.DOTS,
+            LexicalUnit.RPAREN,
+            LexicalUnit.RBRACK,
+            LexicalUnit.AND,
+            LexicalUnit.OR,
+            LexicalUnit.EQUAL,
+            LexicalUnit.SMALLER
+        )));
+        EXPECTED.put(NonTerminal.ProdPrime, Collections.unmodifiableList(Arrays.asList(
+            LexicalUnit.PLUS,
+            LexicalUnit.MINUS,
+            LexicalUnit.TIMES,
+            LexicalUnit.DIVIDE,
+            LexicalUnit.END,
+            LexicalUnit.THEN,
+            LexicalUnit.ELSE,
+            LexicalUnit.DO,
+            LexicalUnit.DOTS,
+            LexicalUnit.RPAREN,
+            LexicalUnit.RBRACK,
+            LexicalUnit.AND,
+            LexicalUnit.OR,
+            LexicalUnit.EQUAL,
+            LexicalUnit.SMALLER
+        )));
+        EXPECTED.put(NonTerminal.Atom, Collections.unmodifiableList(Arrays.asList(
+            LexicalUnit.MINUS,
+            LexicalUnit.LPAREN,
+            LexicalUnit.VARNAME,
+            LexicalUnit.NUMBER
+        )));
+        EXPECTED.put(NonTerminal.IfTail, Collections.unmodifiableList(Arrays.asList(
+            LexicalUnit.BEG,
+            LexicalUnit.END,
+            LexicalUnit.IF,
+            LexicalUnit.WHILE,
+            LexicalUnit.PRINT,
+            LexicalUnit.READ,
+            LexicalUnit.DOTS,
+            LexicalUnit.ELSE,
+            LexicalUnit.VARNAME
+        )));
+        EXPECTED.put(NonTerminal.CondPrime, Collections.unmodifiableList(Arrays.asList(
+            LexicalUnit.OR,
+            LexicalUnit.THEN,
+            LexicalUnit.DO,
+            LexicalUnit.RBRACK
+        )));
+        EXPECTED.put(NonTerminal.ConjPrime, Collections.unmodifiableList(Arrays.asList(
+            LexicalUnit.AND,
+            LexicalUnit.OR,
+            LexicalUnit.THEN,
+            LexicalUnit.DO,
+            LexicalUnit.RBRACK
+        )));
+        EXPECTED.put(NonTerminal.SimpleCond, Collections.unmodifiableList(Arrays.asList(
+            LexicalUnit.LBRACK,
+            LexicalUnit.MINUS,
+            LexicalUnit.LPAREN,
+            LexicalUnit.VARNAME,
+            LexicalUnit.NUMBER
+        )));
+        EXPECTED.put(NonTerminal.Comp, Collections.unmodifiableList(Arrays.asList(
+            LexicalUnit.EQUAL,
+            LexicalUnit.SMALLER
+        )));
+        for (LexicalUnit unit : LexicalUnit.values()) {
+            MATCHED.put(unit, Collections.singletonList(unit));
+        }
+    }
+
+    /**
+     * Returns the terminals expected as look-ahead by a non-terminal, in the order of the error messages.
+     *
+     * @param variable a non-terminal.
+     * @return the terminals reported when none of the rules of the non-terminal applies, null if it has a single rule.
+     */
+    static List<LexicalUnit> expected(NonTerminal variable) {
+        return EXPECTED.get(variable);
+    }
 
     /**
      * Creates a Parser object for the provided file and initialized the look-ahead.
@@ -39,9 +271,30 @@ public class Parser{
      * @throws IOException in case the lexing fails (syntax error).
      */
     public Parser(FileReader source) throws IOException{
-        this.scanner = new LexicalAnalyzer(source);
+        this(new LexicalAnalyzer(source));
+    }
+
+    /**
+     * Creates a Parser object reading the tokens of the provided lexer and initialized the look-ahead.
+     * 
+     * @param scanner the lexer of the parsed file, for instance one reading a {@link MappedSource MappedSource}.
+     * @throws IOException in case the lexing fails (syntax error).
+     */
+    public Parser(LexicalAnalyzer scanner) throws IOException{
+        this.scanner = scanner;
         this.current = scanner.nextToken();
     }
+
+    /**
+     * Creates a Parser object reading already scanned tokens, starting with the first one as look-ahead.
+     * 
+     * @param tokens the packed tokens of the parsed file.
+     */
+    public Parser(TokenBuffer tokens){
+        this.tokens = tokens;
+        this.position = 0;
+        tokens.reach(position);
+    }
     
     /* Display of the rules */
     /**
@@ -78,57 +331,101 @@ public class Parser{
     }
     
     /**
-     * Outputs the rule used in the LL descent, using the fullRuleDisplay value to set the option of full display or not.
+     * Notifies the listener, if any, of the rule used in the LL descent.
      * 
      * @param rNum the rule number.
-     * @param ruleLhs the left hand-side of the rule as a String.
-     * @param ruleRhs the right hand-side of the rule as a String.
      */
-    private void ruleOutput(int rNum, String ruleLhs,String ruleRhs) {
-        ruleOutput(rNum,ruleLhs,ruleRhs,this.fullRuleDisplay);
+    private void ruleOutput(int rNum) {
+        if (listener != null) {
+            listener.ruleApplied(rNum);
+        }
+    }
+    
+    /**
+     * Returns the text of a rule, as displayed with the full rules.
+     * 
+     * @param rNum the rule number.
+     * @return a String with the left hand-side and the right hand-side of the rule.
+     */
+    public static String ruleText(int rNum) {
+        return ruleLhs[rNum]+"  →  "+ruleRhs[rNum];
+    }
+    
+    /**
+     * Attaches a listener notified of each applied rule, replacing the display of the rules.
+     * 
+     * @param listener the listener, or null to stop tracing the rules.
+     */
+    public void setListener(ParseListener listener) {
+        this.listener=listener;
     }
     
     /**
      * Sets the display option to "Full rules".
      */
     public void displayFullRules() {
-        this.fullRuleDisplay=true;
+        this.listener=fullRuleDisplay;
     }
     
     /**
      * Sets the display option to "Rule numbers only".
      */
     public void displayRuleNumbers() {
-        this.fullRuleDisplay=false;
+        if (this.listener==fullRuleDisplay) {
+            this.listener=null;
+        }
     }
 
     /* Matching of terminals */
+    /**
+     * Returns the type of the look-ahead.
+     * 
+     * @return the LexicalUnit of the current token.
+     */
+    private LexicalUnit lookahead(){
+        return tokens == null ? current.getType() : tokens.type(position);
+    }
+
+    /**
+     * Returns the look-ahead as a complete Symbol, with its position and value (used for error reporting).
+     * 
+     * @return the Symbol of the current token.
+     */
+    private Symbol token(){
+        return tokens == null ? current : tokens.symbol(position);
+    }
+
     /**
      * Advances in the input stream, consuming one token.
      * 
      * @throws IOException in case the lexing fails (syntax error).
      */
     private void consume() throws IOException{
-        current = scanner.nextToken();
+        if (tokens == null) {
+            current = scanner.nextToken();
+        } else {
+            tokens.reach(++position);
+        }
     }
 
     /**
      * Matches a (terminal) token from the head of the word.
      * 
+     * The matched token is reported to the builder as a leaf.
+     * 
      * @param token then LexicalUnit (terminal) to be matched.
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the matching fails (syntax error): the next tolen is not the one to be matched.
-     * @return a ParseTree made of a single leaf (the matched terminal).
      */
-    private ParseTree match(LexicalUnit token) throws IOException, ParseException{
-        if(!current.getType().equals(token)){
+    private void match(LexicalUnit token) throws IOException, ParseException{
+        if(lookahead() != token){
             // There is a parsing error
-            throw new ParseException(current, Arrays.asList(token));
+            throw new ParseException(token(), MATCHED.get(token));
         }
         else {
-            Symbol cur = current;
+            Symbol cur = tokens == null ? current : tokens.leaf(position);
             consume();
-            return new ParseTree(cur);
+            builder.leaf(cur);
         }
     }
     
@@ -141,10 +438,23 @@ public class Parser{
      * @throws ParseException in case the parsing fails (syntax error).
      */
     public ParseTree parse() throws IOException, ParseException{
+        ParseTreeArena builder = new ParseTreeArena();
+        parse(builder);
+        return builder.getTree();
+    }
+
+    /**
+     * Parses the file, reporting its derivation to a tree builder.
+     * 
+     * @param builder the builder of the tree, for instance an {@link ASTBuilder ASTBuilder} to skip the parse tree.
+     * @throws IOException in case the lexing fails (syntax error).
+     * @throws ParseException in case the parsing fails (syntax error).
+     */
+    public void parse(TreeBuilder builder) throws IOException, ParseException{
+        this.builder = builder;
         // Program is the initial symbol of the grammar
-        ParseTree pt = program();
-        //if (!this.fullRuleDisplay) {System.out.println();} // New line at the end of list of rules
-        return pt;
+        program();
+        //if (this.listener!=fullRuleDisplay) {System.out.println();} // New line at the end of list of rules
     }
     
     /**
@@ -152,18 +462,19 @@ public class Parser{
      * 
      * Tries to apply rule [1]&nbsp;&lt;Program&gt;&nbsp;&rarr;&nbsp;<code>begin</code> &lt;Code&gt; <code>end</code>
      * 
-     * @return a ParseTree with a &lt;Program&gt; non-terminal at the root.
+     * The tree of the &lt;Program&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree program() throws IOException, ParseException{
+    private void program() throws IOException, ParseException{
         // [1] <Program>  ->  begin <Code> end
-        ruleOutput(1,"<Program>","begin <Code> end");
-        return new ParseTree(NonTerminal.Program, Arrays.asList(
-            match(LexicalUnit.BEG),
-            code(),
-            match(LexicalUnit.END)
-        ));
+        ruleOutput(1);
+        builder.enter(NonTerminal.Program);
+        match(LexicalUnit.BEG);
+        code();
+        match(LexicalUnit.END);
+        builder.exit();
     }
     
     /**
@@ -174,12 +485,13 @@ public class Parser{
      *   <li>[3]&nbsp;&lt;Code&gt;&nbsp;&rarr;&nbsp;&epsilon;</li>
      * </ul>
      * 
-     * @return a ParseTree with a &lt;Code&gt; non-terminal at the root.
+     * The tree of the &lt;Code&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree code() throws IOException, ParseException{
-        switch(current.getType()) {
+    private void code() throws IOException, ParseException{
+        switch(lookahead()) {
             // [2] <Code>  ->  <InstList>
             case BEG:
             case IF:
@@ -187,26 +499,20 @@ public class Parser{
             case PRINT:
             case READ:
             case VARNAME:
-                ruleOutput(2,"<Code>","<InstList>");
-                return new ParseTree(NonTerminal.Code, Arrays.asList(
-                    instructionList()
-                ));
+                ruleOutput(2);
+                builder.enter(NonTerminal.Code);
+                instructionList();
+                builder.exit();
+                break;
             // [3] <Code>  ->  EPSILON 
             case END:
-                ruleOutput(3,"<Code>","ɛ");
-                return new ParseTree(NonTerminal.Code, Arrays.asList(
-                    new ParseTree(LexicalUnit.EPSILON)
-                ));
+                ruleOutput(3);
+                builder.enter(NonTerminal.Code);
+                builder.epsilon();
+                builder.exit();
+                break;
             default:
-                throw new ParseException(current,NonTerminal.Code,Arrays.asList(
-                    LexicalUnit.BEG,
-                    LexicalUnit.IF,
-                    LexicalUnit.WHILE,
-                    LexicalUnit.PRINT,
-                    LexicalUnit.READ,
-                    LexicalUnit.VARNAME,
-                    LexicalUnit.END
-                ));
+                throw new ParseException(token(),NonTerminal.Code,EXPECTED.get(NonTerminal.Code));
         }
     }
     
@@ -215,14 +521,18 @@ public class Parser{
      * 
      * Tries to apply rule [4]&nbsp;&lt;InstList&gt;&nbsp;&rarr;&nbsp;&lt;Instruction&gt;&lt;InstListTail&gt;
      * 
-     * @return a ParseTree with a &lt;InstList&gt; non-terminal at the root.
+     * The tree of the &lt;InstList&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree instructionList() throws IOException, ParseException{
+    private void instructionList() throws IOException, ParseException{
         // [4] <InstList>  ->  <Instruction><InstListTail>
-        ruleOutput(4,"<InstList>","<Instruction> <InstListTail>");
-        return new ParseTree(NonTerminal.InstList, Arrays.asList(instruction(),instructionListTail()));
+        ruleOutput(4);
+        builder.enter(NonTerminal.InstList);
+        instruction();
+        instructionListTail();
+        builder.exit();
     }
 
     /**
@@ -233,31 +543,31 @@ public class Parser{
      *   <li>[6]&nbsp;&lt;InstListTail&gt;&nbsp;&rarr;&nbsp;&epsilon;</li>
      * </ul>
      * 
-     * @return a ParseTree with a &lt;InstListTail&gt; non-terminal at the root.
+     * The tree of the &lt;InstListTail&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree instructionListTail() throws IOException, ParseException{
-        switch(current.getType()) {
+    private void instructionListTail() throws IOException, ParseException{
+        switch(lookahead()) {
             // [5] <InstListTail>  ->  ...<Instruction><InstListTail>
             case DOTS:
-                ruleOutput(5,"<InstListTail>","... <Instruction> <InstListTail>");
-                return new ParseTree(NonTerminal.InstListTail,Arrays.asList(
-                    match(LexicalUnit.DOTS),
-                    instruction(),
-                    instructionListTail()
-                ));
+                ruleOutput(5);
+                builder.enter(NonTerminal.InstListTail);
+                match(LexicalUnit.DOTS);
+                instruction();
+                instructionListTail();
+                builder.exit();
+                break;
             // [6] <InstListTail>  ->  EPSILON
             case END:
-                ruleOutput(6,"<InstListTail>","ɛ");
-                return new ParseTree(NonTerminal.InstListTail,Arrays.asList(
-                    new ParseTree(LexicalUnit.EPSILON)
-                ));
+                ruleOutput(6);
+                builder.enter(NonTerminal.InstListTail);
+                builder.epsilon();
+                builder.exit();
+                break;
             default:
-                throw new ParseException(current,NonTerminal.InstListTail,Arrays.asList(
-                    LexicalUnit.DOTS,
-                    LexicalUnit.END
-                ));
+                throw new ParseException(token(),NonTerminal.InstListTail,EXPECTED.get(NonTerminal.InstListTail));
         }
     }
 
@@ -273,59 +583,59 @@ public class Parser{
      *   <li>[12]&nbsp;&lt;Instruction&gt;&nbsp;&rarr;&nbsp;<code>begin</code> &lt;InstList&gt; <code>end</code></li>
      * </ul>
      * 
-     * @return a ParseTree with a &lt;Instruction&gt; non-terminal at the root.
+     * The tree of the &lt;Instruction&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree instruction() throws IOException, ParseException{
-        switch(current.getType()) {
+    private void instruction() throws IOException, ParseException{
+        switch(lookahead()) {
             // [7] <Instruction>  ->  <Assign>
             case VARNAME:
-                ruleOutput(7,"<Instruction>","<Assign>");
-                return new ParseTree(NonTerminal.Instruction, Arrays.asList(
-                    assignExpr()
-                ));
+                ruleOutput(7);
+                builder.enter(NonTerminal.Instruction);
+                assignExpr();
+                builder.exit();
+                break;
             // [8] <Instruction>  ->  <If>
             case IF:
-                ruleOutput(8,"<Instruction>","<If>");
-                return new ParseTree(NonTerminal.Instruction, Arrays.asList(
-                    ifExpr()
-                ));
+                ruleOutput(8);
+                builder.enter(NonTerminal.Instruction);
+                ifExpr();
+                builder.exit();
+                break;
             // [9] <Instruction>  ->  <While>
             case WHILE:
-                ruleOutput(9,"<Instruction>","<While>");
-                return new ParseTree(NonTerminal.Instruction, Arrays.asList(
-                    whileExpr()
-                ));
+                ruleOutput(9);
+                builder.enter(NonTerminal.Instruction);
+                whileExpr();
+                builder.exit();
+                break;
             // [10] <Instruction>  ->  <Print>
             case PRINT:
-                ruleOutput(10,"<Instruction>","<Print>");
-                return new ParseTree(NonTerminal.Instruction, Arrays.asList(
-                    printExpr()
-                ));
+                ruleOutput(10);
+                builder.enter(NonTerminal.Instruction);
+                printExpr();
+                builder.exit();
+                break;
             // [11] <Instruction>  ->  <Read>
             case READ:
-                ruleOutput(11,"<Instruction>","<Read>");
-                return new ParseTree(NonTerminal.Instruction, Arrays.asList(
-                    readExpr()
-                ));
+                ruleOutput(11);
+                builder.enter(NonTerminal.Instruction);
+                readExpr();
+                builder.exit();
+                break;
             // [12] <Instruction>  ->  begin <InstList> end
             case BEG:
-                ruleOutput(12,"<Instruction>","begin <InstList> end");
-                return new ParseTree(NonTerminal.Instruction, Arrays.asList(
-                    match(LexicalUnit.BEG),
-                    instructionList(),
-                    match(LexicalUnit.END)
-                ));
+                ruleOutput(12);
+                builder.enter(NonTerminal.Instruction);
+                match(LexicalUnit.BEG);
+                instructionList();
+                match(LexicalUnit.END);
+                builder.exit();
+                break;
             default:
-                throw new ParseException(current,NonTerminal.Instruction,Arrays.asList(
-                    LexicalUnit.VARNAME,
-                    LexicalUnit.IF,
-                    LexicalUnit.WHILE,
-                    LexicalUnit.PRINT,
-                    LexicalUnit.READ,
-                    LexicalUnit.BEG
-                ));
+                throw new ParseException(token(),NonTerminal.Instruction,EXPECTED.get(NonTerminal.Instruction));
         }
     }
     
@@ -334,18 +644,19 @@ public class Parser{
      * 
      * Tries to apply rule [13]&nbsp;&lt;Assign&gt;&nbsp;&rarr;&nbsp;[Varname]<code>:=</code>&lt;ExprArith&gt;
      * 
-     * @return a ParseTree with a &lt;Assign&gt; non-terminal at the root.
+     * The tree of the &lt;Assign&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree assignExpr() throws IOException, ParseException{
+    private void assignExpr() throws IOException, ParseException{
         // [13] <Assign>  ->  [Varname] := <ExprArith>
-        ruleOutput(13,"<Assign>","[Varname] := <ExprArith>");
-        return new ParseTree(NonTerminal.Assign, Arrays.asList(
-            match(LexicalUnit.VARNAME),
-            match(LexicalUnit.ASSIGN),
-            exprArith()
-        ));
+        ruleOutput(13);
+        builder.enter(NonTerminal.Assign);
+        match(LexicalUnit.VARNAME);
+        match(LexicalUnit.ASSIGN);
+        exprArith();
+        builder.exit();
     }
     
     /**
@@ -353,17 +664,18 @@ public class Parser{
      * 
      * Tries to apply rule [14]&nbsp;&lt;ExprArith&gt;&nbsp;&rarr;&nbsp;&lt;Prod&gt;&lt;ExprArith'&gt;
      * 
-     * @return a ParseTree with a &lt;ExprArith&gt; non-terminal at the root.
+     * The tree of the &lt;ExprArith&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree exprArith() throws IOException, ParseException{
+    private void exprArith() throws IOException, ParseException{
         // [14] <ExprArith>  ->  <Prod> <ExprArith'>
-        ruleOutput(14,"<ExprArith>","<Prod> <ExprArith'>");
-        return new ParseTree(NonTerminal.ExprArith, Arrays.asList(
-            prod(),
-            exprArithPrime()
-        ));
+        ruleOutput(14);
+        builder.enter(NonTerminal.ExprArith);
+        prod();
+        exprArithPrime();
+        builder.exit();
     }
 
     /**
@@ -375,28 +687,31 @@ public class Parser{
      *   <li>[17]&nbsp;&lt;ExprArith'&gt;&nbsp;&rarr;&nbsp;&epsilon;</li>
      * </ul>
      * 
-     * @return a ParseTree with a &lt;ExprArith'&gt; non-terminal at the root.
+     * The tree of the &lt;ExprArith'&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree exprArithPrime() throws IOException, ParseException{
-        switch (current.getType()) {
+    private void exprArithPrime() throws IOException, ParseException{
+        switch (lookahead()) {
             // [15] <ExprArith'>  ->  + <Prod> <ExprArith'>
             case PLUS:
-                ruleOutput(15,"<ExprArith'>","+ <Prod> <ExprArith'>");
-                return new ParseTree(NonTerminal.ExprArithPrime, Arrays.asList(
-                    match(LexicalUnit.PLUS),
-                    prod(),
-                    exprArithPrime()
-                ));
+                ruleOutput(15);
+                builder.enter(NonTerminal.ExprArithPrime);
+                match(LexicalUnit.PLUS);
+                prod();
+                exprArithPrime();
+                builder.exit();
+                break;
             // [16] <ExprArith'>  ->  - <Prod> <ExprArith'>
             case MINUS:
-                ruleOutput(16,"<ExprArith'>","- <Prod> <ExprArith'>");
-                return new ParseTree(NonTerminal.ExprArithPrime, Arrays.asList(
-                    match(LexicalUnit.MINUS),
-                    prod(),
-                    exprArithPrime()
-                ));
+                ruleOutput(16);
+                builder.enter(NonTerminal.ExprArithPrime);
+                match(LexicalUnit.MINUS);
+                prod();
+                exprArithPrime();
+                builder.exit();
+                break;
             // [17] <ExprArith'>  ->  EPSILON
             case END:
             case THEN:
@@ -409,26 +724,13 @@ public class Parser{
             case OR:
             case EQUAL:
             case SMALLER:
-                ruleOutput(17,"<ExprArith'>","ɛ");
-                return new ParseTree(NonTerminal.ExprArithPrime, Arrays.asList(
-                    new ParseTree(LexicalUnit.EPSILON)
-                ));
+                ruleOutput(17);
+                builder.enter(NonTerminal.ExprArithPrime);
+                builder.epsilon();
+                builder.exit();
+                break;
             default:
-                throw new ParseException(current,NonTerminal.ExprArithPrime,Arrays.asList(
-                    LexicalUnit.PLUS,
-                    LexicalUnit.MINUS,
-                    LexicalUnit.END,
-                    LexicalUnit.THEN,
-                    LexicalUnit.ELSE,
-                    LexicalUnit.DO,
-                    LexicalUnit.DOTS,
-                    LexicalUnit.RPAREN,
-                    LexicalUnit.RBRACK,
-                    LexicalUnit.AND,
-                    LexicalUnit.OR,
-                    LexicalUnit.EQUAL,
-                    LexicalUnit.SMALLER
-                ));
+                throw new ParseException(token(),NonTerminal.ExprArithPrime,EXPECTED.get(NonTerminal.ExprArithPrime));
         }
     }
     
@@ -437,17 +739,18 @@ public class Parser{
      * 
      * Tries to apply rule [18]&nbsp;&lt;Prod&gt;&nbsp;&rarr;&nbsp;&lt;Atom&gt;&lt;Prod'&gt;
      * 
-     * @return a ParseTree with a &lt;Prod&gt; non-terminal at the root.
+     * The tree of the &lt;Prod&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree prod() throws IOException, ParseException{
+    private void prod() throws IOException, ParseException{
         // [18] <Prod>  ->  <Atom> <Prod'>
-        ruleOutput(18,"<Prod'>","<Atom> <Prod'>");
-        return new ParseTree(NonTerminal.Prod, Arrays.asList(
-            atom(),
-            prodPrime()
-        ));
+        ruleOutput(18);
+        builder.enter(NonTerminal.Prod);
+        atom();
+        prodPrime();
+        builder.exit();
     }
 
     /**
@@ -459,28 +762,31 @@ public class Parser{
      *   <li>[21]&nbsp;&lt;Prod'&gt;&nbsp;&rarr;&nbsp;&epsilon;</li>
      * </ul>
      * 
-     * @return a ParseTree with a &lt;Prod'&gt; non-terminal at the root.
+     * The tree of the &lt;Prod'&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree prodPrime() throws IOException, ParseException{
-        switch (current.getType()) {
+    private void prodPrime() throws IOException, ParseException{
+        switch (lookahead()) {
             // [19] <Prod'>  ->  * <Atom> <Prod'>
             case TIMES:
-                ruleOutput(19,"<Prod'>","* <Atom> <Prod'>");
-                return new ParseTree(NonTerminal.ProdPrime, Arrays.asList(
-                    match(LexicalUnit.TIMES),
-                    atom(),
-                    prodPrime()
-                ));
+                ruleOutput(19);
+                builder.enter(NonTerminal.ProdPrime);
+                match(LexicalUnit.TIMES);
+                atom();
+                prodPrime();
+                builder.exit();
+                break;
             // [20] <Prod'>  ->  / <Atom> <Prod>
             case DIVIDE:
-                ruleOutput(20,"<Prod'>","/ <Atom> <Prod>");
-                return new ParseTree(NonTerminal.ProdPrime, Arrays.asList(
-                    match(LexicalUnit.DIVIDE),
-                    atom(),
-                    prodPrime()
-                ));
+                ruleOutput(20);
+                builder.enter(NonTerminal.ProdPrime);
+                match(LexicalUnit.DIVIDE);
+                atom();
+                prodPrime();
+                builder.exit();
+                break;
             // [21] <Prod'>  ->  EPSILON
             case END:
             case THEN:
@@ -495,28 +801,13 @@ public class Parser{
             case OR:
             case EQUAL:
             case SMALLER:
-                ruleOutput(21,"<Prod'>","ɛ");
-                return new ParseTree(NonTerminal.ProdPrime, Arrays.asList(
-                    new ParseTree(LexicalUnit.EPSILON)
-                ));
+                ruleOutput(21);
+                builder.enter(NonTerminal.ProdPrime);
+                builder.epsilon();
+                builder.exit();
+                break;
             default:
-                throw new ParseException(current,NonTerminal.ProdPrime,Arrays.asList(
-                    LexicalUnit.PLUS,
-                    LexicalUnit.MINUS,
-                    LexicalUnit.TIMES,
-                    LexicalUnit.DIVIDE,
-                    LexicalUnit.END,
-                    LexicalUnit.THEN,
-                    LexicalUnit.ELSE,
-                    LexicalUnit.DO,
-                    LexicalUnit.DOTS,
-                    LexicalUnit.RPAREN,
-                    LexicalUnit.RBRACK,
-                    LexicalUnit.AND,
-                    LexicalUnit.OR,
-                    LexicalUnit.EQUAL,
-                    LexicalUnit.SMALLER
-                ));
+                throw new ParseException(token(),NonTerminal.ProdPrime,EXPECTED.get(NonTerminal.ProdPrime));
         }
     }
 
@@ -530,46 +821,46 @@ public class Parser{
      *   <li>[25]&nbsp;&lt;Atom&gt;&nbsp;&rarr;&nbsp;[Number]</li>
      * </ul>
      * 
-     * @return a ParseTree with a &lt;Atom&gt; non-terminal at the root.
+     * The tree of the &lt;Atom&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree atom() throws IOException, ParseException{
-        switch (current.getType()) {
+    private void atom() throws IOException, ParseException{
+        switch (lookahead()) {
             // [22] <Atom>  ->  - <Atom>
             case MINUS:
-                ruleOutput(22,"<Atom>","- <Atom>");
-                return new ParseTree(NonTerminal.Atom, Arrays.asList(
-                    match(LexicalUnit.MINUS),
-                    atom()
-                ));
+                ruleOutput(22);
+                builder.enter(NonTerminal.Atom);
+                match(LexicalUnit.MINUS);
+                atom();
+                builder.exit();
+                break;
             // [23] <Atom>  ->  (<ExprArith>)
             case LPAREN:
-                ruleOutput(23,"<Atom>","(<ExprArith>)");
-                return new ParseTree(NonTerminal.Atom, Arrays.asList(
-                    match(LexicalUnit.LPAREN),
-                    exprArith(),
-                    match(LexicalUnit.RPAREN)
-                ));
+                ruleOutput(23);
+                builder.enter(NonTerminal.Atom);
+                match(LexicalUnit.LPAREN);
+                exprArith();
+                match(LexicalUnit.RPAREN);
+                builder.exit();
+                break;
             // [24] <Atom>  ->  [VarName]
             case VARNAME:
-                ruleOutput(24,"<Atom>","[VarName]");
-                return new ParseTree(NonTerminal.Atom, Arrays.asList(
-                    match(LexicalUnit.VARNAME)
-                ));
+                ruleOutput(24);
+                builder.enter(NonTerminal.Atom);
+                match(LexicalUnit.VARNAME);
+                builder.exit();
+                break;
             // [25] <Atom>  ->  [Number]
             case NUMBER:
-                ruleOutput(25,"<Atom>","[Number]");
-                return new ParseTree(NonTerminal.Atom, Arrays.asList(
-                    match(LexicalUnit.NUMBER)
-                ));
+                ruleOutput(25);
+                builder.enter(NonTerminal.Atom);
+                match(LexicalUnit.NUMBER);
+                builder.exit();
+                break;
             default:
-                throw new ParseException(current,NonTerminal.Atom,Arrays.asList(
-                    LexicalUnit.MINUS,
-                    LexicalUnit.LPAREN,
-                    LexicalUnit.VARNAME,
-                    LexicalUnit.NUMBER
-                ));
+                throw new ParseException(token(),NonTerminal.Atom,EXPECTED.get(NonTerminal.Atom));
         }
     }
     
@@ -578,21 +869,22 @@ public class Parser{
      * 
      * Tries to apply rule [26]&nbsp;&lt;If&gt;&nbsp;&rarr;&nbsp;<code>if</code> &lt;Cond&gt; <code>then</code> &lt;Instruction&gt; <code>else</code>&lt;IfTail&gt;
      * 
-     * @return a ParseTree with a &lt;If&gt; non-terminal at the root.
+     * The tree of the &lt;If&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree ifExpr() throws IOException, ParseException{
+    private void ifExpr() throws IOException, ParseException{
         // [26] <If>  -> if <Cond> then <Instruction> else <IfTail>
-        ruleOutput(26,"<If>","if <Cond> then <Instruction> else <IfTail>");
-        return new ParseTree(NonTerminal.If, Arrays.asList(
-            match(LexicalUnit.IF),
-            cond(),
-            match(LexicalUnit.THEN),
-            instruction(),
-            match(LexicalUnit.ELSE),
-            ifTail()
-        ));
+        ruleOutput(26);
+        builder.enter(NonTerminal.If);
+        match(LexicalUnit.IF);
+        cond();
+        match(LexicalUnit.THEN);
+        instruction();
+        match(LexicalUnit.ELSE);
+        ifTail();
+        builder.exit();
     }
 
     /**
@@ -603,12 +895,13 @@ public class Parser{
      *   <li>[28]&nbsp;&lt;IfTail&gt;&nbsp;&rarr;&nbsp;&epsilon;</li>
      * </ul>
      * 
-     * @return a ParseTree with a &lt;IfTail&gt; non-terminal at the root.
+     * The tree of the &lt;IfTail&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree ifTail() throws IOException, ParseException{
-        switch (current.getType()) {
+    private void ifTail() throws IOException, ParseException{
+        switch (lookahead()) {
             // [27] <IfTail>  ->  <Instruction>
             case BEG:
             case IF:
@@ -616,28 +909,22 @@ public class Parser{
             case PRINT:
             case READ:
             case VARNAME:
-                ruleOutput(27,"<IfTail>","<Instruction>");
-                return new ParseTree(NonTerminal.IfTail, Arrays.asList(
-                    instruction()
-                ));
+                ruleOutput(27);
+                builder.enter(NonTerminal.IfTail);
+                instruction();
+                builder.exit();
+                break;
             // [28] <IfTail>  ->  EPSILON
             case END:
             case DOTS:
-                ruleOutput(28,"<IfTail>","ɛ");
-                return new ParseTree(NonTerminal.IfTail, Arrays.asList(
-                    new ParseTree(LexicalUnit.EPSILON)
-                ));
+            case ELSE: // Else of an enclosing if, as in: if c then if d then x := 1 else else x := 2
+                ruleOutput(28);
+                builder.enter(NonTerminal.IfTail);
+                builder.epsilon();
+                builder.exit();
+                break;
             default:
-                throw new ParseException(current,NonTerminal.IfTail,Arrays.asList(
-                    LexicalUnit.BEG,
-                    LexicalUnit.END,
-                    LexicalUnit.IF,
-                    LexicalUnit.WHILE,
-                    LexicalUnit.PRINT,
-                    LexicalUnit.READ,
-                    LexicalUnit.DOTS,
-                    LexicalUnit.VARNAME
-                ));
+                throw new ParseException(token(),NonTerminal.IfTail,EXPECTED.get(NonTerminal.IfTail));
         }
     }
     
@@ -646,17 +933,18 @@ public class Parser{
      * 
      * Tries to apply rule [29]&nbsp;&lt;Cond&gt;&nbsp;&rarr;&nbsp;&lt;Conj&gt;&lt;Cond'&gt;
      * 
-     * @return a ParseTree with a &lt;Cond&gt; non-terminal at the root.
+     * The tree of the &lt;Cond&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree cond() throws IOException, ParseException{
+    private void cond() throws IOException, ParseException{
         // [29] <Cond>  -> <Conj> <Cond'>
-        ruleOutput(29,"<Cond>","<Conj> <Cond'>");
-        return new ParseTree(NonTerminal.Cond, Arrays.asList(
-            conj(),
-            condPrime()
-        ));
+        ruleOutput(29);
+        builder.enter(NonTerminal.Cond);
+        conj();
+        condPrime();
+        builder.exit();
     }
     
     /**
@@ -667,35 +955,33 @@ public class Parser{
      *   <li>[31]&nbsp;&lt;Cond'&gt;&nbsp;&rarr;&nbsp;&epsilon;</li>
      * </ul>
      * 
-     * @return a ParseTree with a &lt;Cond'&gt; non-terminal at the root.
+     * The tree of the &lt;Cond'&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree condPrime() throws IOException, ParseException{
-        switch (current.getType()) {
+    private void condPrime() throws IOException, ParseException{
+        switch (lookahead()) {
             // [30] <Cond'>  ->  or <Conj> <Cond'>
             case OR:
-                ruleOutput(30,"<Cond'>","or <Conj> <Cond'>");
-                return new ParseTree(NonTerminal.CondPrime, Arrays.asList(
-                    match(LexicalUnit.OR),
-                    conj(),
-                    condPrime()
-                ));
+                ruleOutput(30);
+                builder.enter(NonTerminal.CondPrime);
+                match(LexicalUnit.OR);
+                conj();
+                condPrime();
+                builder.exit();
+                break;
             // [31] <Cond'>  ->  EPSILON
             case THEN:
             case DO:
             case RBRACK:
-                ruleOutput(31,"<Cond'>","ɛ");
-                return new ParseTree(NonTerminal.CondPrime, Arrays.asList(
-                    new ParseTree(LexicalUnit.EPSILON)
-                ));
+                ruleOutput(31);
+                builder.enter(NonTerminal.CondPrime);
+                builder.epsilon();
+                builder.exit();
+                break;
             default:
-                throw new ParseException(current,NonTerminal.CondPrime,Arrays.asList(
-                    LexicalUnit.OR,
-                    LexicalUnit.THEN,
-                    LexicalUnit.DO,
-                    LexicalUnit.RBRACK
-                ));
+                throw new ParseException(token(),NonTerminal.CondPrime,EXPECTED.get(NonTerminal.CondPrime));
         }
     }
     
@@ -704,17 +990,18 @@ public class Parser{
      * 
      * Tries to apply rule [32]&nbsp;&lt;Conj&gt;&nbsp;&rarr;&nbsp;&lt;SimpleCond&gt;&lt;Conj'&gt;
      * 
-     * @return a ParseTree with a &lt;Conj&gt; non-terminal at the root.
+     * The tree of the &lt;Conj&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree conj() throws IOException, ParseException{
+    private void conj() throws IOException, ParseException{
         // [32] <Conj>  -> <SimpleCond> <Conj'>
-        ruleOutput(32,"<Conj>","<SimpleCond> <Conj'>");
-        return new ParseTree(NonTerminal.Conj, Arrays.asList(
-            simpleCond(),
-            conjPrime()
-        ));
+        ruleOutput(32);
+        builder.enter(NonTerminal.Conj);
+        simpleCond();
+        conjPrime();
+        builder.exit();
     }
         
     /**
@@ -725,37 +1012,34 @@ public class Parser{
      *   <li>[34]&nbsp;&lt;Conj'&gt;&nbsp;&rarr;&nbsp;&epsilon;</li>
      * </ul>
      * 
-     * @return a ParseTree with a &lt;Conj'&gt; non-terminal at the root.
+     * The tree of the &lt;Conj'&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree conjPrime() throws IOException, ParseException{
-        switch (current.getType()) {
+    private void conjPrime() throws IOException, ParseException{
+        switch (lookahead()) {
             // [33] <Conj'>  ->  and <SimpleCond> <Conj'>
             case AND:
-                ruleOutput(33,"<Conj'>","and <SimpleCond> <Conj'>");
-                return new ParseTree(NonTerminal.ConjPrime, Arrays.asList(
-                    match(LexicalUnit.AND),
-                    simpleCond(),
-                    conjPrime()
-                ));
+                ruleOutput(33);
+                builder.enter(NonTerminal.ConjPrime);
+                match(LexicalUnit.AND);
+                simpleCond();
+                conjPrime();
+                builder.exit();
+                break;
             // [34] <Conj'>  ->  EPSILON
             case OR:
             case THEN:
             case DO:
             case RBRACK:
-                ruleOutput(34,"<Conj'>","ɛ");
-                return new ParseTree(NonTerminal.ConjPrime, Arrays.asList(
-                    new ParseTree(LexicalUnit.EPSILON)
-                ));
+                ruleOutput(34);
+                builder.enter(NonTerminal.ConjPrime);
+                builder.epsilon();
+                builder.exit();
+                break;
             default:
-                throw new ParseException(current,NonTerminal.ConjPrime,Arrays.asList(
-                    LexicalUnit.AND,
-                    LexicalUnit.OR,
-                    LexicalUnit.THEN,
-                    LexicalUnit.DO,
-                    LexicalUnit.RBRACK
-                ));
+                throw new ParseException(token(),NonTerminal.ConjPrime,EXPECTED.get(NonTerminal.ConjPrime));
         }
     }
     
@@ -767,39 +1051,36 @@ public class Parser{
      *   <li>[36]&nbsp;&lt;SimpleCond&gt;&nbsp;&rarr;&nbsp;&lt;ExprArith&gt;&lt;Comp&gt;&lt;ExprArith&gt;</li>
      * </ul>
      * 
-     * @return a ParseTree with a &lt;SimpleCond&gt; non-terminal at the root.
+     * The tree of the &lt;SimpleCond&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree simpleCond() throws IOException, ParseException{
-        switch (current.getType()) {
+    private void simpleCond() throws IOException, ParseException{
+        switch (lookahead()) {
             // [35] <SimpleCond>  ->  {<Cond>}
             case LBRACK:
-                ruleOutput(35,"<SimpleCond>","{<Cond>}");
-                return new ParseTree(NonTerminal.SimpleCond, Arrays.asList(
-                    match(LexicalUnit.LBRACK),
-                    cond(),
-                    match(LexicalUnit.RBRACK)
-                ));
+                ruleOutput(35);
+                builder.enter(NonTerminal.SimpleCond);
+                match(LexicalUnit.LBRACK);
+                cond();
+                match(LexicalUnit.RBRACK);
+                builder.exit();
+                break;
             // [36] <SimpleCond>  ->  <ExprArith> <Comp> <ExprArith>
             case MINUS:
             case LPAREN:
             case VARNAME:
             case NUMBER:
-                ruleOutput(36,"<SimpleCond>","<ExprArith> <Comp> <ExprArith>");
-                return new ParseTree(NonTerminal.SimpleCond, Arrays.asList(
-                    exprArith(),
-                    compOp(),
-                    exprArith()
-                ));
+                ruleOutput(36);
+                builder.enter(NonTerminal.SimpleCond);
+                exprArith();
+                compOp();
+                exprArith();
+                builder.exit();
+                break;
             default:
-                throw new ParseException(current,NonTerminal.SimpleCond,Arrays.asList(
-                    LexicalUnit.LBRACK,
-                    LexicalUnit.MINUS,
-                    LexicalUnit.LPAREN,
-                    LexicalUnit.VARNAME,
-                    LexicalUnit.NUMBER
-                ));
+                throw new ParseException(token(),NonTerminal.SimpleCond,EXPECTED.get(NonTerminal.SimpleCond));
         }
     }
                 
@@ -811,29 +1092,29 @@ public class Parser{
      *   <li>[38]&nbsp;&lt;Comp&gt;&nbsp;&rarr;&nbsp;<code>&lt;</code></li>
      * </ul>
      * 
-     * @return a ParseTree with a &lt;Comp&gt; non-terminal at the root.
+     * The tree of the &lt;Comp&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree compOp() throws IOException, ParseException{
-        switch (current.getType()) {
+    private void compOp() throws IOException, ParseException{
+        switch (lookahead()) {
             // [37] <Comp>  ->  =
             case EQUAL:
-                ruleOutput(37,"<Comp>","=");
-                return new ParseTree(NonTerminal.Comp, Arrays.asList(
-                    match(LexicalUnit.EQUAL)
-                ));
+                ruleOutput(37);
+                builder.enter(NonTerminal.Comp);
+                match(LexicalUnit.EQUAL);
+                builder.exit();
+                break;
             // [38] <Comp>  ->  <
             case SMALLER:
-                ruleOutput(38,"<Comp>","<");
-                return new ParseTree(NonTerminal.Comp, Arrays.asList(
-                    match(LexicalUnit.SMALLER)
-                ));
+                ruleOutput(38);
+                builder.enter(NonTerminal.Comp);
+                match(LexicalUnit.SMALLER);
+                builder.exit();
+                break;
             default:
-                throw new ParseException(current,NonTerminal.Comp,Arrays.asList(
-                    LexicalUnit.EQUAL,
-                    LexicalUnit.SMALLER
-                ));
+                throw new ParseException(token(),NonTerminal.Comp,EXPECTED.get(NonTerminal.Comp));
         }
     }
     
@@ -842,19 +1123,20 @@ public class Parser{
      * 
      * Tries to apply rule [39]&nbsp;&lt;While&gt;&nbsp;&rarr;&nbsp;<code>while</code>&lt;Cond&gt; <code>do</code> &lt;Instruction&gt;
      * 
-     * @return a ParseTree with a &lt;While&gt; non-terminal at the root.
+     * The tree of the &lt;While&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree whileExpr() throws IOException, ParseException{
+    private void whileExpr() throws IOException, ParseException{
         // [39] <While>  ->  while <Cond> do <Instruction>
-        ruleOutput(39,"<While>","while <Cond> do <Instruction>");
-        return new ParseTree(NonTerminal.While, Arrays.asList(
-            match(LexicalUnit.WHILE),
-            cond(),
-            match(LexicalUnit.DO),
-            instruction()
-        ));
+        ruleOutput(39);
+        builder.enter(NonTerminal.While);
+        match(LexicalUnit.WHILE);
+        cond();
+        match(LexicalUnit.DO);
+        instruction();
+        builder.exit();
     }
     
     /**
@@ -862,19 +1144,20 @@ public class Parser{
      * 
      * Tries to apply rule [40]&nbsp;&lt;Print&gt;&nbsp;&rarr;&nbsp;<code>print(</code>[Varname]<code>)</code>
      * 
-     * @return a ParseTree with a &lt;Print&gt; non-terminal at the root.
+     * The tree of the &lt;Print&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree printExpr() throws IOException, ParseException{
+    private void printExpr() throws IOException, ParseException{
         // [40] <Print>  ->  print([VarName])
-        ruleOutput(40,"<Print>","print([VarName])");
-        return new ParseTree(NonTerminal.Print, Arrays.asList(
-            match(LexicalUnit.PRINT),
-            match(LexicalUnit.LPAREN),
-            match(LexicalUnit.VARNAME),
-            match(LexicalUnit.RPAREN)
-        ));
+        ruleOutput(40);
+        builder.enter(NonTerminal.Print);
+        match(LexicalUnit.PRINT);
+        match(LexicalUnit.LPAREN);
+        match(LexicalUnit.VARNAME);
+        match(LexicalUnit.RPAREN);
+        builder.exit();
     }
     
     /**
@@ -882,18 +1165,19 @@ public class Parser{
      * 
      * Tries to apply rule [41]&nbsp;&lt;Read&gt;&nbsp;&rarr;&nbsp;<code>read(</code>[Varname]<code>)</code>
      * 
-     * @return a ParseTree with a &lt;Read&gt; non-terminal at the root.
+     * The tree of the &lt;Read&gt; is reported to the builder.
+     * 
      * @throws IOException in case the lexing fails (syntax error).
      * @throws ParseException in case the parsing fails (syntax error).
      */
-    private ParseTree readExpr() throws IOException, ParseException{
+    private void readExpr() throws IOException, ParseException{
         // [41] <Read>  ->  read([VarName])
-        ruleOutput(41,"<Read>","read([VarName])");
-        return new ParseTree(NonTerminal.Read, Arrays.asList(
-            match(LexicalUnit.READ),
-            match(LexicalUnit.LPAREN),
-            match(LexicalUnit.VARNAME),
-            match(LexicalUnit.RPAREN)
-        ));
+        ruleOutput(41);
+        builder.enter(NonTerminal.Read);
+        match(LexicalUnit.READ);
+        match(LexicalUnit.LPAREN);
+        match(LexicalUnit.VARNAME);
+        match(LexicalUnit.RPAREN);
+        builder.exit();
     }
 }
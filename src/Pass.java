@@ -0,0 +1,34 @@
+/**
+ * A transformation of an {@link IR.Function IR.Function}, run by a {@link PassManager PassManager}.
+ *
+ * A pass gets the analyses it needs from the manager, which computes them once for all the passes. When a pass
+ * changes the function, the manager forgets the analyses it does not {@link #preserves(Analysis) preserve}. A pass
+ * changing the branches must {@link IR.Function#updateEdges() update the edges} of the function before returning.
+ */
+public interface Pass {
+    /**
+     * Returns the name of the pass, as shown in the report of the pass manager.
+     *
+     * @return a short lowercase name.
+     */
+    String getName();
+
+    /**
+     * Transforms a function.
+     *
+     * @param function a function whose edges are up to date.
+     * @param manager the pass manager, to get the analyses of the function.
+     * @return true iff the function was changed.
+     */
+    boolean run(IR.Function function, PassManager manager);
+
+    /**
+     * Checks whether the result of an analysis is still valid after the pass changed the function.
+     *
+     * @param analysis an analysis.
+     * @return true iff the pass never changes what the analysis computes. False by default.
+     */
+    default boolean preserves(Analysis<?> analysis) {
+        return false;
+    }
+}
@@ -0,0 +1,179 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs a pipeline of {@link Pass passes} on the {@link IR IR} of a program, between its generation and its printing.
+ *
+ * The results of the {@link Analysis analyses} are cached: an analysis is computed when a pass first asks for it, and
+ * computed again only after a pass changed the function without preserving it. The manager measures the wall time
+ * of each pass and of each analysis, and the number of instructions of the function before and after each pass, in
+ * a {@link #report() report}.
+ *
+ * The pipelines of the optimization levels are given by {@link #forLevel(int) forLevel}.
+ */
+public class PassManager {
+    /**
+     * Highest optimization level.
+     */
+    public static final int MAX_LEVEL = 2;
+
+    /**
+     * The passes, in the order they run.
+     */
+    private final List<Pass> passes = new ArrayList<Pass>();
+    /**
+     * Cached results of the analyses of the function being transformed.
+     */
+    private final Map<Analysis<?>, Object> analyses = new IdentityHashMap<Analysis<?>, Object>();
+    /**
+     * The function being transformed, null outside {@link #run(IR.Function) run}.
+     */
+    private IR.Function function;
+    /**
+     * Lines of the report, one per pass run followed by one per analysis it computed.
+     */
+    private final List<String> lines = new ArrayList<String>();
+    /**
+     * Total time spent in the passes and analyses, in nanoseconds.
+     */
+    private long totalTime = 0;
+
+    /**
+     * Returns the pipeline of an optimization level.
+     *
+     * <ul>
+     * <li>0: no pass, the IR is printed as generated;</li>
+     * <li>1: the variables are promoted to registers, and the dead code is removed;</li>
+     * <li>2: the constants are also propagated before removing the dead code, and the invariant computations are
+     * then moved out of the loops, the generator reusing the values of shared expressions.</li>
+     * </ul>
+     * From level 1 on, the AST is also simplified by an {@link ASTSimplifier ASTSimplifier} and the generator evaluates
+     * the conditions with short circuits (see {@link Main Main}).
+     *
+     * @param level the optimization level, from 0 to {@link #MAX_LEVEL MAX_LEVEL}.
+     * @return a pass manager with the passes of the level.
+     */
+    public static PassManager forLevel(int level) {
+        PassManager manager = new PassManager();
+        if (level >= 1) {
+            manager.add(new Mem2Reg());
+        }
+        if (level >= 2) {
+            manager.add(new SCCP());
+        }
+        if (level >= 1) {
+            manager.add(new DeadCodeElimination());
+        }
+        if (level >= 2) {
+            manager.add(new LICM());
+        }
+        return manager;
+    }
+
+    /**
+     * Appends a pass to the pipeline.
+     *
+     * @param pass the pass.
+     * @return this manager.
+     */
+    public PassManager add(Pass pass) {
+        passes.add(pass);
+        return this;
+    }
+
+    /**
+     * Checks whether the pipeline has no pass.
+     *
+     * @return true iff running it leaves any function unchanged.
+     */
+    public boolean isEmpty() {
+        return passes.isEmpty();
+    }
+
+    /**
+     * Runs the passes on a function, in order.
+     *
+     * @param function a function whose edges are up to date.
+     * @return true iff a pass changed the function.
+     */
+    public boolean run(IR.Function function) {
+        this.function = function;
+        analyses.clear();
+        boolean changed = false;
+        for (Pass pass : passes) {
+            int before = function.getInstructionCount();
+            int line = lines.size();
+            long start = System.nanoTime();
+            boolean passChanged = pass.run(function, this);
+            long time = System.nanoTime() - start;
+            totalTime += time;
+            int after = function.getInstructionCount();
+            // The analyses computed by the pass are listed after it
+            lines.add(line, String.format("%-10s %10.3f ms %8d -> %8d instructions%s%n", pass.getName(), time / 1e6,
+                    before, after, passChanged ? "" : " (unchanged)"));
+            if (passChanged) {
+                changed = true;
+                Iterator<Analysis<?>> cached = analyses.keySet().iterator();
+                while (cached.hasNext()) {
+                    if (!pass.preserves(cached.next())) {
+                        cached.remove();
+                    }
+                }
+            }
+        }
+        this.function = null;
+        analyses.clear();
+        return changed;
+    }
+
+    /**
+     * Adds a transformation done outside the pipeline, like the simplification of the AST, to the report.
+     *
+     * @param name the name of the transformation.
+     * @param time its wall time, in nanoseconds.
+     * @param result a short description of what it did.
+     */
+    public void record(String name, long time, String result) {
+        totalTime += time;
+        lines.add(String.format("%-10s %10.3f ms %s%n", name, time / 1e6, result));
+    }
+
+    /**
+     * Returns the result of an analysis of the function being transformed, computing it if it is not cached.
+     *
+     * @param analysis the analysis.
+     * @param <T> the type of its result.
+     * @return the result of the analysis for the current state of the function.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getAnalysis(Analysis<T> analysis) {
+        T result = (T) analyses.get(analysis);
+        if (result == null) {
+            long start = System.nanoTime();
+            result = analysis.compute(function, this);
+            long time = System.nanoTime() - start;
+            // The time is also counted in the pass asking for the analysis, so it is not added to the total
+            lines.add(String.format("  %-8s %10.3f ms (analysis)%n", analysis.getName(), time / 1e6));
+            analyses.put(analysis, result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the report of the passes run so far: the time of each pass and of each analysis it computed, and the
+     * number of instructions before and after the pass.
+     *
+     * @return the lines of the report, in the order the passes ran.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        for (String line : lines) {
+            report.append(line);
+        }
+        report.append(String.format("%-10s %10.3f ms%n", "total", totalTime / 1e6));
+        return report.toString();
+    }
+}
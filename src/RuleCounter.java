@@ -0,0 +1,69 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts how often each rule of the grammar is applied while parsing, to find which constructs dominate a workload.
+ *
+ * The same counter can be attached to several parsers to accumulate the counts of several files.
+ */
+public class RuleCounter implements ParseListener {
+    /**
+     * Number of rules of the grammar.
+     */
+    public static final int RULES = 41;
+
+    /**
+     * Number of applications of each rule, indexed by rule number (index 0 is unused).
+     */
+    private final long[] counts = new long[RULES + 1];
+
+    @Override
+    public void ruleApplied(int rule) {
+        counts[rule]++;
+    }
+
+    /**
+     * Returns the number of applications of a rule.
+     *
+     * @param rule the number of the rule.
+     * @return how often it was applied.
+     */
+    public long getCount(int rule) {
+        return counts[rule];
+    }
+
+    /**
+     * Returns the total number of applied rules.
+     *
+     * @return the sum of the counts of all the rules.
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Builds a histogram of the applied rules, the most frequent first (rules never applied are omitted).
+     *
+     * @return a String with one line per applied rule: its number, count, share of the total and the rule itself.
+     */
+    public String report() {
+        List<Integer> rules = new ArrayList<Integer>();
+        for (int rule = 1; rule <= RULES; rule++) {
+            if (counts[rule] > 0) {
+                rules.add(rule);
+            }
+        }
+        rules.sort((a, b) -> counts[a] != counts[b] ? Long.compare(counts[b], counts[a]) : Integer.compare(a, b));
+        long total = getTotal();
+        StringBuilder report = new StringBuilder();
+        for (int rule : rules) {
+            report.append(String.format("[%2d] %10d %6.2f%%  %s%n", rule, counts[rule], 100.0 * counts[rule] / total, Parser.ruleText(rule)));
+        }
+        report.append(String.format("     %10d rules applied%n", total));
+        return report.toString();
+    }
+}
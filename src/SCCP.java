@@ -0,0 +1,326 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse conditional constant propagation over an {@link IR.Function IR.Function}, after Wegman and Zadeck.
+ *
+ * Each instruction gets a value in a lattice: unknown yet (never computed on the paths found so far), a
+ * {@link IR.Constant constant}, or {@link #OVERDEFINED overdefined}. The control-flow edges start as never run, and
+ * an edge becomes executable when the branch ending its source can take it: a conditional branch on a constant only
+ * takes one of its targets. A phi merges the values of its executable incoming edges only, so a value stored on a
+ * path which can never run does not spoil it. Two worklists, of blocks reached for the first time and of
+ * instructions whose operands changed, are processed until nothing changes, each value being lowered at most twice.
+ *
+ * The instructions found constant are then replaced by their values, and the conditional branches on constants by
+ * branches to the only target they can take. The blocks which can no longer be reached are left to the
+ * elimination of dead code.
+ */
+public class SCCP implements Pass {
+    /**
+     * Value of the instructions which may compute different values (or whose value is not an integer).
+     */
+    private static final IR.Value OVERDEFINED = new IR.Value(IR.Type.VOID) {
+    };
+
+    /**
+     * Value of each instruction computed so far, the ones never computed being absent.
+     */
+    private final Map<IR.Instruction, IR.Value> values = new IdentityHashMap<IR.Instruction, IR.Value>();
+    /**
+     * Instructions using the result of each instruction.
+     */
+    private final Map<IR.Instruction, List<IR.Instruction>> users = new IdentityHashMap<IR.Instruction, List<IR.Instruction>>();
+    /**
+     * Successors of each block along the executable edges.
+     */
+    private final Map<IR.Block, List<IR.Block>> executable = new IdentityHashMap<IR.Block, List<IR.Block>>();
+    /**
+     * Blocks reached, whose instructions are still to be evaluated a first time.
+     */
+    private final Deque<IR.Block> blockWorklist = new ArrayDeque<IR.Block>();
+    /**
+     * Instructions of reached blocks whose operands changed.
+     */
+    private final Deque<IR.Instruction> instructionWorklist = new ArrayDeque<IR.Instruction>();
+
+    @Override
+    public String getName() {
+        return "sccp";
+    }
+
+    /**
+     * Propagates the constants of a function and folds the branches on constants.
+     *
+     * @param function a function whose edges are up to date.
+     * @param manager the pass manager.
+     * @return true iff an instruction was replaced or a branch folded.
+     */
+    @Override
+    public boolean run(IR.Function function, PassManager manager) {
+        values.clear();
+        users.clear();
+        executable.clear();
+        for (IR.Block block : function.getBlocks()) {
+            for (IR.Instruction instruction : block.getInstructions()) {
+                for (IR.Value operand : instruction.getOperands()) {
+                    if (operand instanceof IR.Instruction) {
+                        users.computeIfAbsent((IR.Instruction) operand, key -> new ArrayList<IR.Instruction>()).add(instruction);
+                    }
+                }
+            }
+        }
+        reach(function.getEntry());
+        while (!blockWorklist.isEmpty() || !instructionWorklist.isEmpty()) {
+            while (!instructionWorklist.isEmpty()) {
+                IR.Instruction instruction = instructionWorklist.poll();
+                if (executable.containsKey(instruction.getBlock())) {
+                    evaluate(instruction);
+                }
+            }
+            if (!blockWorklist.isEmpty()) {
+                for (IR.Instruction instruction : blockWorklist.poll().getInstructions()) {
+                    evaluate(instruction);
+                }
+            }
+        }
+        boolean changed = rewrite(function);
+        values.clear();
+        users.clear();
+        executable.clear();
+        return changed;
+    }
+
+    /**
+     * Marks a block as executable and schedules its instructions, when it is reached for the first time.
+     *
+     * @param block the block.
+     */
+    private void reach(IR.Block block) {
+        if (!executable.containsKey(block)) {
+            executable.put(block, new ArrayList<IR.Block>(2));
+            blockWorklist.add(block);
+        }
+    }
+
+    /**
+     * Marks an edge as executable. The phis of its target are evaluated again if the target was already reached
+     * by another edge.
+     *
+     * @param from the source of the edge, an executable block.
+     * @param to the target of the edge.
+     */
+    private void take(IR.Block from, IR.Block to) {
+        List<IR.Block> successors = executable.get(from);
+        if (successors.contains(to)) {
+            return;
+        }
+        successors.add(to);
+        if (executable.containsKey(to)) {
+            for (IR.Instruction instruction : to.getInstructions()) {
+                if (instruction.getOpcode() != IR.Opcode.PHI) {
+                    break;
+                }
+                instructionWorklist.add(instruction);
+            }
+        } else {
+            reach(to);
+        }
+    }
+
+    /**
+     * Returns the current value of an operand.
+     *
+     * @param operand a constant or an instruction.
+     * @return the constant, the value of the instruction, or null if the instruction was never computed.
+     */
+    private IR.Value valueOf(IR.Value operand) {
+        return operand instanceof IR.Instruction ? values.get(operand) : operand;
+    }
+
+    /**
+     * Evaluates an instruction of an executable block from the current values of its operands, taking the edges its
+     * branch can take, and schedules its users if its value changed.
+     *
+     * @param instruction the instruction.
+     */
+    private void evaluate(IR.Instruction instruction) {
+        IR.Value value;
+        switch (instruction.getOpcode()) {
+            case BR:
+                take(instruction.getBlock(), instruction.getBlocks().get(0));
+                return;
+            case COND_BR: {
+                IR.Value condition = valueOf(instruction.getOperand(0));
+                if (condition == OVERDEFINED) {
+                    take(instruction.getBlock(), instruction.getBlocks().get(0));
+                    take(instruction.getBlock(), instruction.getBlocks().get(1));
+                } else if (condition != null) {
+                    take(instruction.getBlock(), instruction.getBlocks().get(((IR.Constant) condition).getValue() != 0 ? 0 : 1));
+                }
+                return;
+            }
+            case PHI:
+                value = null;
+                for (int i = 0; i < instruction.getOperands().size() && value != OVERDEFINED; i++) {
+                    List<IR.Block> successors = executable.get(instruction.getBlocks().get(i));
+                    if (successors == null || !successors.contains(instruction.getBlock())) {
+                        continue; // The edge was never taken
+                    }
+                    IR.Value incoming = valueOf(instruction.getOperand(i));
+                    if (incoming == null) {
+                        continue;
+                    }
+                    value = value == null || value.equals(incoming) ? incoming : OVERDEFINED;
+                }
+                break;
+            default:
+                if (!instruction.getOpcode().isBinary()) {
+                    value = instruction.getType() == IR.Type.VOID ? null : OVERDEFINED;
+                    break;
+                }
+                IR.Value left = valueOf(instruction.getOperand(0));
+                IR.Value right = valueOf(instruction.getOperand(1));
+                value = absorb(instruction.getOpcode(), left, right);
+                if (value == null && left != null && right != null) {
+                    value = left == OVERDEFINED || right == OVERDEFINED ? OVERDEFINED
+                            : fold(instruction.getOpcode(), (IR.Constant) left, (IR.Constant) right);
+                    if (value == null) {
+                        value = OVERDEFINED; // Not folded, as it fails at run time
+                    }
+                }
+                break;
+        }
+        if (value == null) {
+            return;
+        }
+        IR.Value old = values.put(instruction, value);
+        if (!value.equals(old)) {
+            List<IR.Instruction> uses = users.get(instruction);
+            if (uses != null) {
+                instructionWorklist.addAll(uses);
+            }
+        }
+    }
+
+    /**
+     * Computes an operation whose result does not depend on one of its operands.
+     *
+     * @param opcode a binary operation.
+     * @param left the value of the left operand, or null.
+     * @param right the value of the right operand, or null.
+     * @return the result if an operand absorbs the other one (<code>false and x</code>, <code>true or x</code>,
+     *         <code>0 * x</code>), null otherwise.
+     */
+    private static IR.Value absorb(IR.Opcode opcode, IR.Value left, IR.Value right) {
+        for (IR.Value operand : new IR.Value[] {left, right}) {
+            if (operand == null || operand == OVERDEFINED) {
+                continue;
+            }
+            int value = ((IR.Constant) operand).getValue();
+            if ((opcode == IR.Opcode.AND && value == 0) || (opcode == IR.Opcode.OR && value != 0)
+                    || (opcode == IR.Opcode.MUL && value == 0)) {
+                return operand;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Computes a binary operation on constants.
+     *
+     * @param opcode a binary operation.
+     * @param left the left operand.
+     * @param right the right operand.
+     * @return the constant result, or null for a division by zero or overflowing, which is left to run time.
+     */
+    public static IR.Constant fold(IR.Opcode opcode, IR.Constant left, IR.Constant right) {
+        int a = left.getValue();
+        int b = right.getValue();
+        switch (opcode) {
+            case ADD:
+                return IR.Constant.i32(a + b);
+            case SUB:
+                return IR.Constant.i32(a - b);
+            case MUL:
+                return IR.Constant.i32(a * b);
+            case SDIV:
+                if (b == 0 || (a == Integer.MIN_VALUE && b == -1)) {
+                    return null;
+                }
+                return IR.Constant.i32(a / b);
+            case ICMP_EQ:
+                return IR.Constant.i1(a == b);
+            case ICMP_SLT:
+                return IR.Constant.i1(a < b);
+            case AND:
+                return IR.Constant.i1(a != 0 && b != 0);
+            case OR:
+                return IR.Constant.i1(a != 0 || b != 0);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Replaces the instructions found constant by their values, and the conditional branches on constants by
+     * unconditional branches, the phis of the other target forgetting the edge.
+     *
+     * @param function the function.
+     * @return true iff the function was changed.
+     */
+    private boolean rewrite(IR.Function function) {
+        Map<IR.Instruction, IR.Value> replacements = new IdentityHashMap<IR.Instruction, IR.Value>();
+        Set<IR.Instruction> removed = Collections.newSetFromMap(new IdentityHashMap<IR.Instruction, Boolean>());
+        boolean changed = false;
+        for (IR.Block block : function.getBlocks()) {
+            if (!executable.containsKey(block)) {
+                continue;
+            }
+            for (IR.Instruction instruction : block.getInstructions()) {
+                IR.Value value = values.get(instruction);
+                if (value != null && value != OVERDEFINED) {
+                    replacements.put(instruction, value);
+                    removed.add(instruction);
+                }
+            }
+            IR.Instruction terminator = block.getTerminator();
+            if (terminator != null && terminator.getOpcode() == IR.Opcode.COND_BR) {
+                IR.Value condition = valueOf(terminator.getOperand(0));
+                if (condition != null && condition != OVERDEFINED) {
+                    int taken = ((IR.Constant) condition).getValue() != 0 ? 0 : 1;
+                    IR.Block target = terminator.getBlocks().get(taken);
+                    IR.Block other = terminator.getBlocks().get(1 - taken);
+                    if (other != target) {
+                        other.forgetPredecessor(block);
+                    }
+                    IR.Instruction branch = IR.Instruction.branch(target);
+                    branch.setIndentation(terminator.getIndentation());
+                    block.remove(terminator);
+                    block.add(branch);
+                    changed = true;
+                }
+            }
+        }
+        for (IR.Block block : function.getBlocks()) {
+            block.removeIf(removed::contains);
+            for (IR.Instruction instruction : block.getInstructions()) {
+                for (int i = 0; i < instruction.getOperands().size(); i++) {
+                    IR.Value replacement = replacements.get(instruction.getOperand(i));
+                    if (replacement != null) {
+                        instruction.setOperand(i, replacement);
+                    }
+                }
+            }
+        }
+        if (changed) {
+            function.updateEdges();
+        }
+        return changed || !removed.isEmpty();
+    }
+}
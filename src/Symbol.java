@@ -1,3 +1,5 @@
+import java.util.Objects;
+
 /**
  * Symbol objects represent a terminal or non-terminal symbol in the grammar.
  * 
@@ -32,6 +34,16 @@
      */
 	private final int line,column;
 
+    /**
+     * The offset of the symbol in the parsed file, when its position is resolved through {@link lines lines}.
+     */
+	private final int offset;
+
+    /**
+     * The index used to compute the line and column of the symbol from its offset, or null if they are given explicitly.
+     */
+	private final LineIndex lines;
+
     /**
      * Creates a Symbol using the provided attributes.
      * 
@@ -45,6 +57,25 @@
 		this.line	= line+1;
 		this.column	= column;
 		this.value	= value;
+		this.offset	= UNDEFINED_POSITION;
+		this.lines	= null;
+	}
+
+    /**
+     * Creates a Symbol located by its offset in the file: its line and column are only computed when requested.
+     * 
+     * @param unit the LexicalUnit (terminal) associated with the symbol.
+     * @param offset the offset of the first character of the symbol in the file.
+     * @param lines the line index of the file.
+     * @param value the value of the symbol.
+     */
+	public Symbol(LexicalUnit unit,int offset,LineIndex lines,Object value){
+		this.type	= unit;
+		this.line	= UNDEFINED_POSITION;
+		this.column	= UNDEFINED_POSITION;
+		this.value	= value;
+		this.offset	= offset;
+		this.lines	= lines;
 	}
 	
     /**
@@ -132,19 +163,19 @@
     /**
      * Returns the line where the symbol appeared.
      * 
-     * @return the value of attribute {@link line line}.
+     * @return the value of attribute {@link line line}, or the line computed from the offset of the symbol.
      */
 	public int getLine(){
-		return this.line;
+		return this.lines != null ? this.lines.line(this.offset)+1 : this.line;
 	}
 	
     /**
      * Returns the column where the symbol appeared.
      * 
-     * @return the value of attribute {@link column column}.
+     * @return the value of attribute {@link column column}, or the column computed from the offset of the symbol.
      */
 	public int getColumn(){
-		return this.column;
+		return this.lines != null ? this.lines.column(this.offset) : this.column;
 	}
 	
     /**
@@ -154,9 +185,7 @@
      */
 	@Override
 	public int hashCode(){
-		final String value	= this.value != null? this.value.toString() : "null";
-		final String type		= this.type  != null? this.type.toString()  : "null";
-		return new String(value+"_"+type).hashCode();
+		return 31*Objects.hashCode(this.value) + Objects.hashCode(this.type); // No String built at each call
 	}
 	
     /**
@@ -0,0 +1,264 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A compact token stream: the tokens of a whole file stored as parallel arrays of primitive values instead of one
+ * {@link Symbol Symbol} object per token.
+ *
+ * For each token, the buffer keeps its type, its start offset and an integer value which is the id of
+ * the {@link Identifier Identifier} for a [VarName] and the value of the literal for a [Number]. The {@link Parser Parser}
+ * reads the buffer through a cursor (a token index); Symbol objects are only built for the leaves that carry a value and
+ * for the tokens on which an error is reported, their line and column being computed from the offset by a {@link LineIndex LineIndex}. Keywords and punctuation use one shared Symbol per {@link LexicalUnit LexicalUnit}.
+ *
+ * A lexical error stops the scan but is kept after the last token, and only thrown when the cursor of the parser
+ * reaches it: an earlier parsing error is reported first, as when the parser pulls the tokens from the lexer.
+ */
+public class TokenBuffer {
+    /**
+     * Initial number of tokens the buffer can hold.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Shared symbols, without position, for the tokens whose value is fixed by their type (indexed by ordinal).
+     */
+    private static final Symbol[] SHARED = new Symbol[LexicalUnit.values().length];
+
+    static {
+        for (LexicalUnit unit : LexicalUnit.values()) {
+            SHARED[unit.ordinal()] = new Symbol(unit, unit.lexeme());
+        }
+    }
+
+    /**
+     * All the lexical units, indexed by ordinal (avoids cloning the array of values at each access).
+     */
+    private static final LexicalUnit[] UNITS = LexicalUnit.values();
+
+    /**
+     * Ordinal of the LexicalUnit of each token.
+     */
+    private byte[] types = new byte[INITIAL_CAPACITY];
+
+    /**
+     * Offset of the first character of each token in the file.
+     */
+    private int[] offsets = new int[INITIAL_CAPACITY];
+
+    /**
+     * Identifier id of a [VarName], value of a [Number], 0 for the other tokens.
+     */
+    private int[] values = new int[INITIAL_CAPACITY];
+
+    /**
+     * Number of tokens in the buffer.
+     */
+    private int size = 0;
+
+    /**
+     * Lexical error which stopped the scan after the last token, null if the scan reached the end of the file.
+     */
+    private PatternSyntaxException error;
+
+    /**
+     * Table of the identifiers whose ids are stored in {@link values values}.
+     */
+    private IdentifierTable identifiers;
+
+    /**
+     * Index resolving the line and column of the tokens from their offset.
+     */
+    private LineIndex lines;
+
+    /**
+     * Creates an empty buffer whose identifiers ids refer to the given table.
+     *
+     * @param identifiers the table interning the variable names of the tokens.
+     * @param lines the line index of the file the tokens come from.
+     */
+    public TokenBuffer(IdentifierTable identifiers, LineIndex lines) {
+        this.identifiers = identifiers;
+        this.lines = lines;
+    }
+
+    /**
+     * Scans a whole file into a new buffer.
+     *
+     * The lexer writes its tokens directly in the buffer, so no Symbol is created during the scan.
+     *
+     * @param scanner the lexer of the file.
+     * @return a buffer containing all the tokens of the file, the last one being EOS, or the tokens before the first
+     *         lexical error followed by this error.
+     * @throws IOException in case the file cannot be read.
+     */
+    public static TokenBuffer fill(LexicalAnalyzer scanner) throws IOException {
+        TokenBuffer tokens = new TokenBuffer(scanner.getIdentifiers(), scanner.getLines());
+        scanner.packInto(tokens);
+        try {
+            while (scanner.nextToken().getType() != LexicalUnit.EOS) {
+                // The tokens are appended by the scanner itself
+            }
+        } catch (PatternSyntaxException e) {
+            tokens.fail(e);
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns the shared symbol of a token whose value only depends on its type.
+     *
+     * @param unit the type of the token.
+     * @return a Symbol without position whose value is the lexeme of the type.
+     */
+    public static Symbol shared(LexicalUnit unit) {
+        return SHARED[unit.ordinal()];
+    }
+
+    /**
+     * Appends a token at the end of the buffer.
+     *
+     * @param type the type of the token.
+     * @param offset the offset of the first character of the token.
+     * @param value the identifier id or literal value of the token, 0 if it has none.
+     */
+    public void add(LexicalUnit type, int offset, int value) {
+        if (size == types.length) {
+            int capacity = 2 * size;
+            types = Arrays.copyOf(types, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        offsets[size] = offset;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * Ends the buffer with the lexical error which stopped the scan.
+     *
+     * @param error the error met after the last token added.
+     */
+    public void fail(PatternSyntaxException error) {
+        this.error = error;
+    }
+
+    /**
+     * Moves a cursor to a token, checking that the scan did not stop before it.
+     *
+     * @param index the index of the new look-ahead.
+     * @throws PatternSyntaxException if the index is past the last token, the scan having failed there.
+     */
+    public void reach(int index) {
+        if (index == size && error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Appends tokens of another buffer, translating the ids of their identifiers into the table of this buffer.
+     *
+     * @param other the buffer containing the tokens to append.
+     * @param count the number of tokens to append, from the first one of other.
+     */
+    public void append(TokenBuffer other, int count) {
+        int[] ids = new int[other.identifiers.size()];
+        for (int id = 0; id < ids.length; id++) {
+            // Interned in order of first appearance in other, so ids stay in order of first appearance overall
+            ids[id] = identifiers.intern(other.identifiers.get(id).getName()).getId();
+        }
+        for (int i = 0; i < count; i++) {
+            LexicalUnit type = other.type(i);
+            add(type, other.offsets[i], type == LexicalUnit.VARNAME ? ids[other.values[i]] : other.values[i]);
+        }
+    }
+
+    /**
+     * Returns the number of tokens in the buffer.
+     *
+     * @return the value of attribute {@link size size}.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the type of a token.
+     *
+     * @param index the index of the token.
+     * @return the LexicalUnit of the token.
+     */
+    public LexicalUnit type(int index) {
+        return UNITS[types[index]];
+    }
+
+    /**
+     * Returns the offset of a token in the file.
+     *
+     * @param index the index of the token.
+     * @return the offset of the first character of the token.
+     */
+    public int offset(int index) {
+        return offsets[index];
+    }
+
+    /**
+     * Returns the integer value of a token.
+     *
+     * @param index the index of the token.
+     * @return the identifier id of a [VarName], the value of a [Number], 0 otherwise.
+     */
+    public int value(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns the table of the identifiers referred to by the [VarName] tokens.
+     *
+     * @return the value of attribute {@link identifiers identifiers}.
+     */
+    public IdentifierTable getIdentifiers() {
+        return identifiers;
+    }
+
+    /**
+     * Returns the Symbol to be used as a leaf of the parse tree for a token.
+     *
+     * Tokens without a value of their own are represented by their shared Symbol.
+     *
+     * @param index the index of the token.
+     * @return a Symbol for the token, positioned only if it carries a value.
+     */
+    public Symbol leaf(int index) {
+        switch (type(index)) {
+            case VARNAME:
+            case NUMBER:
+                return symbol(index);
+            default:
+                return shared(type(index));
+        }
+    }
+
+    /**
+     * Builds the complete Symbol of a token, with its position and value, as the lexer would have returned it.
+     *
+     * @param index the index of the token.
+     * @return a new Symbol for the token.
+     */
+    public Symbol symbol(int index) {
+        LexicalUnit type = type(index);
+        Object value;
+        switch (type) {
+            case VARNAME:
+                value = identifiers.get(values[index]);
+                break;
+            case NUMBER:
+                value = Integer.valueOf(values[index]);
+                break;
+            default:
+                value = type.lexeme();
+        }
+        return new Symbol(type, offsets[index], lines, value);
+    }
+}
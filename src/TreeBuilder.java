@@ -0,0 +1,37 @@
+/**
+ * Builds a tree from the derivation found by a parser.
+ *
+ * The parsers do not create the nodes themselves: they report the derivation in the order of a leftmost derivation.
+ * When a rule is applied to a non-terminal, {@link #enter(NonTerminal) enter} is called, then each symbol of the
+ * right-hand side is reported in order (a matched token by {@link #leaf(Symbol) leaf}, an empty right-hand side by
+ * {@link #epsilon() epsilon}, a non-terminal by its own derivation), and the rule ends with {@link #exit() exit}.
+ *
+ * {@link ParseTreeArena ParseTreeArena} builds the full parse tree, while {@link ASTBuilder ASTBuilder} builds the
+ * {@link AST AST} directly, without creating any parse tree.
+ */
+public interface TreeBuilder {
+    /**
+     * Starts the tree of a non-terminal, to which a rule is applied.
+     *
+     * @param variable the non-terminal.
+     */
+    void enter(NonTerminal variable);
+
+    /**
+     * Adds a matched token to the tree of the current non-terminal.
+     *
+     * @param token the matched token.
+     */
+    void leaf(Symbol token);
+
+    /**
+     * Reports that the rule applied to the current non-terminal is an ε-rule.
+     */
+    void epsilon();
+
+    /**
+     * Ends the tree of the current non-terminal.
+     */
+    void exit();
+
+}
@@ -0,0 +1,46 @@
+@.strR = private unnamed_addr constant [3 x i8] c"%d\00", align 1
+
+define i32 @readInt() {
+  %x = alloca i32, align 4
+  %1 = call i32 (i8*, ...) @__isoc99_scanf(i8* getelementptr inbounds ([3 x i8], [3 x i8]* @.strR, i32 0, i32 0), i32* %x)
+  %2 = load i32, i32* %x, align 4
+  ret i32 %2
+}
+declare i32 @__isoc99_scanf(i8*, ...)@.strP = private unnamed_addr constant [4 x i8] c"%d\0A\00", align 1
+
+; Function Attrs: nounwind uwtable
+define void @println(i32 %x) #0 {
+  %1 = alloca i32, align 4
+  store i32 %x, i32* %1, align 4
+  %2 = load i32, i32* %1, align 4
+  %3 = call i32 (i8*, ...) @printf(i8* getelementptr inbounds ([4 x i8], [4 x i8]* @.strP, i32 0, i32 0), i32 %2)
+  ret void
+}
+
+declare i32 @printf(i8*, ...) #1;
+
+define i32 @main() {
+	%1 = call i32 @readInt()
+	%2 = call i32 @readInt()
+	br label %whileLoop_0
+	whileLoop_0:
+		%3 = phi i32 [ %1, %0 ], [ %4, %whileEnd_1 ]
+		%4 = phi i32 [ %2, %0 ], [ %6, %whileEnd_1 ]
+		%5 = icmp slt i32 0, %4
+		br i1 %5, label %whileBody_0, label %whileEnd_0
+	whileBody_0:
+		br label %whileLoop_1
+	whileLoop_1:
+		%6 = phi i32 [ %3, %whileBody_0 ], [ %9, %whileBody_1 ]
+		%7 = add i32 %6, 1
+		%8 = icmp slt i32 %4, %7
+		br i1 %8, label %whileBody_1, label %whileEnd_1
+	whileBody_1:
+		%9 = sub i32 %6, %4
+		br label %whileLoop_1
+	whileEnd_1:
+		br label %whileLoop_0
+	whileEnd_0:
+		call void @println(i32 %3)
+		ret i32 0
+	}
@@ -0,0 +1 @@
+Error:> Parsing Error at line 3 and column 0 trying to parse Instruction: expected [VarName], if, while, print, read, begin, but got end
@@ -0,0 +1 @@
+Error:> Parsing Error at line 2 and column 12 trying to parse InstListTail: expected .., end, but got )
@@ -0,0 +1,46 @@
+@.strR = private unnamed_addr constant [3 x i8] c"%d\00", align 1
+
+define i32 @readInt() {
+  %x = alloca i32, align 4
+  %1 = call i32 (i8*, ...) @__isoc99_scanf(i8* getelementptr inbounds ([3 x i8], [3 x i8]* @.strR, i32 0, i32 0), i32* %x)
+  %2 = load i32, i32* %x, align 4
+  ret i32 %2
+}
+declare i32 @__isoc99_scanf(i8*, ...)@.strP = private unnamed_addr constant [4 x i8] c"%d\0A\00", align 1
+
+; Function Attrs: nounwind uwtable
+define void @println(i32 %x) #0 {
+  %1 = alloca i32, align 4
+  store i32 %x, i32* %1, align 4
+  %2 = load i32, i32* %1, align 4
+  %3 = call i32 (i8*, ...) @printf(i8* getelementptr inbounds ([4 x i8], [4 x i8]* @.strP, i32 0, i32 0), i32 %2)
+  ret void
+}
+
+declare i32 @printf(i8*, ...) #1;
+
+define i32 @main() {
+	%1 = call i32 @readInt()
+	%2 = mul i32 5, 2
+	%3 = icmp slt i32 %2, 20
+	br i1 %3, label %ifTrue_0, label %ifFalse_0
+	ifTrue_0:
+		%4 = add i32 %1, %2
+		br label %ifEnd_0
+	ifFalse_0:
+		br label %ifEnd_0
+	ifEnd_0:
+		%5 = phi i32 [ 0, %ifFalse_0 ], [ %4, %ifTrue_0 ]
+		br label %whileLoop_2
+	whileLoop_2:
+		%6 = phi i32 [ 5, %ifEnd_0 ], [ %8, %whileBody_2 ]
+		%7 = icmp slt i32 %6, 5
+		br i1 %7, label %whileBody_2, label %whileEnd_2
+	whileBody_2:
+		%8 = add i32 %6, 1
+		br label %whileLoop_2
+	whileEnd_2:
+		call void @println(i32 %5)
+		call void @println(i32 %6)
+		ret i32 0
+	}
@@ -0,0 +1,40 @@
+@.strR = private unnamed_addr constant [3 x i8] c"%d\00", align 1
+
+define i32 @readInt() {
+  %x = alloca i32, align 4
+  %1 = call i32 (i8*, ...) @__isoc99_scanf(i8* getelementptr inbounds ([3 x i8], [3 x i8]* @.strR, i32 0, i32 0), i32* %x)
+  %2 = load i32, i32* %x, align 4
+  ret i32 %2
+}
+declare i32 @__isoc99_scanf(i8*, ...)@.strP = private unnamed_addr constant [4 x i8] c"%d\0A\00", align 1
+
+; Function Attrs: nounwind uwtable
+define void @println(i32 %x) #0 {
+  %1 = alloca i32, align 4
+  store i32 %x, i32* %1, align 4
+  %2 = load i32, i32* %1, align 4
+  %3 = call i32 (i8*, ...) @printf(i8* getelementptr inbounds ([4 x i8], [4 x i8]* @.strP, i32 0, i32 0), i32 %2)
+  ret void
+}
+
+declare i32 @printf(i8*, ...) #1;
+
+define i32 @main() {
+	%1 = call i32 @readInt()
+	br label %whileLoop_0
+	whileLoop_0:
+		%2 = phi i32 [ 0, %0 ], [ %9, %whileBody_0 ]
+		%3 = phi i32 [ 0, %0 ], [ %8, %whileBody_0 ]
+		%4 = mul i32 %1, %1
+		%5 = add i32 %4, 1
+		%6 = icmp slt i32 %2, %5
+		br i1 %6, label %whileBody_0, label %whileEnd_0
+	whileBody_0:
+		%7 = mul i32 %1, 2
+		%8 = add i32 %3, %7
+		%9 = add i32 %2, 1
+		br label %whileLoop_0
+	whileEnd_0:
+		call void @println(i32 %3)
+		ret i32 0
+	}
@@ -0,0 +1 @@
+Error:> Parsing Error at line 4 and column 0: expected else, but got end
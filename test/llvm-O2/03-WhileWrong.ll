@@ -0,0 +1 @@
+Error:> Parsing Error at line 2 and column 8 trying to parse SimpleCond: expected {, -, (, [VarName], [Number], but got do
@@ -0,0 +1 @@
+Error:> Parsing Error at line 2 and column 15: expected }, but got do
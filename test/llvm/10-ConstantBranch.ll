@@ -0,0 +1,62 @@
+@.strR = private unnamed_addr constant [3 x i8] c"%d\00", align 1
+
+define i32 @readInt() {
+  %x = alloca i32, align 4
+  %1 = call i32 (i8*, ...) @__isoc99_scanf(i8* getelementptr inbounds ([3 x i8], [3 x i8]* @.strR, i32 0, i32 0), i32* %x)
+  %2 = load i32, i32* %x, align 4
+  ret i32 %2
+}
+declare i32 @__isoc99_scanf(i8*, ...)@.strP = private unnamed_addr constant [4 x i8] c"%d\0A\00", align 1
+
+; Function Attrs: nounwind uwtable
+define void @println(i32 %x) #0 {
+  %1 = alloca i32, align 4
+  store i32 %x, i32* %1, align 4
+  %2 = load i32, i32* %1, align 4
+  %3 = call i32 (i8*, ...) @printf(i8* getelementptr inbounds ([4 x i8], [4 x i8]* @.strP, i32 0, i32 0), i32 %2)
+  ret void
+}
+
+declare i32 @printf(i8*, ...) #1;
+
+define i32 @main() {
+	%a = alloca i32
+	%x = alloca i32
+	%y = alloca i32
+	%z = alloca i32
+	%1 = call i32 @readInt()
+	store i32 %1, i32* %a
+	store i32 5, i32* %x
+	%2 = load i32, i32* %x
+	%3 = mul i32 %2, 2
+	store i32 %3, i32* %y
+	%4 = load i32, i32* %y
+	%5 = icmp slt i32 %4, 20
+	br i1 %5, label %ifTrue_0, label %ifFalse_0
+	ifTrue_0:
+		%6 = load i32, i32* %a
+		%7 = load i32, i32* %y
+		%8 = add i32 %6, %7
+		store i32 %8, i32* %z
+		br label %ifEnd_0
+	ifFalse_0:
+		store i32 0, i32* %z
+		br label %ifEnd_0
+	ifEnd_0:
+		br label %whileLoop_2
+	whileLoop_2:
+		%9 = load i32, i32* %x
+		%10 = icmp slt i32 %9, 5
+		br i1 %10, label %whileBody_2, label %whileEnd_2
+	whileBody_2:
+		%11 = load i32, i32* %x
+		%12 = add i32 %11, 1
+		store i32 %12, i32* %x
+		br label %whileLoop_2
+	whileEnd_2:
+		%13 = load i32, i32* %z
+		call void @println(i32 %13)
+		%14 = load i32, i32* %x
+		call void @println(i32 %14)
+		ret i32 0
+	}
@@ -0,0 +1,53 @@
+@.strR = private unnamed_addr constant [3 x i8] c"%d\00", align 1
+
+define i32 @readInt() {
+  %x = alloca i32, align 4
+  %1 = call i32 (i8*, ...) @__isoc99_scanf(i8* getelementptr inbounds ([3 x i8], [3 x i8]* @.strR, i32 0, i32 0), i32* %x)
+  %2 = load i32, i32* %x, align 4
+  ret i32 %2
+}
+declare i32 @__isoc99_scanf(i8*, ...)@.strP = private unnamed_addr constant [4 x i8] c"%d\0A\00", align 1
+
+; Function Attrs: nounwind uwtable
+define void @println(i32 %x) #0 {
+  %1 = alloca i32, align 4
+  store i32 %x, i32* %1, align 4
+  %2 = load i32, i32* %1, align 4
+  %3 = call i32 (i8*, ...) @printf(i8* getelementptr inbounds ([4 x i8], [4 x i8]* @.strP, i32 0, i32 0), i32 %2)
+  ret void
+}
+
+declare i32 @printf(i8*, ...) #1;
+
+define i32 @main() {
+	%x = alloca i32
+	%a = alloca i32
+	%b = alloca i32
+	%c = alloca i32
+	%d = alloca i32
+	%1 = call i32 @readInt()
+	store i32 %1, i32* %x
+	%2 = load i32, i32* %x
+	%3 = mul i32 %2, 1
+	store i32 %3, i32* %a
+	%4 = load i32, i32* %x
+	%5 = load i32, i32* %x
+	%6 = sub i32 %4, %5
+	store i32 %6, i32* %b
+	%7 = load i32, i32* %x
+	%8 = sub i32 0, %7
+	%9 = sub i32 0, %8
+	store i32 %9, i32* %c
+	%10 = mul i32 2, 3
+	%11 = add i32 %10, 4
+	store i32 %11, i32* %d
+	%12 = load i32, i32* %a
+	call void @println(i32 %12)
+	%13 = load i32, i32* %b
+	call void @println(i32 %13)
+	%14 = load i32, i32* %c
+	call void @println(i32 %14)
+	%15 = load i32, i32* %d
+	call void @println(i32 %15)
+	ret i32 0
+}
@@ -0,0 +1,74 @@
+@.strR = private unnamed_addr constant [3 x i8] c"%d\00", align 1
+
+define i32 @readInt() {
+  %x = alloca i32, align 4
+  %1 = call i32 (i8*, ...) @__isoc99_scanf(i8* getelementptr inbounds ([3 x i8], [3 x i8]* @.strR, i32 0, i32 0), i32* %x)
+  %2 = load i32, i32* %x, align 4
+  ret i32 %2
+}
+declare i32 @__isoc99_scanf(i8*, ...)@.strP = private unnamed_addr constant [4 x i8] c"%d\0A\00", align 1
+
+; Function Attrs: nounwind uwtable
+define void @println(i32 %x) #0 {
+  %1 = alloca i32, align 4
+  store i32 %x, i32* %1, align 4
+  %2 = load i32, i32* %1, align 4
+  %3 = call i32 (i8*, ...) @printf(i8* getelementptr inbounds ([4 x i8], [4 x i8]* @.strP, i32 0, i32 0), i32 %2)
+  ret void
+}
+
+declare i32 @printf(i8*, ...) #1;
+
+define i32 @main() {
+	%a = alloca i32
+	%b = alloca i32
+	%e = alloca i32
+	%c = alloca i32
+	%d = alloca i32
+	%1 = call i32 @readInt()
+	store i32 %1, i32* %a
+	%2 = load i32, i32* %a
+	%3 = mul i32 %2, 3
+	store i32 %3, i32* %b
+	%4 = load i32, i32* %a
+	%5 = add i32 %4, 1
+	store i32 %5, i32* %b
+	%6 = load i32, i32* %a
+	%7 = sdiv i32 %6, 2
+	store i32 %7, i32* %e
+	%8 = load i32, i32* %a
+	%9 = icmp slt i32 %8, 0
+	br i1 %9, label %ifTrue_0, label %ifFalse_0
+	ifTrue_0:
+		%10 = load i32, i32* %a
+		%11 = sdiv i32 %10, 0
+		store i32 %11, i32* %c
+		br label %ifEnd_0
+	ifFalse_0:
+		%12 = load i32, i32* %a
+		%13 = sdiv i32 7, %12
+		store i32 %13, i32* %d
+		br label %ifEnd_0
+	ifEnd_0:
+		%14 = icmp slt i32 1, 2
+		br i1 %14, label %ifTrue_2, label %ifFalse_2
+		ifTrue_2:
+			%15 = icmp slt i32 2, 3
+			br i1 %15, label %ifTrue_3, label %ifFalse_3
+			ifTrue_3:
+				%16 = load i32, i32* %b
+				call void @println(i32 %16)
+				br label %ifEnd_3
+			ifFalse_3:
+				%17 = load i32, i32* %e
+				call void @println(i32 %17)
+				br label %ifEnd_3
+			ifEnd_3:
+				br label %ifEnd_2
+			ifFalse_2:
+				%18 = load i32, i32* %a
+				call void @println(i32 %18)
+				br label %ifEnd_2
+			ifEnd_2:
+				ret i32 0
+			}
@@ -0,0 +1,53 @@
+@.strR = private unnamed_addr constant [3 x i8] c"%d\00", align 1
+
+define i32 @readInt() {
+  %x = alloca i32, align 4
+  %1 = call i32 (i8*, ...) @__isoc99_scanf(i8* getelementptr inbounds ([3 x i8], [3 x i8]* @.strR, i32 0, i32 0), i32* %x)
+  %2 = load i32, i32* %x, align 4
+  ret i32 %2
+}
+declare i32 @__isoc99_scanf(i8*, ...)@.strP = private unnamed_addr constant [4 x i8] c"%d\0A\00", align 1
+
+; Function Attrs: nounwind uwtable
+define void @println(i32 %x) #0 {
+  %1 = alloca i32, align 4
+  store i32 %x, i32* %1, align 4
+  %2 = load i32, i32* %1, align 4
+  %3 = call i32 (i8*, ...) @printf(i8* getelementptr inbounds ([4 x i8], [4 x i8]* @.strP, i32 0, i32 0), i32 %2)
+  ret void
+}
+
+declare i32 @printf(i8*, ...) #1;
+
+define i32 @main() {
+	%n = alloca i32
+	%i = alloca i32
+	%s = alloca i32
+	%1 = call i32 @readInt()
+	store i32 %1, i32* %n
+	store i32 0, i32* %i
+	store i32 0, i32* %s
+	br label %whileLoop_0
+	whileLoop_0:
+		%2 = load i32, i32* %i
+		%3 = load i32, i32* %n
+		%4 = load i32, i32* %n
+		%5 = mul i32 %3, %4
+		%6 = add i32 %5, 1
+		%7 = icmp slt i32 %2, %6
+		br i1 %7, label %whileBody_0, label %whileEnd_0
+	whileBody_0:
+		%8 = load i32, i32* %s
+		%9 = load i32, i32* %n
+		%10 = mul i32 %9, 2
+		%11 = add i32 %8, %10
+		store i32 %11, i32* %s
+		%12 = load i32, i32* %i
+		%13 = add i32 %12, 1
+		store i32 %13, i32* %i
+		br label %whileLoop_0
+	whileEnd_0:
+		%14 = load i32, i32* %s
+		call void @println(i32 %14)
+		ret i32 0
+	}